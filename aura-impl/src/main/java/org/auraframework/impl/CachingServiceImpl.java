@@ -15,26 +15,37 @@
  */
 package org.auraframework.impl;
 
+import java.io.File;
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.*;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 
 import org.apache.log4j.Logger;
 import org.auraframework.Aura;
+import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.builder.CacheBuilder;
 import org.auraframework.cache.Cache;
 import org.auraframework.def.*;
 import org.auraframework.impl.cache.CacheImpl;
+import org.auraframework.impl.cache.DependencyIndex;
+import org.auraframework.impl.cache.TinyLfuCacheImpl;
 import org.auraframework.service.CachingService;
 import org.auraframework.service.DefinitionService;
+import org.auraframework.system.CachedActionResult;
+import org.auraframework.system.CompressedResource;
+import org.auraframework.system.DefinitionSnapshot;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.SourceListener;
+import org.auraframework.system.SourceListener.SourceMonitorEvent;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 
 @ServiceComponent
 public class CachingServiceImpl implements CachingService {
@@ -52,27 +63,61 @@ public class CachingServiceImpl implements CachingService {
 
     /** Default size of string caches, in number of entries */
     private final static int STRING_CACHE_SIZE = 100;
-    private final static int ALT_STRINGS_CACHE_SIZE = 100;
+
+    /** Default size of the encoded app.js/app.css caches, in number of entries */
+    private final static int ALT_BYTES_CACHE_SIZE = 100;
+
+    /** Default size of the compressed resource response cache, in number of entries */
+    private final static int RESOURCE_RESPONSE_CACHE_SIZE = 100;
+
+    /** Default size of the action result cache, in number of entries */
+    private final static int ACTION_RESULT_CACHE_SIZE = 1024;
 
     /** Default size of client lib caches, in number of entries */
     private final static int CLIENT_LIB_CACHE_SIZE = 30;
 
+    /** Value of aura.cache.engine that selects the frequency aware cache instead of the guava one */
+    private final static String TINY_LFU_ENGINE = "tinylfu";
+
+    private final boolean useTinyLfu = TINY_LFU_ENGINE.equalsIgnoreCase(System.getProperty("aura.cache.engine"));
+
+    /** The file that the definition snapshot is kept in (aura.cache.snapshotFile), null if there is none */
+    private final String snapshotFileName = System.getProperty("aura.cache.snapshotFile");
+
+    private volatile DefinitionSnapshot definitionSnapshot;
+
+    /** The version that the definition snapshot is stamped with, see {@link DefinitionSnapshot} */
+    private String snapshotStamp;
+
     private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
     private final WriteLock wLock = rwLock.writeLock();
 
+    /**
+     * The cache generation, bumped before and after each source change is processed, so that it is odd while one is.
+     *
+     * See {@link CachingService#getGeneration()}.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
     @Override
     public <K, T> CacheBuilder<K, T> getCacheBuilder() {
+        if (useTinyLfu) {
+            return new TinyLfuCacheImpl.Builder<>();
+        }
         return new CacheImpl.Builder<>();
     }
 
     private final Cache<DefDescriptor<?>, Boolean> existsCache;
     private final Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache;
     private final Cache<String, String> stringsCache;
-    private final Cache<String, String> altStringsCache;
+    private final Cache<String, byte[]> altBytesCache;
+    private final Cache<String, CompressedResource> resourceResponseCache;
     private final Cache<String, Set<DefDescriptor<?>>> descriptorFilterCache;
+    private final Cache<String, CachedActionResult> actionResultCache;
     private final Cache<String, DependencyEntry> depsCache;
     private final Cache<String, String> clientLibraryOutputCache;
     private final Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> defDescriptorByNameCache;
+    private final DependencyIndex dependencyIndex;
 
     private static final Logger logger = Logger.getLogger(CachingServiceImpl.class);
 
@@ -102,12 +147,20 @@ public class CachingServiceImpl implements CachingService {
                 .setName("stringsCache")
                 .setSoftValues(true).build();
 
-        size = getCacheSize("aura.cache.altStringsCacheSize", ALT_STRINGS_CACHE_SIZE);
-        altStringsCache = this.<String, String> getCacheBuilder()
+        size = getCacheSize("aura.cache.altStringsCacheSize", ALT_BYTES_CACHE_SIZE);
+        altBytesCache = this.<String, byte[]> getCacheBuilder()
+                .setInitialSize(size)
+                .setMaximumSize(size)
+                .setRecordStats(true)
+                .setName("altBytesCache")
+                .setSoftValues(true).build();
+
+        size = getCacheSize("aura.cache.resourceResponseCacheSize", RESOURCE_RESPONSE_CACHE_SIZE);
+        resourceResponseCache = this.<String, CompressedResource> getCacheBuilder()
                 .setInitialSize(size)
                 .setMaximumSize(size)
                 .setRecordStats(true)
-                .setName("altStringsCache")
+                .setName("resourceResponseCache")
                 .setSoftValues(true).build();
 
         size = getCacheSize("aura.cache.filterCacheSize", FILTER_CACHE_SIZE);
@@ -119,6 +172,14 @@ public class CachingServiceImpl implements CachingService {
                 .setName("descriptorFilterCache")
                 .setSoftValues(true).build();
 
+        size = getCacheSize("aura.cache.actionResultCacheSize", ACTION_RESULT_CACHE_SIZE);
+        actionResultCache = this.<String, CachedActionResult> getCacheBuilder()
+                .setInitialSize(size)
+                .setMaximumSize(size)
+                .setRecordStats(true)
+                .setName("actionResultCache")
+                .setSoftValues(true).build();
+
         size = getCacheSize("aura.cache.depsCacheSize", DEPENDENCY_CACHE_SIZE);
         depsCache = this.<String, DependencyEntry> getCacheBuilder()
                 .setInitialSize(size)
@@ -126,6 +187,7 @@ public class CachingServiceImpl implements CachingService {
                 .setRecordStats(true)
                 .setName("depsCache")
                 .setSoftValues(true).build();
+        dependencyIndex = new DependencyIndex(depsCache, size);
 
         size = getCacheSize("aura.cache.clientLibraryOutputCacheSize", CLIENT_LIB_CACHE_SIZE);
         clientLibraryOutputCache = this.<String, String> getCacheBuilder()
@@ -161,8 +223,13 @@ public class CachingServiceImpl implements CachingService {
     }
 
     @Override
-    public final Cache<String, String> getAltStringsCache() {
-        return altStringsCache;
+    public final Cache<String, byte[]> getAltBytesCache() {
+        return altBytesCache;
+    }
+
+    @Override
+    public final Cache<String, CompressedResource> getResourceResponseCache() {
+        return resourceResponseCache;
     }
 
     @Override
@@ -175,6 +242,11 @@ public class CachingServiceImpl implements CachingService {
         return depsCache;
     }
 
+    @Override
+    public final Cache<String, CachedActionResult> getActionResultCache() {
+        return actionResultCache;
+    }
+
     @Override
     public final Cache<String, String> getClientLibraryOutputCache() {
         return clientLibraryOutputCache;
@@ -185,6 +257,82 @@ public class CachingServiceImpl implements CachingService {
         return defDescriptorByNameCache;
     }
 
+    @Override
+    public void registerDependencyEntry(String key, DependencyEntry de) {
+        dependencyIndex.add(key, de);
+    }
+
+    @Override
+    public DefinitionSnapshot getDefinitionSnapshot() {
+        if (snapshotFileName == null) {
+            return null;
+        }
+        DefinitionSnapshot snapshot = definitionSnapshot;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = definitionSnapshot;
+                if (snapshot == null) {
+                    snapshot = readDefinitionSnapshot();
+                    definitionSnapshot = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Read the snapshot file, and arrange for it to be written again when the JVM shuts down.
+     *
+     * A snapshot that can't be read is ignored, we just start cold.
+     */
+    private DefinitionSnapshot readDefinitionSnapshot() {
+        File file = new File(snapshotFileName);
+        ConfigAdapter configAdapter = Aura.getConfigAdapter();
+        snapshotStamp = configAdapter.getAuraVersion() + "@" + configAdapter.getBuildTimestamp();
+
+        DefinitionSnapshot snapshot = null;
+        try {
+            snapshot = DefinitionSnapshot.read(file, snapshotStamp);
+        } catch (Exception e) {
+            logger.warn("Unable to read definition snapshot " + file + ", starting cold", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread("aura-definition-snapshot") {
+            @Override
+            public void run() {
+                saveDefinitionSnapshot();
+            }
+        });
+        if (snapshot == null) {
+            return new DefinitionSnapshot();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Write the definition and dependency caches to the snapshot file.
+     *
+     * This is done when the JVM shuts down, once the snapshot has been read.
+     */
+    public void saveDefinitionSnapshot() {
+        if (snapshotFileName == null || snapshotStamp == null) {
+            return;
+        }
+        File file = new File(snapshotFileName);
+        try {
+            int skipped = DefinitionSnapshot.write(file, snapshotStamp, defsCache, depsCache);
+            if (skipped > 0) {
+                logger.warn("Left " + skipped + " definitions that could not be serialized out of " + file);
+            }
+        } catch (Exception e) {
+            logger.error("Unable to write definition snapshot " + file, e);
+        }
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation.get();
+    }
+
     @Override
     public Lock getReadLock() {
         return rwLock.readLock();
@@ -196,14 +344,18 @@ public class CachingServiceImpl implements CachingService {
     }
 
     /**
-     * The driver for cache-consistency management in response to source changes. MDR drives the process, will notify
-     * all registered listeners while write blocking, then invalidate it's own caches. If this routine can't acquire the
-     * lock , it will log it as an non-fatal error, as it only results in staleness.
+     * The driver for cache-consistency management in response to source changes. MDR drives the process, will
+     * invalidate it's own caches, then notify all registered listeners while holding the write lock. If this routine
+     * can't acquire the lock , it will log it as an non-fatal error, as it only results in staleness.
+     *
+     * Readers do not take the lock. Instead, the generation is bumped to an odd value before the caches are
+     * invalidated, and back to an even one after the listeners have cleared their caches, so that anything read while
+     * this is going on is not published to the global caches (see {@link CachingService#getGeneration()}).
      *
      * @param listeners - collections of listeners to notify of source changes
-     * @param source - DefDescriptor that changed - for granular cache clear (currently not considered here, but other
-     *            listeners may make use of it)
-     * @param event - what type of event triggered the change
+     * @param source - DefDescriptor that changed - for granular cache clear
+     * @param event - what type of event triggered the change, only a CHANGED event can be handled granularly, as
+     *            creating or deleting a source may change the result of any lookup
      */
     @Override
     public void notifyDependentSourceChange(
@@ -225,7 +377,8 @@ public class CachingServiceImpl implements CachingService {
             }
 
             // successfully acquired the lock, start clearing caches
-            invalidateSourceRelatedCaches(source);
+            generation.incrementAndGet();
+            invalidateSourceRelatedCaches(source, event);
 
             // notify provided listeners, presumably to clear caches
             for (WeakReference<SourceListener> i : listeners) {
@@ -238,20 +391,23 @@ public class CachingServiceImpl implements CachingService {
         } catch (InterruptedException e) {
         } finally {
             if (haveLock) {
+                // even again, whether or not the listeners finished.
+                generation.incrementAndGet();
                 wLock.unlock();
             }
         }
     }
 
-    private void invalidateSourceRelatedCaches(DefDescriptor<?> descriptor) {
+    private void invalidateSourceRelatedCaches(DefDescriptor<?> descriptor, SourceMonitorEvent event) {
 
-        depsCache.invalidateAll();
-        descriptorFilterCache.invalidateAll();
-        stringsCache.invalidateAll();
+        if (descriptor == null || event != SourceMonitorEvent.CHANGED) {
+            invalidateAllDependents();
+        }
 
         if (descriptor == null) {
             defsCache.invalidateAll();
             existsCache.invalidateAll();
+            actionResultCache.invalidateAll();
         } else {
             DefinitionService ds = Aura.getDefinitionService();
             DefDescriptor<ComponentDef> cdesc = ds.getDefDescriptor(descriptor,
@@ -266,15 +422,58 @@ public class CachingServiceImpl implements CachingService {
             defsCache.invalidate(adesc);
             existsCache.invalidate(adesc);
 
+            if (event == SourceMonitorEvent.CHANGED) {
+                invalidateDependents(ImmutableList.<DefDescriptor<?>>of(descriptor, cdesc, adesc));
+            }
+
             switch (descriptor.getDefType()) {
             case INCLUDE:
-                invalidateSourceRelatedCaches(descriptor.getBundle());
+                invalidateSourceRelatedCaches(descriptor.getBundle(), event);
+                break;
+            case CONTROLLER:
+                // action results are keyed by the action descriptor, see ServerServiceImpl.getActionResultKey
+                actionResultCache.invalidatePartial(descriptor.getQualifiedName() + "/");
                 break;
             default:
             }
         }
     }
 
+    /**
+     * Invalidate all dependency entries, and everything cached for them.
+     */
+    private void invalidateAllDependents() {
+        depsCache.invalidateAll();
+        descriptorFilterCache.invalidateAll();
+        stringsCache.invalidateAll();
+        // responses are served without checking the uid against the registry, so they must all go.
+        resourceResponseCache.invalidateAll();
+        dependencyIndex.clear();
+    }
+
+    /**
+     * Invalidate the dependency entries, and the strings cached for them, that include any of the given descriptors.
+     *
+     * Descriptor filter results only change when sources are created or deleted, so they are left alone. If the index
+     * knows of no entry that includes the descriptors, the change may still be in entries it never saw, so everything
+     * is invalidated, as for any other event.
+     */
+    private void invalidateDependents(Collection<DefDescriptor<?>> descriptors) {
+        Map<String, Set<String>> dependents = dependencyIndex.removeDependents(descriptors);
+        if (dependents.isEmpty()) {
+            invalidateAllDependents();
+            return;
+        }
+
+        for (Map.Entry<String, Set<String>> entry : dependents.entrySet()) {
+            depsCache.invalidate(entry.getValue());
+            // cached strings are keyed by uid@descriptor@key, see MasterDefRegistryImpl.getKey
+            stringsCache.invalidatePartial(entry.getKey() + "@");
+            altBytesCache.invalidatePartial(entry.getKey() + "@");
+            resourceResponseCache.invalidatePartial(entry.getKey() + "@");
+        }
+    }
+
     /**
      * Computes a size for a given cache.  The defaults can be overridden
      * with system properties.
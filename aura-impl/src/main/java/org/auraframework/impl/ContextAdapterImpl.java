@@ -79,6 +79,36 @@ public class ContextAdapterImpl implements ContextAdapter {
                 original.getJsonSerializationContext(), original.getGlobalProviders(), false);
     }
     
+    @Override
+    public void establish(AuraContext context) {
+        currentContext.set(context);
+    }
+
+    @Override
+    public AuraContext buildForkedContext() {
+        AuraContext original = getCurrentContext();
+        if (original == null) {
+            throw new AuraRuntimeException("no context to fork");
+        }
+        AuraContext context = buildSystemContext(original);
+        context.setApplicationDescriptor(original.getApplicationDescriptor());
+        context.setLoadingApplicationDescriptor(original.getLoadingApplicationDescriptor());
+        context.setNum(original.getNum());
+        context.setContextPath(original.getContextPath());
+        context.setFrameworkUID(original.getFrameworkUID());
+        context.setRequestedLocales(original.getRequestedLocales());
+        context.setClient(original.getClient());
+        context.setClientLoaded(original.getClientLoaded());
+        context.setClientLoadedHash(original.getClientLoadedHash());
+        for (Map.Entry<DefDescriptor<?>, String> entry : original.getLoaded().entrySet()) {
+            context.addLoaded(entry.getKey(), entry.getValue());
+        }
+        if (original.getPreloadedDefinitions() != null) {
+            context.setPreloadedDefinitions(original.getPreloadedDefinitions());
+        }
+        return context;
+    }
+
     @Override
     public AuraContext pushSystemContext() {
         AuraContext context = systemContext.get();
@@ -74,6 +74,14 @@ public class LoggingServiceImpl implements LoggingService {
             lc.stopAction(actionName);
         }
     }
+
+    @Override
+    public void stopAction(String actionName, String descriptorName) {
+        LoggingContext lc = getLoggingContext();
+        if (lc != null) {
+            lc.stopAction(actionName, descriptorName);
+        }
+    }
     
     @Override
     public void stopTimer(String name) {
@@ -15,15 +15,25 @@
  */
 package org.auraframework.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.auraframework.Aura;
+import org.auraframework.cache.Cache;
 import org.auraframework.css.StyleContext;
 import org.auraframework.def.BaseComponentDef;
 import org.auraframework.def.BaseStyleDef;
@@ -36,25 +46,34 @@ import org.auraframework.def.IncludeDefRef;
 import org.auraframework.def.LibraryDef;
 import org.auraframework.def.SVGDef;
 import org.auraframework.ds.serviceloader.AuraServiceProvider;
+import org.auraframework.impl.java.controller.JavaAction;
 import org.auraframework.instance.Action;
 import org.auraframework.instance.Event;
+import org.auraframework.service.ContextService;
 import org.auraframework.service.LoggingService;
 import org.auraframework.service.MetricsService;
 import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
+import org.auraframework.system.CachedActionResult;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
 import org.auraframework.system.LoggingContext.KeyValueLogger;
 import org.auraframework.system.MasterDefRegistry;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.AuraExecutionException;
+import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.javascript.Literal;
 import org.auraframework.util.json.JsonEncoder;
 import org.auraframework.util.json.JsonSerializationContext;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import aQute.bnd.annotation.component.Component;
 
@@ -62,6 +81,48 @@ import aQute.bnd.annotation.component.Component;
 public class ServerServiceImpl implements ServerService {
     private static final long serialVersionUID = -2779745160285710414L;
 
+    /**
+     * The number of threads used to run parallel safe actions, zero to run every action on the request thread.
+     */
+    private static final int PARALLEL_ACTION_THREADS = Integer.getInteger("aura.server.parallelActionThreads", 8);
+
+    private static final ExecutorService actionPool = PARALLEL_ACTION_THREADS > 0 ? Executors.newFixedThreadPool(
+            PARALLEL_ACTION_THREADS, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("aura-action-%d")
+                    .build()) : null;
+
+    /**
+     * An action running on the action pool, in its own forked context.
+     */
+    private static class ParallelAction implements Callable<Void> {
+        private final Action action;
+        private final AuraContext fork;
+        private Future<Void> future;
+        /** The time the action took to run, read once the future is done */
+        private long nanos;
+
+        private ParallelAction(Action action, AuraContext fork) {
+            this.action = action;
+            this.fork = fork;
+        }
+
+        @Override
+        public Void call() {
+            ContextService contextService = Aura.getContextService();
+            contextService.startForkedContext(fork);
+            long start = System.nanoTime();
+            try {
+                fork.setCurrentAction(action);
+                action.run();
+            } catch (AuraExecutionException x) {
+                Aura.getExceptionAdapter().handleException(x, action);
+            } finally {
+                nanos = System.nanoTime() - start;
+                contextService.endContext();
+            }
+            return null;
+        }
+    }
+
     @Override
     public void run(Message message, AuraContext context, Writer out, Map<?,?> extras) throws IOException {
         LoggingService loggingService = Aura.getLoggingService();
@@ -87,6 +148,7 @@ public class ServerServiceImpl implements ServerService {
 
             loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
             loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+            long start = System.nanoTime();
             try {
                 json.writeMapEntry("context", context);
                 List<Event> clientEvents = Aura.getContextService().getCurrentContext().getClientEvents();
@@ -94,6 +156,7 @@ public class ServerServiceImpl implements ServerService {
                     json.writeMapEntry("events", clientEvents);
                 }
             } finally {
+                metricsService.recordPhase(MetricsService.PHASE_CONTEXT_SERIALIZATION, System.nanoTime() - start);
                 loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION_AURA);
                 loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION);
             }
@@ -112,6 +175,8 @@ public class ServerServiceImpl implements ServerService {
 
             json.writeMapEnd();
         } finally {
+            loggingService.incrementNumBy("JsonRefCount", (long) json.getReferenceCount());
+            loggingService.incrementNumBy("JsonRefHitCount", (long) json.getReferenceHitCount());
             try {
                 json.close();
             } catch (Throwable ignored) {
@@ -122,8 +187,24 @@ public class ServerServiceImpl implements ServerService {
 
     private int run(List<Action> actions, JsonEncoder json, int idx) throws IOException {
         LoggingService loggingService = Aura.getLoggingService();
+        MetricsService metricsService = Aura.getMetricsService();
         AuraContext context = Aura.getContextService().getCurrentContext();
-        for (Action action : actions) {
+        Map<Action, String> cacheKeys = getActionResultKeys(actions);
+        Map<Action, ParallelAction> started = Maps.newIdentityHashMap();
+        int runEnd = 0;
+        for (int i = 0; i < actions.size(); i++) {
+            Action action = actions.get(i);
+            if (i >= runEnd && isParallelSafe(action)) {
+                // Only consecutive parallel safe actions overlap, so none of them runs before an action that came
+                // ahead of it in the request.
+                runEnd = i + 1;
+                while (runEnd < actions.size() && isParallelSafe(actions.get(runEnd))) {
+                    runEnd++;
+                }
+                Map<Action, ParallelAction> run = startParallelActions(actions.subList(i, runEnd), cacheKeys);
+                joinParallelActions(run.values());
+                started.putAll(run);
+            }
             StringBuffer actionAndParams = new StringBuffer(action.getDescriptor().getQualifiedName());
             KeyValueLogger logger = loggingService.getKeyValueLogger(actionAndParams);
             if (logger != null) {
@@ -131,21 +212,48 @@ public class ServerServiceImpl implements ServerService {
             }
             String aap = String.valueOf(++idx)+"$"+actionAndParams.toString();
             loggingService.startAction(aap);
+            ParallelAction parallel = started.remove(action);
+            String cacheKey = cacheKeys.get(action);
+            // An action that was run in parallel keeps its own result, even if the cache was filled since.
+            CachedActionResult cached = cacheKey != null && parallel == null ? getCachedActionResult(cacheKey) : null;
+            int eventCount = context.getClientEvents().size();
             Action oldAction = context.setCurrentAction(action);
+            // Left negative for a cached result, as that is not a run of the action.
+            long nanos = -1;
             try {
                 //
                 // We clear out action centric references here.
                 //
                 json.clearReferences();
-                // DCHASMAN TODO Look into a common base for Action
-                // implementations that we can move the call to
-                // context.setCurrentAction() into!
-                action.run();
+                if (cached != null) {
+                    loggingService.incrementNum("ActionCacheHitCount");
+                    ((JavaAction) action).setSerializedReturnValue(cached.getReturnValue());
+                } else if (parallel != null) {
+                    nanos = parallel.nanos;
+                    awaitParallelAction(parallel, context);
+                } else {
+                    // DCHASMAN TODO Look into a common base for Action
+                    // implementations that we can move the call to
+                    // context.setCurrentAction() into!
+                    long start = System.nanoTime();
+                    try {
+                        action.run();
+                    } finally {
+                        nanos = System.nanoTime() - start;
+                    }
+                }
             } catch (AuraExecutionException x) {
                 Aura.getExceptionAdapter().handleException(x, action);
             } finally {
                 context.setCurrentAction(oldAction);
-                loggingService.stopAction(aap);
+                loggingService.stopAction(aap, action.getDescriptor().getQualifiedName());
+                if (nanos >= 0 && metricsService.isSampled()) {
+                    metricsService.recordPhase(MetricsService.PHASE_ACTION + action.getDescriptor().getQualifiedName(),
+                            nanos);
+                }
+            }
+            if (cacheKey != null && cached == null) {
+                cacheActionResult((JavaAction) action, cacheKey, context, eventCount);
             }
             loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
             loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
@@ -167,8 +275,187 @@ public class ServerServiceImpl implements ServerService {
         return idx;
     }
 
+    private boolean isParallelSafe(Action action) {
+        return action instanceof JavaAction && ((JavaAction) action).isParallelSafe();
+    }
+
+    /**
+     * Start a run of consecutive parallel safe actions on the action pool.
+     *
+     * Nothing is started unless there are at least two actions, as there would be nothing to overlap with. The forks
+     * read the request registry, so the request must not go on until they are joined with
+     * {@link #joinParallelActions(Collection)}.
+     *
+     * @param cacheKeys the result cache keys of the cacheable actions, cached results are not run again.
+     * @return the started actions.
+     */
+    private Map<Action, ParallelAction> startParallelActions(List<Action> run, Map<Action, String> cacheKeys) {
+        Map<Action, ParallelAction> started = Maps.newIdentityHashMap();
+        if (actionPool == null || run.size() < 2) {
+            return started;
+        }
+        ContextService contextService = Aura.getContextService();
+        for (Action action : run) {
+            if (!started.containsKey(action)) {
+                String cacheKey = cacheKeys.get(action);
+                if (cacheKey != null && getCachedActionResult(cacheKey) != null) {
+                    continue;
+                }
+                ParallelAction parallel = new ParallelAction(action, contextService.forkContext());
+                parallel.future = actionPool.submit(parallel);
+                started.put(action, parallel);
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Wait for all of the started actions to finish, before the request thread does anything that could change the
+     * registry that the forks read.
+     *
+     * Failures are left for {@link #awaitParallelAction(ParallelAction, AuraContext)} to report in order. The wait is
+     * not cut short by an interrupt, as that would leave the forks running against the registry.
+     */
+    private void joinParallelActions(Collection<ParallelAction> started) {
+        for (ParallelAction parallel : started) {
+            try {
+                Uninterruptibles.getUninterruptibly(parallel.future);
+            } catch (ExecutionException ee) {
+                // reported when the action is serialized.
+            }
+        }
+    }
+
+    /**
+     * Get the result cache keys for the cacheable actions in a list.
+     *
+     * The key is the action descriptor followed by the parameters, serialized with map keys sorted so that the same
+     * parameters always give the same key. Actions whose parameters cannot be serialized are not cached.
+     */
+    private Map<Action, String> getActionResultKeys(List<Action> actions) {
+        Map<Action, String> keys = Maps.newIdentityHashMap();
+        for (Action action : actions) {
+            if (action instanceof JavaAction && ((JavaAction) action).getCacheExpiration() > 0) {
+                StringBuilder key = new StringBuilder(action.getDescriptor().getQualifiedName());
+                key.append('|');
+                try {
+                    JsonEncoder.serialize(normalizeParam(action.getParams()), key);
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                keys.put(action, key.toString());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Put maps (at any depth) in key order.
+     */
+    private Object normalizeParam(Object param) {
+        if (param instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) param).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), normalizeParam(entry.getValue()));
+            }
+            return sorted;
+        }
+        if (param instanceof Collection) {
+            List<Object> normalized = Lists.newArrayListWithCapacity(((Collection<?>) param).size());
+            for (Object value : (Collection<?>) param) {
+                normalized.add(normalizeParam(value));
+            }
+            return normalized;
+        }
+        return param;
+    }
+
+    private CachedActionResult getCachedActionResult(String key) {
+        Cache<String, CachedActionResult> cache = Aura.getCachingService().getActionResultCache();
+        CachedActionResult cached = cache.getIfPresent(key);
+        if (cached != null && cached.isExpired(System.currentTimeMillis())) {
+            cache.invalidate(key);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * Put the result of a cacheable action in the cache, if it can be reused.
+     *
+     * Only a plain successful result qualifies: one that created no components, fired no events and queued no other
+     * actions. The return value is serialized here, without references so that it can be sent in any response, and
+     * the action is left holding the serialized form so that it is not serialized twice.
+     */
+    private void cacheActionResult(JavaAction action, String key, AuraContext context, int eventCount) {
+        List<Action> additionalActions = action.getActions();
+        if (action.getState() != Action.State.SUCCESS || !action.getErrors().isEmpty()
+                || (additionalActions != null && !additionalActions.isEmpty())
+                || context.getClientEvents().size() != eventCount
+                || !action.getInstanceStack().getComponents().isEmpty()) {
+            return;
+        }
+        Object returnValue = action.getReturnValue();
+        JsonSerializationContext serializationContext = context.getJsonSerializationContext();
+        String serialized;
+        serializationContext.pushRefSupport(false);
+        try {
+            serialized = JsonEncoder.serialize(returnValue != null ? returnValue : Literal.NULL,
+                    serializationContext);
+        } catch (RuntimeException e) {
+            // leave it to the normal serialization to report.
+            return;
+        } finally {
+            serializationContext.popRefSupport();
+        }
+        CachedActionResult result = new CachedActionResult(serialized, System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(action.getCacheExpiration()));
+        Aura.getCachingService().getActionResultCache().put(key, result);
+        action.setSerializedReturnValue(result.getReturnValue());
+    }
+
+    /**
+     * Wait for a parallel action to finish, and bring back any client events that it fired.
+     */
+    private void awaitParallelAction(ParallelAction parallel, AuraContext context) {
+        try {
+            parallel.future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AuraRuntimeException("Interrupted while waiting for " + parallel.action.getDescriptor(), ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AuraRuntimeException(cause);
+        }
+        List<Event> events = parallel.fork.getClientEvents();
+        if (events != null) {
+            for (Event event : events) {
+                try {
+                    context.addClientApplicationEvent(event);
+                } catch (Exception e) {
+                    throw new AuraRuntimeException(e);
+                }
+            }
+        }
+    }
+
     @Override
-    public void writeAppCss(final Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException {
+    public void writeAppCss(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException {
+        byte[] cached = getAppCssBytes(dependencies);
+
+        if (out != null) {
+            out.append(new String(cached, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public byte[] getAppCssBytes(final Set<DefDescriptor<?>> dependencies) throws IOException, QuickFixException {
 
     	AuraContext context = Aura.getContextService().getCurrentContext();
         boolean minify = context.getMode().minify();
@@ -216,31 +503,36 @@ public class ServerServiceImpl implements ServerService {
         final String key = keyBuilder.toString();
         context.setPreloading(true);
 
-        String cached = null;
         final boolean skipCache = styleContext.getTokens().hasDynamicTokens(); // TODONM undo this cache skipping
         if (skipCache) {
-        	cached = getAppCssString(dependencies);
-        } else {
-        	cached = context.getDefRegistry().getAltCachedString(uid, appDesc, key,
-            	new Callable<String>() {
-	        		@Override
-					public String call() throws Exception {
-	        			return getAppCssString(dependencies);
-	        		}
-        		}
-			);
+        	return generateAppCssBytes(dependencies);
         }
+        return context.getDefRegistry().getAltCachedBytes(uid, appDesc, key,
+            new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    return generateAppCssBytes(dependencies);
+                }
+            }
+        );
+    }
 
-        if (out != null) {
-            out.append(cached);
+    private byte[] generateAppCssBytes(Set<DefDescriptor<?>> dependencies) throws QuickFixException, IOException {
+        long start = System.nanoTime();
+        try {
+            return getAppCssBytesUncached(dependencies);
+        } finally {
+            Aura.getMetricsService().recordPhase(MetricsService.PHASE_CSS_GENERATION, System.nanoTime() - start);
         }
     }
 
-    private String getAppCssString(Set<DefDescriptor<?>> dependencies) throws QuickFixException, IOException {
+    private byte[] getAppCssBytesUncached(Set<DefDescriptor<?>> dependencies) throws QuickFixException, IOException {
         Collection<BaseStyleDef> orderedStyleDefs = filterAndLoad(BaseStyleDef.class, dependencies, null);
-        StringBuffer sb = new StringBuffer();
-        Aura.getSerializationService().writeCollection(orderedStyleDefs, BaseStyleDef.class, sb, "CSS");
-    	return sb.toString();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        Aura.getSerializationService().writeCollection(orderedStyleDefs, BaseStyleDef.class, out, "CSS");
+        out.flush();
+        return bytes.toByteArray();
     }
 
     @Override
@@ -290,7 +582,17 @@ public class ServerServiceImpl implements ServerService {
     }
 
     @Override
-    public void writeDefinitions(final Set<DefDescriptor<?>> dependencies, Writer out)
+    public void writeDefinitions(Set<DefDescriptor<?>> dependencies, Writer out)
+            throws IOException, QuickFixException {
+        byte[] cached = getDefinitionsBytes(dependencies);
+
+        if (out != null) {
+            out.append(new String(cached, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public byte[] getDefinitionsBytes(final Set<DefDescriptor<?>> dependencies)
             throws IOException, QuickFixException {
 
     	AuraContext context = Aura.getContextService().getCurrentContext();
@@ -303,30 +605,34 @@ public class ServerServiceImpl implements ServerService {
         final String uid = context.getUid(appDesc);
         final String key = "JS:" + mKey + uid;
 
-        String cached = context.getDefRegistry().getAltCachedString(uid, appDesc, key,
-        		new Callable<String>() {
-		    		@Override
-					public String call() throws Exception {
-		    			String res = getDefinitionsString(dependencies, key);
-		    			//log the cache miss here
-		    			Aura.getCachingService().getAltStringsCache().logCacheStatus("cache miss for key: "+key+";");
-		    			return res;
-		    		}
-		    	});
-
-        if (out != null) {
-            out.append(cached);
-        }
+        return context.getDefRegistry().getAltCachedBytes(uid, appDesc, key,
+                new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        long start = System.nanoTime();
+                        byte[] res;
+                        try {
+                            res = getDefinitionsBytesUncached(dependencies, key);
+                        } finally {
+                            Aura.getMetricsService().recordPhase(MetricsService.PHASE_JS_GENERATION,
+                                    System.nanoTime() - start);
+                        }
+                        //log the cache miss here
+                        Aura.getCachingService().getAltBytesCache().logCacheStatus("cache miss for key: "+key+";");
+                        return res;
+                    }
+                });
     }
 
-    private String getDefinitionsString (Set<DefDescriptor<?>> dependencies, String key)
+    private byte[] getDefinitionsBytesUncached(Set<DefDescriptor<?>> dependencies, String key)
     		throws QuickFixException, IOException {
 
         AuraContext context = Aura.getContextService().getCurrentContext();
         boolean minify = context.getMode().minify();
         MasterDefRegistry masterDefRegistry = context.getDefRegistry();
 
-        StringBuilder sb = new StringBuilder();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Writer sb = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
 
         // Append component classes.
         Collection<BaseComponentDef> componentDefs = filterAndLoad(BaseComponentDef.class, dependencies, null);
@@ -386,7 +692,8 @@ public class ServerServiceImpl implements ServerService {
 
         sb.append("});\n\n");
 
-        return sb.toString();
+        sb.flush();
+        return bytes.toByteArray();
     }
 
     @Override
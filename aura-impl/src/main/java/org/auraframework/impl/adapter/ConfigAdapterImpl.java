@@ -17,16 +17,16 @@ package org.auraframework.impl.adapter;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.EnumSet;
@@ -35,6 +35,14 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -103,13 +111,20 @@ public class ConfigAdapterImpl implements ConfigAdapter {
     protected final Set<Mode> allModes = EnumSet.allOf(Mode.class);
     private JavascriptGroup jsGroup;
     private FileGroup resourcesGroup;
-    private String jsUid = "";
-    private String resourcesUid = "";
-    private String fwUid = "";
+    private volatile FrameworkUid frameworkUid = new FrameworkUid("", "", "");
     private ResourceLoader resourceLoader;
     private Long buildTimestamp;
     private String auraVersionString;
-    private boolean lastGenerationHadCompilationErrors = false;
+    private final ReentrantLock regenerateLock = new ReentrantLock();
+    private final AtomicBoolean checkScheduled = new AtomicBoolean();
+    private volatile boolean checkedAuraJS = false;
+    private volatile long lastAuraJSCheck;
+    /** Why the last regeneration failed, null if it worked */
+    private volatile Exception regenerationFailure;
+    /** The hash of the framework javascript in place when the current regeneration started */
+    private volatile String publishedJsHash;
+    /** The number of regenerations started and finished, odd while one is in progress */
+    private final AtomicLong jsGeneration = new AtomicLong();
     private boolean validateCss;
     private Map<String, String> effectiveTimezones;
 
@@ -275,40 +290,159 @@ public class ConfigAdapterImpl implements ConfigAdapter {
         return false;
     }
 
+    /**
+     * The framework uid, along with the hashes it was made from, replaced as a whole.
+     */
+    private static final class FrameworkUid {
+        private final String jsUid;
+        private final String resourcesUid;
+        private final String fwUid;
+
+        private FrameworkUid(String jsUid, String resourcesUid, String fwUid) {
+            this.jsUid = jsUid;
+            this.resourcesUid = resourcesUid;
+            this.fwUid = fwUid;
+        }
+    }
+
+    /** How often requests look for changes to the framework javascript, outside of production */
+    private static final long AURA_JS_CHECK_INTERVAL = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("aura.js.checkInterval", 1000L));
+
+    private static final ExecutorService regenerator = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "aura-js-regenerate");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Regenerate the framework javascript now, if it has changed or the last attempt failed.
+     *
+     * This waits for any regeneration in progress. Requests use {@link #checkAuraJS()} instead.
+     */
     @Override
-    public synchronized void regenerateAuraJS() {
+    public void regenerateAuraJS() {
         /*
          * If we're missing source, jsGroup will be an AuraResourceGroup and isStale() is always false. If we're in
          * production, we're using the resources too. But if we have source, regenerate from it if it's changed:
          */
-        if (!isProduction() && jsGroup != null && (jsGroup.isStale() || lastGenerationHadCompilationErrors)) {
+        if (isProduction() || jsGroup == null) {
+            return;
+        }
+        regenerateLock.lock();
+        try {
+            if (jsGroup.isStale() || regenerationFailure != null) {
+                regenerate();
+            }
+        } finally {
+            regenerateLock.unlock();
+        }
+    }
+
+    @Override
+    public long getAuraJSGeneration() {
+        return jsGeneration.get();
+    }
+
+    /**
+     * Make sure the framework javascript is current, without blocking.
+     *
+     * In production, and when there is no source, there is nothing to do. Otherwise the first call regenerates, as
+     * {@link #regenerateAuraJS()} does, and later calls hand the check to a background thread, at most once per
+     * aura.js.checkInterval milliseconds, so that a change is picked up shortly after it is made. A failed regeneration
+     * is thrown to every request until one works, so that the error is seen.
+     */
+    private void checkAuraJS() {
+        if (isProduction() || jsGroup == null) {
+            return;
+        }
+        if (!checkedAuraJS) {
+            regenerateAuraJS();
+            lastAuraJSCheck = System.nanoTime();
+            checkedAuraJS = true;
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastAuraJSCheck >= AURA_JS_CHECK_INTERVAL && checkScheduled.compareAndSet(false, true)) {
+            lastAuraJSCheck = now;
             try {
-                Logger logger = Logger.getLogger(ConfigAdapterImpl.class);
-                logger.info("Regenerating framework javascript");
-                File dest = AuraImplFiles.AuraResourceJavascriptDirectory.asFile();
-                File resourceDest = AuraImplFiles.AuraResourceJavascriptClassDirectory.asFile();
-                jsGroup.regenerate(dest);
-                // now we have to copy the new files to the resource directory
-                logger.info("Copying regenerated files to " + resourceDest);
-                File[] destFiles = dest.listFiles(JS_ONLY);
-                if (destFiles != null && destFiles.length > 0) {
-                    resourceDest.mkdirs(); // If we got this far without this directory, just create it.
-                    for (File f : destFiles) {
-                        logger.info(f);
-                        InputStream is = new FileInputStream(f);
-                        OutputStream os = new FileOutputStream(new File(resourceDest, f.getName()));
-                        IOUtil.copyStream(is, os);
-                        getResourceLoader().refreshCache("aura/javascript/" + f.getName());
-
-                        is.close();
-                        os.close();
+                regenerator.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            regenerateAuraJS();
+                        } catch (Throwable t) {
+                            // Also kept in regenerationFailure, and thrown to the next request.
+                            Logger.getLogger(ConfigAdapterImpl.class).error("Unable to regenerate aura javascript", t);
+                        } finally {
+                            checkScheduled.set(false);
+                        }
                     }
+                });
+            } catch (RejectedExecutionException ree) {
+                checkScheduled.set(false);
+            }
+        }
+        Exception failure = regenerationFailure;
+        if (failure != null) {
+            throw new AuraRuntimeException("Unable to regenerate aura javascript", failure);
+        }
+    }
+
+    /**
+     * Regenerate the framework javascript, and copy it to the resource directory.
+     *
+     * The group hash changes as soon as the group is regenerated, but the framework uid stays on the hash of the files
+     * in place until every new file has been copied, so that a uid is never served with the files of another. Files are
+     * replaced atomically, so that a request never reads a partly written file.
+     */
+    private void regenerate() {
+        try {
+            publishedJsHash = jsGroup.getGroupHash().toString();
+        } catch (IOException e) {
+            regenerationFailure = e;
+            throw new AuraRuntimeException("Unable to regenerate aura javascript", e);
+        }
+        jsGeneration.incrementAndGet();
+        try {
+            Logger logger = Logger.getLogger(ConfigAdapterImpl.class);
+            logger.info("Regenerating framework javascript");
+            File dest = AuraImplFiles.AuraResourceJavascriptDirectory.asFile();
+            File resourceDest = AuraImplFiles.AuraResourceJavascriptClassDirectory.asFile();
+            jsGroup.regenerate(dest);
+            // now we have to copy the new files to the resource directory
+            logger.info("Copying regenerated files to " + resourceDest);
+            File[] destFiles = dest.listFiles(JS_ONLY);
+            if (destFiles != null && destFiles.length > 0) {
+                resourceDest.mkdirs(); // If we got this far without this directory, just create it.
+                for (File f : destFiles) {
+                    logger.info(f);
+                    copyAtomically(f, new File(resourceDest, f.getName()));
+                    getResourceLoader().refreshCache("aura/javascript/" + f.getName());
                 }
-                lastGenerationHadCompilationErrors = false;
-            } catch (Exception x) {
-                lastGenerationHadCompilationErrors = true;
-                throw new AuraRuntimeException("Unable to regenerate aura javascript", x);
             }
+            regenerationFailure = null;
+        } catch (Exception x) {
+            regenerationFailure = x;
+            throw new AuraRuntimeException("Unable to regenerate aura javascript", x);
+        } finally {
+            jsGeneration.incrementAndGet();
+        }
+    }
+
+    /**
+     * Copy a file by way of a temporary file in the target directory, moved into place.
+     */
+    private static void copyAtomically(File source, File target) throws IOException {
+        Path temp = Files.createTempFile(target.getParentFile().toPath(), target.getName(), ".tmp");
+        try {
+            Files.copy(source.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
         }
     }
 
@@ -434,7 +568,7 @@ public class ConfigAdapterImpl implements ConfigAdapter {
         String ret = null;
         AuraContext context = contextService.getCurrentContext();
         String ua = context != null ? context.getClient().getUserAgent() : null;
-        BrowserInfo b = new BrowserInfo(ua);
+        BrowserInfo b = BrowserInfo.get(ua);
         if (b.isIE7() || b.isIE8()) {
             String nonce = context.getFrameworkUID();
             String contextPath = context.getContextPath();
@@ -482,7 +616,7 @@ public class ConfigAdapterImpl implements ConfigAdapter {
 
     @Override
     public long getAuraJSLastMod() {
-        regenerateAuraJS();
+        checkAuraJS();
         return jsGroup != null ? jsGroup.getLastMod() : getBuildTimestamp();
     }
 
@@ -604,10 +738,10 @@ public class ConfigAdapterImpl implements ConfigAdapter {
 
     @Override
     public final String getAuraFrameworkNonce() {
-        regenerateAuraJS();
+        checkAuraJS();
         try {
             // framework nonce now consists of Aura JS and resources files (CSS and JS) and if locker service is enabled
-            String jsHash = jsGroup.getGroupHash().toString();
+            String jsHash = getAuraJSHash();
             String resourcesHash = getAuraResourcesNonce();
 
             /*
@@ -615,26 +749,41 @@ public class ConfigAdapterImpl implements ConfigAdapter {
              *
              * Be VERY careful here.
              *
-             * because fwUid is set along with jsUid and resourcesUid, there is a race condition
-             * whereby the condition can fail (i.e. both js & resources match), but fwUid is not
-             * yet set. This is very bad, as it causes an empty fwUid, which breaks everyone with
-             * a COOS
+             * fwUid must never be seen without the jsUid and resourcesUid it was made from, or the
+             * condition can pass (i.e. both js & resources match) while fwUid is not yet set. This
+             * is very bad, as it causes an empty fwUid, which breaks everyone with a COOS. So the
+             * three are kept in one immutable object, replaced as a whole.
              */
-            synchronized (this) {
-                if (!jsHash.equals(this.jsUid) || !resourcesHash.equals(this.resourcesUid)) {
-                    this.jsUid = jsHash;
-                    this.resourcesUid = resourcesHash;
-                    this.fwUid = makeHash(this.jsUid, this.resourcesUid);
-                }
+            FrameworkUid current = this.frameworkUid;
+            if (!jsHash.equals(current.jsUid) || !resourcesHash.equals(current.resourcesUid)) {
+                current = new FrameworkUid(jsHash, resourcesHash, makeHash(jsHash, resourcesHash));
+                this.frameworkUid = current;
             }
 
-            return this.fwUid;
+            return current.fwUid;
 
         } catch (IOException e) {
             throw new AuraRuntimeException("Can't read framework files", e);
         }
     }
 
+    /**
+     * Get the hash of the framework javascript in place.
+     *
+     * While a regeneration is in progress, this is the hash from before it started, as the new files are not all in
+     * place yet.
+     */
+    private String getAuraJSHash() throws IOException {
+        long generation = jsGeneration.get();
+        if (generation % 2 == 0) {
+            String jsHash = jsGroup.getGroupHash().toString();
+            if (jsGeneration.get() == generation) {
+                return jsHash;
+            }
+        }
+        return publishedJsHash;
+    }
+
     protected String makeHash(String one, String two) throws IOException {
         StringReader reader = new StringReader(one + two);
         return new Hash(reader).toString();
@@ -30,8 +30,8 @@ import org.auraframework.instance.Action;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.json.JsonBufferReader;
 import org.auraframework.util.json.JsonEncoder;
-import org.auraframework.util.json.JsonReader;
 
 import com.google.common.collect.Lists;
 
@@ -51,7 +51,7 @@ public class MessageJSONFormatAdapter extends JSONFormatAdapter<Message> {
     @SuppressWarnings("unchecked")
     @Override
     public Message read(Reader in) throws IOException, QuickFixException {
-        Map<?, ?> message = (Map<?, ?>) new JsonReader().read(in);
+        Map<?, ?> message = (Map<?, ?>) new JsonBufferReader().read(in);
 
         List<?> actions = (List<?>) message.get("actions");
         List<Action> actionList = Lists.newArrayList();
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.system.DependencyEntry;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A reverse index from descriptors to the dependency entries that include them.
+ *
+ * Every dependency entry that is put in the dependency cache is registered here along with the key it was stored
+ * under. When a source changes, the index gives back the uids (and cache keys) of the entries that depended on it,
+ * so that only those need to be invalidated, rather than the whole cache.
+ *
+ * Entries that fall out of the dependency cache through eviction are not reported to us, so the index prunes them
+ * lazily once it has grown beyond twice the size of the cache.
+ */
+public class DependencyIndex {
+    private static class IndexedEntry {
+        private final Set<DefDescriptor<?>> dependencies;
+        private final Set<String> keys = Sets.newHashSet();
+
+        IndexedEntry(Set<DefDescriptor<?>> dependencies) {
+            this.dependencies = dependencies;
+        }
+    }
+
+    private final Cache<String, DependencyEntry> depsCache;
+    private final int pruneThreshold;
+    private final Map<DefDescriptor<?>, Set<String>> uidsByDescriptor = Maps.newHashMap();
+    private final Map<String, IndexedEntry> entriesByUid = Maps.newHashMap();
+
+    /**
+     * Create an index for a dependency cache.
+     *
+     * @param depsCache the cache that is being indexed, used to find evicted entries when pruning.
+     * @param cacheSize the maximum size of the dependency cache.
+     */
+    public DependencyIndex(Cache<String, DependencyEntry> depsCache, int cacheSize) {
+        this.depsCache = depsCache;
+        this.pruneThreshold = Math.max(cacheSize, 16) * 2;
+    }
+
+    /**
+     * Record a dependency entry that was put in the cache.
+     *
+     * @param key the key under which the entry was cached.
+     * @param de the entry, ignored if it has no uid (i.e. it holds a quick fix).
+     */
+    public synchronized void add(String key, DependencyEntry de) {
+        if (de.uid == null || de.dependencies == null) {
+            return;
+        }
+        IndexedEntry entry = entriesByUid.get(de.uid);
+        if (entry == null) {
+            if (entriesByUid.size() >= pruneThreshold) {
+                prune();
+            }
+            entry = new IndexedEntry(de.dependencies);
+            entriesByUid.put(de.uid, entry);
+            for (DefDescriptor<?> dependency : de.dependencies) {
+                Set<String> uids = uidsByDescriptor.get(dependency);
+                if (uids == null) {
+                    uids = Sets.newHashSet();
+                    uidsByDescriptor.put(dependency, uids);
+                }
+                uids.add(de.uid);
+            }
+        }
+        entry.keys.add(key);
+    }
+
+    /**
+     * Remove all entries that depend on any of a set of descriptors from the index.
+     *
+     * @param descriptors the descriptors that changed.
+     * @return a map from the uid of each removed entry to the dependency cache keys it was stored under.
+     */
+    public synchronized Map<String, Set<String>> removeDependents(Collection<DefDescriptor<?>> descriptors) {
+        Map<String, Set<String>> removed = Maps.newHashMap();
+        for (DefDescriptor<?> descriptor : descriptors) {
+            Set<String> uids = uidsByDescriptor.get(descriptor);
+            if (uids == null) {
+                continue;
+            }
+            for (String uid : Sets.newHashSet(uids)) {
+                IndexedEntry entry = remove(uid);
+                if (entry != null) {
+                    removed.put(uid, entry.keys);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Forget everything, used when the dependency cache is cleared wholesale.
+     */
+    public synchronized void clear() {
+        uidsByDescriptor.clear();
+        entriesByUid.clear();
+    }
+
+    /**
+     * Get the number of dependency entries in the index.
+     */
+    public synchronized int size() {
+        return entriesByUid.size();
+    }
+
+    private IndexedEntry remove(String uid) {
+        IndexedEntry entry = entriesByUid.remove(uid);
+        if (entry != null) {
+            for (DefDescriptor<?> dependency : entry.dependencies) {
+                Set<String> uids = uidsByDescriptor.get(dependency);
+                if (uids != null) {
+                    uids.remove(uid);
+                    if (uids.isEmpty()) {
+                        uidsByDescriptor.remove(dependency);
+                    }
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Drop the entries for which none of the keys are still in the dependency cache.
+     */
+    private void prune() {
+        Set<String> cached = depsCache.getKeySet();
+        Set<String> evicted = Sets.newHashSet();
+        for (Map.Entry<String, IndexedEntry> mapEntry : entriesByUid.entrySet()) {
+            boolean present = false;
+            for (String key : mapEntry.getValue().keys) {
+                if (cached.contains(key)) {
+                    present = true;
+                    break;
+                }
+            }
+            if (!present) {
+                evicted.add(mapEntry.getKey());
+            }
+        }
+        for (String uid : evicted) {
+            remove(uid);
+        }
+    }
+}
@@ -0,0 +1,713 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.auraframework.adapter.LoggingAdapter;
+import org.auraframework.cache.Cache;
+import org.auraframework.impl.AuraImpl;
+import org.auraframework.system.LoggingContext;
+
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A bounded cache with frequency aware admission (W-TinyLFU).
+ *
+ * Values are held strongly in a {@link ConcurrentHashMap}, the eviction policy is kept separately and is only ever
+ * touched while holding the eviction lock:
+ * <ul>
+ * <li>New entries go to a small LRU 'window' (1% of the maximum size).</li>
+ * <li>Entries that fall out of the window become candidates for the main space, which is a segmented LRU split into
+ * 'probation' and 'protected' (80% of the main space).</li>
+ * <li>When the cache is full, a candidate is only admitted if a {@link FrequencySketch} estimates that it has been
+ * used more often than the probation entry that it would replace. This keeps one-off lookups from flushing hot
+ * entries.</li>
+ * </ul>
+ *
+ * Reads never take the lock. They are recorded in a set of striped ring buffers that are drained in bulk under the
+ * lock when one fills up, or on the next write. If a buffer is contended, the read is simply dropped from the policy,
+ * which only makes the access order a little less exact.
+ */
+public class TinyLfuCacheImpl<K, T> implements Cache<K, T> {
+
+    /** A default name string */
+    private static final String UNNAMED = "(unnamed)";
+
+    /** Interval at which to log cache stats in "normal" operation */
+    private static final long ONE_DAY = 1000 * 60 * 60 * 24;
+
+    /** Number of slots in each read buffer, must be a power of two */
+    private static final int READ_BUFFER_SIZE = 32;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    /** Upper bound on the number of read buffer stripes */
+    private static final int MAX_READ_BUFFERS = ceilingPowerOfTwo(4 * Runtime.getRuntime().availableProcessors());
+
+    private enum Queue {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    /**
+     * A cache entry, which is also a link in one of the policy deques.
+     */
+    private static final class Node<K, T> {
+        final K key;
+        final T value;
+
+        /** The deque this node is in, null if it is not (yet or anymore) in the policy. Guarded by the lock. */
+        Queue queue;
+
+        /** Set once the node has been removed from the map. Guarded by the lock. */
+        boolean retired;
+
+        Node<K, T> prev;
+        Node<K, T> next;
+
+        Node(K key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A doubly linked list in access order, the least recently used node is first.
+     */
+    private static final class AccessOrderDeque<K, T> {
+        private Node<K, T> first;
+        private Node<K, T> last;
+        private long size;
+
+        Node<K, T> peekFirst() {
+            return first;
+        }
+
+        Node<K, T> peekLast() {
+            return last;
+        }
+
+        long size() {
+            return size;
+        }
+
+        void addLast(Node<K, T> node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size += 1;
+        }
+
+        void remove(Node<K, T> node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size -= 1;
+        }
+
+        void moveToLast(Node<K, T> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * A bounded, lossy ring buffer of reads waiting to be applied to the policy.
+     *
+     * Any thread may offer, only the lock holder drains.
+     */
+    private static final class ReadBuffer<K, T> {
+        private final AtomicLong writeCounter = new AtomicLong();
+        private final AtomicReferenceArray<Node<K, T>> slots = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private volatile long readCounter;
+
+        /**
+         * Offer a read to the buffer.
+         *
+         * @return true if the buffer is full and should be drained.
+         */
+        boolean offer(Node<K, T> node) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            if (tail - head >= READ_BUFFER_SIZE) {
+                return true;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                slots.lazySet((int) (tail & READ_BUFFER_MASK), node);
+            }
+            return false;
+        }
+
+        void drainTo(TinyLfuCacheImpl<K, T> cache) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & READ_BUFFER_MASK);
+                Node<K, T> node = slots.get(index);
+                if (node == null) {
+                    // the writer has claimed the slot but not yet published to it.
+                    break;
+                }
+                slots.lazySet(index, null);
+                cache.onAccess(node);
+            }
+            readCounter = head;
+        }
+    }
+
+    /**
+     * A value load in progress, so that concurrent misses on the same key share one loader call.
+     */
+    private static final class Load<T> extends FutureTask<T> {
+        private final Thread owner = Thread.currentThread();
+
+        Load(Callable<T> loader) {
+            super(loader);
+        }
+    }
+
+    private final String name;
+    private final long maximumSize;
+    private final long maxWindow;
+    private final long maxProtected;
+    private final boolean recordStats;
+
+    private final ConcurrentHashMap<K, Node<K, T>> data;
+    private final ConcurrentHashMap<K, Load<T>> loads = new ConcurrentHashMap<>();
+    private final ReadBuffer<K, T>[] readBuffers;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AccessOrderDeque<K, T> window = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, T> probation = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, T> protectedSpace = new AccessOrderDeque<>();
+    private final FrequencySketch sketch;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadExceptionCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /** Count of log-worth evictions, to avoid spamming the log. Guarded by the lock. */
+    private int evictions = 0;
+
+    /** Log threshold for next actual emission to logs. Guarded by the lock. */
+    private int nextLogThreshold = 1;
+
+    /** Log the entire stats once a day, regardless of evictions. */
+    private volatile long lastFull = System.currentTimeMillis();
+
+    @SuppressWarnings("unchecked")
+    public TinyLfuCacheImpl(Builder<K, T> builder) {
+        this.name = builder.name == null ? UNNAMED : builder.name;
+        this.maximumSize = Math.max(builder.maximumSize, 1);
+        this.maxWindow = Math.max(1, maximumSize / 100);
+        this.maxProtected = (long) ((maximumSize - maxWindow) * 0.8);
+        this.recordStats = builder.recordStats;
+        this.data = new ConcurrentHashMap<>(builder.initialCapacity, 0.75f, builder.concurrencyLevel);
+        this.sketch = new FrequencySketch(maximumSize);
+
+        int stripes = Math.min(ceilingPowerOfTwo(builder.concurrencyLevel), MAX_READ_BUFFERS);
+        this.readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+    }
+
+    @Override
+    public T getIfPresent(K key) {
+        Node<K, T> node = data.get(key);
+        if (node == null) {
+            if (recordStats) {
+                missCount.increment();
+            }
+            return null;
+        }
+        if (recordStats) {
+            hitCount.increment();
+        }
+        afterRead(node);
+        return node.value;
+    }
+
+    @Override
+    public T get(K key, Callable<T> loader) throws ExecutionException {
+        T value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        Load<T> load = new Load<>(loader);
+        Load<T> existing = loads.putIfAbsent(key, load);
+        if (existing != null) {
+            if (existing.owner == Thread.currentThread()) {
+                throw new IllegalStateException("Recursive load of: " + key);
+            }
+            return waitFor(existing);
+        }
+        try {
+            // Someone may have finished loading between our miss and claiming the load.
+            Node<K, T> node = data.get(key);
+            if (node != null) {
+                return node.value;
+            }
+            long start = System.nanoTime();
+            load.run();
+            try {
+                value = waitFor(load);
+            } catch (ExecutionException | RuntimeException | Error e) {
+                if (recordStats) {
+                    loadExceptionCount.increment();
+                    totalLoadTime.add(System.nanoTime() - start);
+                }
+                throw e;
+            }
+            if (recordStats) {
+                loadSuccessCount.increment();
+                totalLoadTime.add(System.nanoTime() - start);
+            }
+            put(key, value);
+            return value;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    /**
+     * Wait for a load, translating failures the same way that a guava cache would.
+     */
+    private T waitFor(Load<T> load) throws ExecutionException {
+        T value;
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    value = load.get();
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof Error) {
+                throw new ExecutionError((Error) cause);
+            } else if (cause instanceof RuntimeException) {
+                throw new UncheckedExecutionException(cause);
+            }
+            throw ee;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (value == null) {
+            throw new InvalidCacheLoadException("loader returned null for " + name);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, T data) {
+        if (key == null || data == null) {
+            throw new NullPointerException();
+        }
+        Node<K, T> node = new Node<>(key, data);
+        Node<K, T> old = this.data.put(key, node);
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            if (old != null) {
+                retire(old);
+            }
+            // An invalidate may have beaten us to the lock, in which case the node is already gone.
+            if (!node.retired && this.data.get(key) == node) {
+                sketch.increment(key);
+                node.queue = Queue.WINDOW;
+                window.addLast(node);
+                evict();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        Node<K, T> node = data.remove(key);
+        if (node != null) {
+            evictionLock.lock();
+            try {
+                retire(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(Iterable<K> keys) {
+        for (K key : keys) {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            for (Node<K, T> node : data.values()) {
+                if (data.remove(node.key, node)) {
+                    retire(node);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        logIfDayHasPassed();
+    }
+
+    @Override
+    public Set<K> getKeySet() {
+        return Collections.unmodifiableSet(data.keySet());
+    }
+
+    @Override
+    public void invalidatePartial(String keyBeginsWith) {
+        // everything is a match if the match length is zero
+        if (keyBeginsWith == null || keyBeginsWith.length() == 0) {
+            invalidateAll();
+            return;
+        }
+
+        // add beginsWith matches to invalidItems
+        ArrayList<K> invalidItems = new ArrayList<>();
+        for (K key : data.keySet()) {
+            if (key.toString().startsWith(keyBeginsWith)) {
+                invalidItems.add(key);
+            }
+        }
+
+        // invalidate collected items
+        if (!invalidItems.isEmpty()) {
+            invalidate(invalidItems);
+        }
+    }
+
+    @Override
+    public Object getPrivateUnderlyingCache() {
+        return data;
+    }
+
+    @Override
+    public void logCacheStatus(String extraMessage) {
+        LoggingAdapter adapter = AuraImpl.getLoggingAdapter();
+        LoggingContext loggingCtx = adapter.getLoggingContext();
+        CacheStats stats = stats();
+        loggingCtx.logCacheInfo(name,
+                String.format(extraMessage + "hit rate=%.3f", stats.hitRate()),
+                data.size(), stats);
+    }
+
+    /**
+     * Get a snapshot of the statistics for this cache.
+     *
+     * All values are zero unless the cache was built with recordStats.
+     */
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadExceptionCount.sum(),
+                totalLoadTime.sum(), evictionCount.sum());
+    }
+
+    /**
+     * Get the number of entries in the cache.
+     */
+    public long size() {
+        return data.size();
+    }
+
+    /**
+     * Record a read in the read buffer for this thread, draining the buffers if it is full.
+     */
+    private void afterRead(Node<K, T> node) {
+        int stripe = (int) (Thread.currentThread().getId() & (readBuffers.length - 1));
+        if (readBuffers[stripe].offer(node) && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Apply all buffered reads to the policy. Must hold the lock.
+     */
+    private void drainReadBuffers() {
+        for (ReadBuffer<K, T> buffer : readBuffers) {
+            buffer.drainTo(this);
+        }
+    }
+
+    /**
+     * Apply a single read to the policy. Must hold the lock.
+     */
+    private void onAccess(Node<K, T> node) {
+        sketch.increment(node.key);
+        if (node.queue == null) {
+            // retired, or not yet added.
+            return;
+        }
+        switch (node.queue) {
+        case WINDOW:
+            window.moveToLast(node);
+            break;
+        case PROBATION:
+            probation.remove(node);
+            node.queue = Queue.PROTECTED;
+            protectedSpace.addLast(node);
+            while (protectedSpace.size() > maxProtected) {
+                Node<K, T> demoted = protectedSpace.peekFirst();
+                protectedSpace.remove(demoted);
+                demoted.queue = Queue.PROBATION;
+                probation.addLast(demoted);
+            }
+            break;
+        case PROTECTED:
+            protectedSpace.moveToLast(node);
+            break;
+        }
+    }
+
+    /**
+     * Remove a node from the policy. Must hold the lock.
+     */
+    private void retire(Node<K, T> node) {
+        node.retired = true;
+        if (node.queue != null) {
+            dequeFor(node.queue).remove(node);
+            node.queue = null;
+        }
+    }
+
+    private AccessOrderDeque<K, T> dequeFor(Queue queue) {
+        switch (queue) {
+        case WINDOW:
+            return window;
+        case PROBATION:
+            return probation;
+        default:
+            return protectedSpace;
+        }
+    }
+
+    /**
+     * Move window overflow into probation, and evict until we are within the maximum size. Must hold the lock.
+     *
+     * The entry that most recently moved to the probation space (the candidate) competes with the least recently used
+     * probation entry (the victim), and the one with the lower estimated frequency is evicted.
+     */
+    private void evict() {
+        while (window.size() > maxWindow) {
+            Node<K, T> node = window.peekFirst();
+            window.remove(node);
+            node.queue = Queue.PROBATION;
+            probation.addLast(node);
+        }
+        int evicted = 0;
+        while (window.size() + probation.size() + protectedSpace.size() > maximumSize) {
+            Node<K, T> victim = probation.peekFirst();
+            Node<K, T> candidate = probation.peekLast();
+            Node<K, T> evict;
+
+            if (victim == null) {
+                evict = protectedSpace.peekFirst();
+                if (evict == null) {
+                    evict = window.peekFirst();
+                }
+            } else if (victim == candidate) {
+                evict = victim;
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict = victim;
+            } else {
+                evict = candidate;
+            }
+            if (evict == null) {
+                break;
+            }
+            retire(evict);
+            data.remove(evict.key, evict);
+            evicted += 1;
+        }
+        if (evicted > 0) {
+            if (recordStats) {
+                evictionCount.add(evicted);
+            }
+            onSizeEviction(evicted);
+        }
+    }
+
+    /**
+     * Log about size pressure occasionally, more often in dev envs (where numbers are "small") and less often in
+     * production (where they are "large"). Must hold the lock.
+     */
+    private void onSizeEviction(int count) {
+        boolean emit = System.currentTimeMillis() >= lastFull + ONE_DAY;
+        evictions += count;
+        while (evictions >= nextLogThreshold) {
+            emit = true;
+            // We want to log every 10 until 100, every 100 until 1000, every 1000 thereafter
+            if (nextLogThreshold == 1) {
+                nextLogThreshold = 10;
+            } else if (nextLogThreshold < 100) {
+                nextLogThreshold += 10;
+            } else if (nextLogThreshold < 1000) {
+                nextLogThreshold += 100;
+            } else {
+                nextLogThreshold += 1000;
+            }
+        }
+        if (emit) {
+            LoggingAdapter adapter = AuraImpl.getLoggingAdapter();
+            if (adapter != null && adapter.isEstablished()) {
+                CacheStats stats = stats();
+                adapter.getLoggingContext().logCacheInfo(name,
+                        String.format("evicted %d entries for size pressure, hit rate=%.3f",
+                                evictions, stats.hitRate()),
+                        data.size(), stats);
+                lastFull = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void logIfDayHasPassed() {
+        if (System.currentTimeMillis() < lastFull + ONE_DAY) {
+            return;
+        }
+        LoggingAdapter adapter = AuraImpl.getLoggingAdapter();
+        if (adapter != null && adapter.isEstablished()) {
+            CacheStats stats = stats();
+            adapter.getLoggingContext().logCacheInfo(name,
+                    String.format("cache has little size pressure, hit rate=%.3f", stats.hitRate()),
+                    data.size(), stats);
+            lastFull = System.currentTimeMillis();
+        }
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        if (x <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit(x - 1) << 1;
+    }
+
+    public static class Builder<K, T> implements
+    org.auraframework.builder.CacheBuilder<K, T> {
+        // builder defaults
+        int initialCapacity = 128;
+        int concurrencyLevel = 4;
+        long maximumSize = 1024;
+        boolean recordStats = false;
+        String name;
+
+        public Builder() {
+
+        }
+
+        @Override
+        public Builder<K, T> setInitialSize(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Ignored, there is no secondary storage.
+         */
+        @Override
+        public Builder<K, T> setUseSecondaryStorage(boolean useSecondaryStorage) {
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setRecordStats(boolean recordStats) {
+            this.recordStats = recordStats;
+            return this;
+        }
+
+        /**
+         * Ignored, values are always held strongly and bounded by size alone.
+         */
+        @Override
+        public Builder<K, T> setSoftValues(boolean softValues) {
+            return this;
+        }
+
+        /**
+         * Used to size the map and the number of read buffer stripes.
+         */
+        @Override
+        public Builder<K, T> setConcurrencyLevel(int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        @Override
+        public TinyLfuCacheImpl<K, T> build() {
+            return new TinyLfuCacheImpl<>(this);
+        }
+    }
+}
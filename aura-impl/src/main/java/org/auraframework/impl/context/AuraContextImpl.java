@@ -50,6 +50,7 @@ import org.auraframework.instance.InstanceStack;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.Client;
+import org.auraframework.system.LoadedSetCache;
 import org.auraframework.system.LoggingContext.KeyValueLogger;
 import org.auraframework.system.MasterDefRegistry;
 import org.auraframework.test.TestContext;
@@ -89,8 +90,6 @@ public class AuraContextImpl implements AuraContext {
         private Serializer() {
         }
 
-        public static final String DELETED = "deleted";
-
         private void writeDefs(Json json, String name, List<Definition> writable) throws IOException {
             if (writable.size() > 0) {
                 Collections.sort(writable, DEFSORTER);
@@ -98,6 +97,72 @@ public class AuraContextImpl implements AuraContext {
             }
         }
 
+        /**
+         * Write the whole loaded set.
+         *
+         * loaded = server + (client - server) @ DELETED.
+         */
+        private void writeLoaded(Json json, Map<DefDescriptor<?>, String> clientLoaded,
+                Map<DefDescriptor<?>, String> serverLoaded) throws IOException {
+            // Step 1: Start with client defintion set
+            Set<DefDescriptor<?>> currentLoaded = new HashSet<>();
+            currentLoaded.addAll(clientLoaded.keySet());
+
+            // Step 2: serialize the server set and subtract the server set from the client set.
+            Map<String, String> loadedStrings = new HashMap<>();
+            for (Map.Entry<DefDescriptor<?>, String> entry : serverLoaded.entrySet()) {
+                loadedStrings.put(LoadedSetCache.getKey(entry.getKey()), entry.getValue());
+                currentLoaded.remove(entry.getKey());
+            }
+
+            // Step 3: serialize remaining not found client definitions, now unused.
+            for (DefDescriptor<?> deleted : currentLoaded) {
+                loadedStrings.put(LoadedSetCache.getKey(deleted), LoadedSetCache.DELETED);
+            }
+            if (loadedStrings.size() > 0) {
+                json.writeMapKey("loaded");
+                json.writeMap(loadedStrings);
+            }
+        }
+
+        /**
+         * Write only the changes to a loaded set that the client has by token, along with the token of the new set.
+         *
+         * When nothing changed, as is usual, the client token is sent back as is, without building any strings.
+         */
+        private void writeLoadedChanges(Json json, String clientHash, Map<DefDescriptor<?>, String> clientLoaded,
+                Map<DefDescriptor<?>, String> serverLoaded) throws IOException {
+            Map<String, String> changes = null;
+            for (Map.Entry<DefDescriptor<?>, String> entry : serverLoaded.entrySet()) {
+                String uid = entry.getValue();
+                String clientUid = clientLoaded.get(entry.getKey());
+                if (uid == null ? clientUid != null || !clientLoaded.containsKey(entry.getKey())
+                        : !uid.equals(clientUid)) {
+                    if (changes == null) {
+                        changes = new HashMap<>();
+                    }
+                    changes.put(LoadedSetCache.getKey(entry.getKey()), uid);
+                }
+            }
+            for (DefDescriptor<?> descriptor : clientLoaded.keySet()) {
+                if (!serverLoaded.containsKey(descriptor)) {
+                    if (changes == null) {
+                        changes = new HashMap<>();
+                    }
+                    changes.put(LoadedSetCache.getKey(descriptor), LoadedSetCache.DELETED);
+                }
+            }
+            if (changes == null && !clientHash.isEmpty()) {
+                json.writeMapEntry("loadedHash", clientHash);
+            } else {
+                if (changes != null) {
+                    json.writeMapKey("loaded");
+                    json.writeMap(changes);
+                }
+                json.writeMapEntry("loadedHash", LoadedSetCache.getInstance().put(serverLoaded));
+            }
+        }
+
 		@Override
         public void serialize(Json json, AuraContext ctx) throws IOException {
         	
@@ -191,29 +256,14 @@ public class AuraContextImpl implements AuraContext {
 				// If we fail, we have nothing to do.
 			}
 
-			// Create the new loaded array.
-			// loaded = server + (client - server) @ DELETED.
-            
-			// Step 1: Start with client defintion set
-            Set<DefDescriptor<?>> currentLoaded = new HashSet<>();
-            currentLoaded.addAll(ctx.getClientLoaded().keySet());
-
-            // Step 2: serialize the server set and subtract the server set from the client set.
-			Map<String, String> loadedStrings = new HashMap<>();
-            for (Map.Entry<DefDescriptor<?>, String> entry : ctx.getLoaded().entrySet()) {
-                loadedStrings.put(String.format("%s@%s", entry.getKey().getDefType().toString(),
-                        entry.getKey().getQualifiedName()), entry.getValue());
-                currentLoaded.remove(entry.getKey());
-            }
-
-            // Step 3: serialize remaining not found client definitions, now unused.
-            for (DefDescriptor<?> deleted : currentLoaded) {
-                loadedStrings.put(String.format("%s@%s", deleted.getDefType().toString(),
-                        deleted.getQualifiedName()), DELETED);
-            }
-            if (loadedStrings.size() > 0) {
-                json.writeMapKey("loaded");
-                json.writeMap(loadedStrings);
+            String clientHash = ctx.getClientLoadedHash();
+            if (clientHash != null && LoadedSetCache.isEnabled()) {
+                writeLoadedChanges(json, clientHash, ctx.getClientLoaded(), ctx.getLoaded());
+            } else {
+                writeLoaded(json, ctx.getClientLoaded(), ctx.getLoaded());
+                if (LoadedSetCache.isEnabled()) {
+                    json.writeMapEntry("loadedHash", LoadedSetCache.getInstance().put(ctx.getLoaded()));
+                }
             }
 
             ctx.serializeAsPart(json);
@@ -321,6 +371,7 @@ public class AuraContextImpl implements AuraContext {
 
     private final Map<DefDescriptor<?>, String> loaded = Maps.newLinkedHashMap();
     private final Map<DefDescriptor<?>, String> clientLoaded = Maps.newLinkedHashMap();
+    private String clientLoadedHash;
 
     private String contextPath = "";
 
@@ -613,6 +664,16 @@ public class AuraContextImpl implements AuraContext {
         this.clientLoaded.putAll(clientLoaded);
     }
 
+    @Override
+    public void setClientLoadedHash(String hash) {
+        this.clientLoadedHash = hash;
+    }
+
+    @Override
+    public String getClientLoadedHash() {
+        return clientLoadedHash;
+    }
+
     @Override
     public void addLoaded(DefDescriptor<?> descriptor, String uid) {
         loaded.put(descriptor, uid);
@@ -880,8 +941,7 @@ public class AuraContextImpl implements AuraContext {
                 Map<String, String> loadedStrings = Maps.newHashMap();
                 for (Map.Entry<DefDescriptor<?>, String> entry : getLoaded().entrySet()) {
                     if (style == EncodingStyle.Full || entry.getKey().equals(appDesc)) {
-                        loadedStrings.put(String.format("%s@%s", entry.getKey().getDefType().toString(),
-                                entry.getKey().getQualifiedName()), entry.getValue());
+                        loadedStrings.put(LoadedSetCache.getKey(entry.getKey()), entry.getValue());
                     }
                 }
                 
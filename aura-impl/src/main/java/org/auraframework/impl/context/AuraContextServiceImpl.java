@@ -112,6 +112,17 @@ public class AuraContextServiceImpl implements ContextService {
         }
     }
 
+    @Override
+    public AuraContext forkContext() {
+        assertEstablished();
+        return AuraImpl.getContextAdapter().buildForkedContext();
+    }
+
+    @Override
+    public void startForkedContext(AuraContext fork) {
+        AuraImpl.getContextAdapter().establish(fork);
+    }
+
     @Override
     public AuraContext pushSystemContext() {
         assertEstablished();
@@ -15,6 +15,7 @@
  */
 package org.auraframework.impl.context;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -53,6 +54,7 @@ import org.auraframework.impl.system.CacheableDefFactoryImpl;
 import org.auraframework.impl.system.CachingDefRegistryImpl;
 import org.auraframework.impl.system.NonCachingDefRegistryImpl;
 import org.auraframework.impl.system.StaticDefRegistryImpl;
+import org.auraframework.impl.system.StaticRegistryCodec;
 import org.auraframework.impl.type.AuraStaticTypeDefRegistry;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Mode;
@@ -175,6 +177,18 @@ public class AuraRegistryProviderImpl implements RegistryAdapter, SourceListener
         } else {
             File compSource = location.getComponentSourceDir();
             if (compSource != null && compSource.canRead()) {
+                File registries = new File(compSource, ".registries");
+                if (registries.isFile()) {
+                    try {
+                        DefRegistry<?>[] mapped = StaticRegistryCodec.read(registries);
+                        if (mapped != null) {
+                            return mapped;
+                        }
+                    } catch (Exception e) {
+                        _log.error("Unable to map registries file", e);
+                        return null;
+                    }
+                }
                 ris = getFileInputStream(compSource + "/.registries");
             }
         }
@@ -182,6 +196,11 @@ public class AuraRegistryProviderImpl implements RegistryAdapter, SourceListener
             ObjectInputStream ois = null;
 
             try {
+                ris = new BufferedInputStream(ris);
+                if (StaticRegistryCodec.isEncoded(ris)) {
+                    return StaticRegistryCodec.read(ris);
+                }
+                // An older file, written with plain java serialization.
                 ois = new ObjectInputStream(ris);
                 Object o = ois.readObject();
                 if (o instanceof List) {
@@ -28,6 +28,11 @@ import com.google.common.collect.Maps;
 
 /**
  * LoggingContext impl.
+ *
+ * Timers and counters with an id in {@link MetricIds} (all of those used by the framework) are kept in the arrays of a
+ * {@link RequestMetrics}, so that starting, stopping and counting is an array access. Anything else, such as the per
+ * action timers, is kept by name. Finished requests and actions are rolled up into the process wide histograms of
+ * {@link RequestMetricsRegistry}.
  */
 @ServiceComponent
 public class LoggingContextImpl implements LoggingContext {
@@ -35,16 +40,19 @@ public class LoggingContextImpl implements LoggingContext {
     protected static final Logger logger = Logger.getLogger("LoggingContextImpl");
 
     private final Map<String, Object> loggingValues = Maps.newHashMap();
+    private final RequestMetrics metrics = new RequestMetrics();
     private final Map<String, Timer> timers = Maps.newHashMap();
     private final Map<String, Counter> counters = Maps.newHashMap();
     private final Map<String, Object> values = Maps.newHashMap();
     
     private final Map<String, Map<String, Long>> actionStats = Maps.newHashMap();
+    private final Map<String, RequestMetrics.Marks> actionMarks = Maps.newHashMap();
     
     @Override
     public void startAction(String actionName) {
         Map<String, Long> actionStatMap = Maps.newHashMap();
         actionStats.put(actionName, actionStatMap);
+        actionMarks.put(actionName, metrics.mark());
         for (Map.Entry<String, Timer> timerEntry : timers.entrySet()) {
             Timer timer = timerEntry.getValue();
             timer.mark(actionName);
@@ -66,12 +74,33 @@ public class LoggingContextImpl implements LoggingContext {
     
     @Override
     public void stopAction(String actionName) {
+        stopAction(actionName, null);
+    }
+
+    @Override
+    public void stopAction(String actionName, String descriptorName) {
         stopActionTimer(actionName);
         Map<String, Long> actionStatsMap = actionStats.get(actionName);
+        RequestMetrics.Marks marks = actionMarks.remove(actionName);
         if (actionStatsMap != null) {
             Timer actionTimer = timers.get(LoggingService.TIMER_ACTION + actionName);
             if (actionTimer != null) {
                 actionStatsMap.put(LoggingService.TIMER_ACTION, actionTimer.getTime());
+                if (descriptorName != null) {
+                    recordAction(descriptorName, actionTimer.getNanos());
+                }
+            }
+            if (marks != null) {
+                for (int id = 0; id < metrics.size(); id++) {
+                    long timeSinceMark = metrics.getTimeSince(marks, id);
+                    if (timeSinceMark > 0L) {
+                        actionStatsMap.put(MetricIds.getName(id), timeSinceMark);
+                    }
+                    long countSinceMark = metrics.getCountSince(marks, id);
+                    if (countSinceMark > 0L) {
+                        actionStatsMap.put(MetricIds.getName(id), countSinceMark);
+                    }
+                }
             }
             for (Map.Entry<String, Timer> timerEntry : timers.entrySet()) {
                 Long timeSinceMark = timerEntry.getValue().getTimeSince(actionName);
@@ -92,8 +121,25 @@ public class LoggingContextImpl implements LoggingContext {
         stopTimer(LoggingService.TIMER_ACTION + actionName);
     }
 
+    /**
+     * Record an action's time against its descriptor.
+     *
+     * This is not keyed by the action name, which carries the parameters, as that would give a histogram per
+     * parameter value.
+     */
+    private void recordAction(String descriptorName, long nanos) {
+        if (nanos >= 0L) {
+            RequestMetricsRegistry.getInstance().recordAction(descriptorName, nanos);
+        }
+    }
+
     @Override
     public void startTimer(String name) {
+        int id = MetricIds.get(name);
+        if (id != MetricIds.NONE) {
+            metrics.startTimer(id);
+            return;
+        }
         Timer t = timers.get(name);
         if (t == null) {
             t = new Timer(name);
@@ -104,6 +150,11 @@ public class LoggingContextImpl implements LoggingContext {
 
     @Override
     public void stopTimer(String name) {
+        int id = MetricIds.find(name);
+        if (id != MetricIds.NONE) {
+            metrics.stopTimer(id);
+            return;
+        }
         Timer t = timers.get(name);
         if (t != null) {
             t.stop();
@@ -112,6 +163,10 @@ public class LoggingContextImpl implements LoggingContext {
 
     @Override
     public long getTime(String name) {
+        int id = MetricIds.find(name);
+        if (id != MetricIds.NONE) {
+            return metrics.getTime(id);
+        }
         Timer t = timers.get(name);
         if (t != null) {
             return t.getTime();
@@ -121,6 +176,11 @@ public class LoggingContextImpl implements LoggingContext {
 
     @Override
     public void resetTimer(String name) {
+        int id = MetricIds.find(name);
+        if (id != MetricIds.NONE) {
+            metrics.resetTimer(id);
+            return;
+        }
         Timer t = timers.get(name);
         if (t != null) {
             t.reset();
@@ -129,6 +189,10 @@ public class LoggingContextImpl implements LoggingContext {
 
     @Override
     public long getNum(String key) {
+        int id = MetricIds.find(key);
+        if (id != MetricIds.NONE) {
+            return metrics.getNum(id);
+        }
         Counter result = counters.get(key);
         if (result == null) {
             return -1;
@@ -143,6 +207,11 @@ public class LoggingContextImpl implements LoggingContext {
 
     @Override
     public void incrementNumBy(String key, long num) {
+        int id = MetricIds.get(key);
+        if (id != MetricIds.NONE) {
+            metrics.incrementNum(id, num);
+            return;
+        }
         Counter origNum = this.counters.get(key);
         if (origNum == null) {
             counters.put(key, new Counter(num));
@@ -153,6 +222,11 @@ public class LoggingContextImpl implements LoggingContext {
 
     @Override
     public void setNum(String key, long num) {
+        int id = MetricIds.get(key);
+        if (id != MetricIds.NONE) {
+            metrics.setNum(id, num);
+            return;
+        }
         Counter counter = counters.get(key);
         if (counter == null) {
             counters.put(key, new Counter(num));
@@ -176,6 +250,8 @@ public class LoggingContextImpl implements LoggingContext {
      */
     @Override
     public void logRequestValues() {
+        RequestMetricsRegistry.getInstance().recordRequest(metrics);
+        putMetrics(loggingValues);
         for (Map.Entry<String, Timer> entry : timers.entrySet()) {
             loggingValues.put(entry.getKey(), entry.getValue().getTime());
         }
@@ -189,6 +265,7 @@ public class LoggingContextImpl implements LoggingContext {
     
     protected Map<String, Object> getRequestValues () {
         Map<String, Object> requestLoggingValues = Maps.newHashMap();
+        putMetrics(requestLoggingValues);
         for (Map.Entry<String, Timer> entry : timers.entrySet()) {
             requestLoggingValues.put(entry.getKey(), entry.getValue().getTime());
         }
@@ -199,6 +276,20 @@ public class LoggingContextImpl implements LoggingContext {
         return requestLoggingValues;
     }
 
+    /**
+     * Put the times and counts kept in the arrays into a map, by name.
+     */
+    private void putMetrics(Map<String, Object> valueMap) {
+        for (int id = 0; id < metrics.size(); id++) {
+            if (metrics.hasTimer(id)) {
+                valueMap.put(MetricIds.getName(id), metrics.getTime(id));
+            }
+            if (metrics.hasCounter(id)) {
+                valueMap.put(MetricIds.getName(id), metrics.getNum(id));
+            }
+        }
+    }
+
     @Override
     public KeyValueLogger getKeyValueLogger(StringBuffer log) {
         return new KVLogger(log);
@@ -342,6 +433,13 @@ public class LoggingContextImpl implements LoggingContext {
             return -1L;
         }
 
+        /**
+         * @return The accumulated duration in ns, -1 if none.
+         */
+        long getNanos() {
+            return totalTime;
+        }
+
         /**
          * @return The accumulated duration in ms.
          */
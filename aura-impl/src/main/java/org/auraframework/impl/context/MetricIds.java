@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.context;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.auraframework.service.LoggingService;
+
+/**
+ * The process wide ids of timer and counter names, so that a request can keep its timers and counters in arrays.
+ *
+ * The names used by the framework are registered up front, others are registered the first time they are used, up to
+ * a limit. Per action timers (those starting with {@link LoggingService#TIMER_ACTION}), and any name past the limit,
+ * get no id, and are kept by name instead.
+ */
+public final class MetricIds {
+    /** The most names that get an id */
+    static final int MAX_IDS = 512;
+
+    /** The id of a name that has none */
+    public static final int NONE = -1;
+
+    private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+
+    public static final int DESERIALIZATION = register(LoggingService.TIMER_DESERIALIZATION);
+    public static final int AURA = register(LoggingService.TIMER_AURA);
+    public static final int TOTAL = register(LoggingService.TIMER_TOTAL);
+    public static final int AURA_RUN = register(LoggingService.TIMER_AURA_RUN);
+    public static final int SERIALIZATION = register(LoggingService.TIMER_SERIALIZATION);
+    public static final int SERIALIZATION_AURA = register(LoggingService.TIMER_SERIALIZATION_AURA);
+    public static final int COMPONENT_CREATION = register(LoggingService.TIMER_COMPONENT_CREATION);
+    public static final int DEF_DESCRIPTOR_CREATION = register(LoggingService.TIMER_DEF_DESCRIPTOR_CREATION);
+    public static final int DEFINITION_CREATION = register(LoggingService.TIMER_DEFINITION_CREATION);
+    public static final int JAVA = register("java");
+    public static final int CMP_COUNT = register(LoggingService.CMP_COUNT);
+    public static final int DEF_COUNT = register(LoggingService.DEF_COUNT);
+    public static final int DEF_VISIT_COUNT = register(LoggingService.DEF_VISIT_COUNT);
+    public static final int DEF_DESCRIPTOR_COUNT = register(LoggingService.DEF_DESCRIPTOR_COUNT);
+    public static final int JAVA_CALL_COUNT = register("JavaCallCount");
+
+    private MetricIds() {
+    }
+
+    /**
+     * Get the id for a name, registering it if need be.
+     *
+     * @param name the timer or counter name.
+     * @return the id, or {@link #NONE} if the name does not get one.
+     */
+    public static int get(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (name.startsWith(LoggingService.TIMER_ACTION)) {
+            return NONE;
+        }
+        return register(name);
+    }
+
+    /**
+     * Get the id for a name, without registering it.
+     *
+     * @return the id, or {@link #NONE} if the name has none.
+     */
+    public static int find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : NONE;
+    }
+
+    private static synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        String[] current = names;
+        if (current.length >= MAX_IDS) {
+            return NONE;
+        }
+        String[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = name;
+        names = grown;
+        ids.put(name, current.length);
+        return current.length;
+    }
+
+    /**
+     * @return the name for an id.
+     */
+    public static String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of ids given out so far.
+     */
+    public static int size() {
+        return names.length;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.context;
+
+import java.util.Arrays;
+
+/**
+ * The timers and counters of one request, held in primitive arrays indexed by {@link MetricIds}.
+ *
+ * Timers behave just as {@link LoggingContextImpl.Timer} does: they nest, accumulate across restarts, and report
+ * milliseconds. Starting, stopping and counting do not allocate. Not thread safe.
+ */
+final class RequestMetrics {
+    private static final long NO_MARK = Long.MIN_VALUE;
+
+    /** When each running timer started, in nanoseconds, -1 if it is not running */
+    private long[] startTime;
+    /** The time accumulated by each timer, in nanoseconds, -1 if none */
+    private long[] totalTime;
+    private int[] startCount;
+    private boolean[] timerExists;
+    private long[] counts;
+    private boolean[] counterExists;
+
+    /**
+     * Where the timers and counters stood when an action started.
+     */
+    static final class Marks {
+        private final long[] timers;
+        private final long[] counts;
+
+        private Marks(long[] timers, long[] counts) {
+            this.timers = timers;
+            this.counts = counts;
+        }
+    }
+
+    RequestMetrics() {
+        allocate(Math.max(MetricIds.size(), 32));
+    }
+
+    private void allocate(int size) {
+        startTime = grow(startTime, size, -1L);
+        totalTime = grow(totalTime, size, -1L);
+        startCount = startCount == null ? new int[size] : Arrays.copyOf(startCount, size);
+        timerExists = timerExists == null ? new boolean[size] : Arrays.copyOf(timerExists, size);
+        counts = counts == null ? new long[size] : Arrays.copyOf(counts, size);
+        counterExists = counterExists == null ? new boolean[size] : Arrays.copyOf(counterExists, size);
+    }
+
+    private static long[] grow(long[] array, int size, long fill) {
+        int from = array == null ? 0 : array.length;
+        long[] grown = array == null ? new long[size] : Arrays.copyOf(array, size);
+        Arrays.fill(grown, from, size, fill);
+        return grown;
+    }
+
+    private void ensure(int id) {
+        if (id >= counts.length) {
+            allocate(Math.max(id + 1, Math.min(counts.length * 2, MetricIds.MAX_IDS)));
+        }
+    }
+
+    /**
+     * @return the number of ids that may have values.
+     */
+    int size() {
+        return counts.length;
+    }
+
+    void startTimer(int id) {
+        ensure(id);
+        timerExists[id] = true;
+        startCount[id]++;
+        if (startTime[id] < 0L) {
+            startTime[id] = System.nanoTime();
+        }
+    }
+
+    void stopTimer(int id) {
+        if (id >= counts.length || !timerExists[id]) {
+            return;
+        }
+        startCount[id]--;
+        if (startCount[id] == 0 && startTime[id] >= 0L) {
+            totalTime[id] = (totalTime[id] > 0L ? totalTime[id] : 0L) + System.nanoTime() - startTime[id];
+            startTime[id] = -1L;
+        }
+    }
+
+    boolean hasTimer(int id) {
+        return id < counts.length && timerExists[id];
+    }
+
+    /**
+     * @return the accumulated time in ms, -1 if there is none.
+     */
+    long getTime(int id) {
+        if (!hasTimer(id)) {
+            return -1L;
+        }
+        long total = totalTime[id];
+        return total > 0L ? total / 1000000L : total;
+    }
+
+    /**
+     * @return the accumulated time in nanoseconds, -1 if there is none.
+     */
+    long getNanos(int id) {
+        return hasTimer(id) ? totalTime[id] : -1L;
+    }
+
+    void resetTimer(int id) {
+        if (hasTimer(id)) {
+            startTime[id] = -1L;
+            totalTime[id] = -1L;
+        }
+    }
+
+    boolean hasCounter(int id) {
+        return id < counts.length && counterExists[id];
+    }
+
+    /**
+     * @return the count, -1 if there is none.
+     */
+    long getNum(int id) {
+        return hasCounter(id) ? counts[id] : -1L;
+    }
+
+    void incrementNum(int id, long num) {
+        ensure(id);
+        if (counterExists[id]) {
+            counts[id] += num;
+        } else {
+            counterExists[id] = true;
+            counts[id] = num;
+        }
+    }
+
+    void setNum(int id, long num) {
+        ensure(id);
+        counterExists[id] = true;
+        counts[id] = num;
+    }
+
+    /**
+     * The time so far, including any running time, in nanoseconds, or -1 if the timer has never been started.
+     */
+    private long elapsed(int id) {
+        long total = totalTime[id];
+        long start = startTime[id];
+        if (total > 0L || start > 0L) {
+            return (total > 0L ? total : 0L) + (start > 0L ? System.nanoTime() - start : 0L);
+        }
+        return -1L;
+    }
+
+    /**
+     * Mark where the existing timers and counters stand.
+     */
+    Marks mark() {
+        long[] timerMarks = new long[counts.length];
+        long[] countMarks = new long[counts.length];
+        for (int id = 0; id < counts.length; id++) {
+            timerMarks[id] = timerExists[id] ? Math.max(elapsed(id), 0L) : NO_MARK;
+            countMarks[id] = counterExists[id] ? counts[id] : NO_MARK;
+        }
+        return new Marks(timerMarks, countMarks);
+    }
+
+    /**
+     * @return the ms a timer has run since the mark, or -1 if it had no mark or has never been started.
+     */
+    long getTimeSince(Marks marks, int id) {
+        if (!hasTimer(id) || id >= marks.timers.length || marks.timers[id] == NO_MARK) {
+            return -1L;
+        }
+        long duration = elapsed(id);
+        return duration < 0L ? -1L : (duration - marks.timers[id]) / 1000000L;
+    }
+
+    /**
+     * @return the amount a counter has gone up since the mark, 0 if it had no mark.
+     */
+    long getCountSince(Marks marks, int id) {
+        if (!hasCounter(id) || id >= marks.counts.length || marks.counts[id] == NO_MARK) {
+            return 0L;
+        }
+        return counts[id] - marks.counts[id];
+    }
+}
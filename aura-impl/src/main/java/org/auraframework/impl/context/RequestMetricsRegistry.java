@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.context;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+import org.auraframework.util.LatencyHistogram;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+/**
+ * Process wide latency histograms, rolled up from each request's timers and from each action.
+ *
+ * There is one histogram for each named timer, and one for each action descriptor, up to a limit. They are exposed
+ * over JMX as org.auraframework:type=RequestMetrics.
+ */
+public final class RequestMetricsRegistry implements RequestMetricsRegistryMBean {
+    private static final Logger logger = Logger.getLogger(RequestMetricsRegistry.class);
+
+    public static final String OBJECT_NAME = "org.auraframework:type=RequestMetrics";
+
+    /** The most action descriptors that get a histogram */
+    private static final int MAX_ACTIONS = Integer.getInteger("aura.metrics.maxActions", 2048);
+
+    private static final RequestMetricsRegistry INSTANCE = new RequestMetricsRegistry();
+
+    static {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (Exception e) {
+            // Not fatal, the histograms are still kept.
+            logger.warn("Unable to register " + OBJECT_NAME, e);
+        }
+    }
+
+    private final AtomicReferenceArray<LatencyHistogram> timers = new AtomicReferenceArray<>(MetricIds.MAX_IDS);
+    private final ConcurrentMap<String, LatencyHistogram> actions = new ConcurrentHashMap<>();
+
+    private RequestMetricsRegistry() {
+    }
+
+    public static RequestMetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private LatencyHistogram getTimerHistogram(int id) {
+        LatencyHistogram histogram = timers.get(id);
+        if (histogram == null) {
+            timers.compareAndSet(id, null, new LatencyHistogram());
+            histogram = timers.get(id);
+        }
+        return histogram;
+    }
+
+    /**
+     * Record the timers of a finished request.
+     */
+    void recordRequest(RequestMetrics metrics) {
+        int size = Math.min(metrics.size(), MetricIds.size());
+        for (int id = 0; id < size; id++) {
+            long nanos = metrics.getNanos(id);
+            if (nanos >= 0L) {
+                getTimerHistogram(id).record(nanos);
+            }
+        }
+    }
+
+    /**
+     * Record the time taken by an action.
+     *
+     * @param descriptor the qualified name of the action.
+     * @param nanos the time taken.
+     */
+    public void recordAction(String descriptor, long nanos) {
+        LatencyHistogram histogram = actions.get(descriptor);
+        if (histogram == null) {
+            if (actions.size() >= MAX_ACTIONS) {
+                return;
+            }
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = actions.putIfAbsent(descriptor, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * @return the histogram for a timer, or null if it has no values.
+     */
+    public LatencyHistogram getTimer(String name) {
+        int id = MetricIds.find(name);
+        return id == MetricIds.NONE ? null : timers.get(id);
+    }
+
+    /**
+     * @return the histogram for an action, or null if it has no values.
+     */
+    public LatencyHistogram getAction(String descriptor) {
+        return actions.get(descriptor);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static String summarize(String name, LatencyHistogram histogram) {
+        return String.format("%s count=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f max=%.3f", name,
+                histogram.getCount(), toMillis(histogram.getMean()), toMillis(histogram.getPercentile(50)),
+                toMillis(histogram.getPercentile(90)), toMillis(histogram.getPercentile(99)),
+                toMillis(histogram.getMax()));
+    }
+
+    @Override
+    public String[] getTimerSummary() {
+        List<String> lines = Lists.newArrayList();
+        int size = MetricIds.size();
+        for (int id = 0; id < size; id++) {
+            LatencyHistogram histogram = timers.get(id);
+            if (histogram != null && histogram.getCount() > 0) {
+                lines.add(summarize(MetricIds.getName(id), histogram));
+            }
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public String[] getActionSummary() {
+        List<String> lines = Lists.newArrayList();
+        for (String descriptor : Ordering.natural().sortedCopy(actions.keySet())) {
+            LatencyHistogram histogram = actions.get(descriptor);
+            if (histogram != null && histogram.getCount() > 0) {
+                lines.add(summarize(descriptor, histogram));
+            }
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public double getTimerPercentile(String name, double percentile) {
+        LatencyHistogram histogram = getTimer(name);
+        return histogram == null ? 0 : toMillis(histogram.getPercentile(percentile));
+    }
+
+    @Override
+    public double getActionPercentile(String descriptor, double percentile) {
+        LatencyHistogram histogram = getAction(descriptor);
+        return histogram == null ? 0 : toMillis(histogram.getPercentile(percentile));
+    }
+
+    /**
+     * @return the action histograms, by descriptor. This is a live view.
+     */
+    public Map<String, LatencyHistogram> getActions() {
+        return actions;
+    }
+
+    @Override
+    public void reset() {
+        for (int id = 0; id < timers.length(); id++) {
+            LatencyHistogram histogram = timers.get(id);
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+        actions.clear();
+    }
+}
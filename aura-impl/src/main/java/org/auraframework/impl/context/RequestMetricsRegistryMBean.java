@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.context;
+
+/**
+ * The JMX view of {@link RequestMetricsRegistry}. Times are in milliseconds.
+ */
+public interface RequestMetricsRegistryMBean {
+
+    /**
+     * @return one line for each request timer: name, count, mean, p50, p90, p99 and max.
+     */
+    String[] getTimerSummary();
+
+    /**
+     * @return one line for each action descriptor: name, count, mean, p50, p90, p99 and max.
+     */
+    String[] getActionSummary();
+
+    /**
+     * @return the given percentile of a request timer, 0 if it has no values.
+     */
+    double getTimerPercentile(String name, double percentile);
+
+    /**
+     * @return the given percentile of an action, 0 if it has no values.
+     */
+    double getActionPercentile(String descriptor, double percentile);
+
+    /**
+     * Clear all the histograms.
+     */
+    void reset();
+}
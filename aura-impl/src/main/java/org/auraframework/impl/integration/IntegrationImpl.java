@@ -64,7 +64,7 @@ public class IntegrationImpl implements Integration {
 
     public IntegrationImpl(String contextPath, Mode mode, boolean initializeAura, String userAgent,
                            String application) throws QuickFixException {
-        this.client = userAgent != null ? new Client(userAgent) : null;
+        this.client = userAgent != null ? Client.get(userAgent) : null;
         this.contextPath = contextPath;
         this.mode = mode;
         this.initializeAura = initializeAura;
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.java;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.auraframework.util.AuraTextUtil;
+
+/**
+ * A fast way of calling a java method, built once when the definition is built.
+ *
+ * The method is bound to a method handle adapted to (Object, Object[])Object, so that a call does no access checks
+ * and no lookup. The behaviour is that of {@link Method#invoke(Object, Object...)}: anything thrown by the method
+ * itself is wrapped in an {@link InvocationTargetException}. Calls that do not exactly match the method (e.g. an
+ * argument that needs widening, or the wrong target) go through reflection, so that they succeed or fail just as they
+ * did before. So do methods that cannot be bound, such as a public method on a class that is not public.
+ */
+public final class JavaInvoker {
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /**
+     * The getters for each class, keyed by property name, filled in as properties are asked for.
+     */
+    private static final ClassValue<ConcurrentMap<String, JavaInvoker>> GETTERS = new ClassValue<ConcurrentMap<String, JavaInvoker>>() {
+        @Override
+        protected ConcurrentMap<String, JavaInvoker> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /** Marks a property that has no getter */
+    private static final JavaInvoker NO_GETTER = new JavaInvoker();
+
+    private final Method method;
+    private final MethodHandle handle;
+    private final boolean isStatic;
+    /** The parameter types, with primitives boxed */
+    private final Class<?>[] argTypes;
+    private final boolean[] primitive;
+
+    private JavaInvoker() {
+        this.method = null;
+        this.handle = null;
+        this.isStatic = false;
+        this.argTypes = null;
+        this.primitive = null;
+    }
+
+    private JavaInvoker(Method method) {
+        this.method = method;
+        this.isStatic = Modifier.isStatic(method.getModifiers());
+        Class<?>[] params = method.getParameterTypes();
+        this.argTypes = new Class<?>[params.length];
+        this.primitive = new boolean[params.length];
+        for (int i = 0; i < params.length; i++) {
+            this.primitive[i] = params[i].isPrimitive();
+            this.argTypes[i] = primitive[i] ? MethodType.methodType(params[i]).wrap().returnType() : params[i];
+        }
+        this.handle = bind(method);
+    }
+
+    /**
+     * Build an invoker for a method.
+     *
+     * @param method the method to call.
+     * @return the invoker.
+     */
+    public static JavaInvoker create(Method method) {
+        return new JavaInvoker(method);
+    }
+
+    /**
+     * Get the invoker for the getter of a bean property.
+     *
+     * As with java beans, the getter is "get" + the property name, or failing that "is" + the property name. The
+     * lookup is only done once for each class and property.
+     *
+     * @param type the class of the bean.
+     * @param property the name of the property.
+     * @return the invoker, or null if there is no getter for the property.
+     */
+    public static JavaInvoker getGetter(Class<?> type, String property) {
+        ConcurrentMap<String, JavaInvoker> getters = GETTERS.get(type);
+        JavaInvoker getter = getters.get(property);
+        if (getter == null) {
+            getter = findGetter(type, property);
+            getters.putIfAbsent(property, getter);
+        }
+        return getter == NO_GETTER ? null : getter;
+    }
+
+    private static JavaInvoker findGetter(Class<?> type, String property) {
+        String capped = AuraTextUtil.initCap(property);
+        Method meth;
+        try {
+            meth = type.getMethod("get" + capped);
+        } catch (NoSuchMethodException e) {
+            try {
+                meth = type.getMethod("is" + capped);
+            } catch (NoSuchMethodException nme) {
+                return NO_GETTER;
+            }
+        }
+        return new JavaInvoker(meth);
+    }
+
+    private static MethodHandle bind(Method method) {
+        MethodHandle mh;
+        try {
+            mh = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException iae) {
+            return null;
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            mh = MethodHandles.dropArguments(mh, 0, Object.class);
+        }
+        if (method.getReturnType() == void.class) {
+            mh = MethodHandles.filterReturnValue(mh, MethodHandles.constant(Object.class, null));
+        }
+        return mh.asSpreader(Object[].class, method.getParameterTypes().length).asType(INVOKER_TYPE);
+    }
+
+    /**
+     * Write a method to a stream, as {@link Method} is not serializable.
+     *
+     * @param out the stream.
+     * @param method the method, or null.
+     * @throws IOException if the stream could not be written.
+     */
+    public static void writeMethod(ObjectOutputStream out, Method method) throws IOException {
+        if (method == null) {
+            out.writeObject(null);
+            return;
+        }
+        out.writeObject(method.getDeclaringClass());
+        out.writeUTF(method.getName());
+        out.writeObject(method.getParameterTypes());
+    }
+
+    /**
+     * Read a method written by {@link #writeMethod(ObjectOutputStream, Method)}, looking it up again.
+     *
+     * @param in the stream.
+     * @return the method, or null if null was written.
+     * @throws IOException if the stream could not be read, or the method no longer exists.
+     * @throws ClassNotFoundException if a class no longer exists.
+     */
+    public static Method readMethod(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        Class<?> type = (Class<?>) in.readObject();
+        if (type == null) {
+            return null;
+        }
+        String name = in.readUTF();
+        Class<?>[] params = (Class<?>[]) in.readObject();
+        try {
+            return type.getDeclaredMethod(name, params);
+        } catch (NoSuchMethodException nsme) {
+            InvalidObjectException ioe = new InvalidObjectException("No method " + name + " on " + type.getName());
+            ioe.initCause(nsme);
+            throw ioe;
+        }
+    }
+
+    /**
+     * Get the method that this invokes.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Call the method.
+     *
+     * @param target the object on which to call the method, ignored for a static method.
+     * @param args the arguments.
+     * @return the return value, boxed, or null for a void method.
+     * @throws IllegalArgumentException if the arguments do not match the parameters.
+     * @throws IllegalAccessException if the method cannot be called.
+     * @throws InvocationTargetException if the method threw something.
+     */
+    public Object invoke(Object target, Object... args) throws IllegalAccessException, InvocationTargetException {
+        if (handle == null || !matches(target, args)) {
+            return method.invoke(target, args);
+        }
+        try {
+            return handle.invokeExact(target, args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Check that the call exactly matches the method, so that anything thrown by the handle comes from the method.
+     */
+    private boolean matches(Object target, Object[] args) {
+        if (!isStatic && !method.getDeclaringClass().isInstance(target)) {
+            return false;
+        }
+        int count = args == null ? 0 : args.length;
+        if (count != argTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            Object arg = args[i];
+            if (arg == null ? primitive[i] : !(primitive[i] ? argTypes[i] == arg.getClass() : argTypes[i]
+                    .isInstance(arg))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
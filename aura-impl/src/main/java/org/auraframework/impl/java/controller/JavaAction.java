@@ -32,6 +32,7 @@ import org.auraframework.throwable.AuraHandledException;
 import org.auraframework.throwable.AuraUnhandledException;
 import org.auraframework.throwable.quickfix.InvalidDefinitionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.javascript.Literal;
 import org.auraframework.util.json.Json;
 
 import com.google.common.collect.Lists;
@@ -134,7 +135,7 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
         loggingService.startTimer("java");
         try {
             loggingService.incrementNum("JavaCallCount");
-            this.returnValue = this.actionDef.getMethod().invoke(bean, args);
+            this.returnValue = this.actionDef.getInvoker().invoke(bean, args);
             this.state = State.SUCCESS;
         } catch (InvocationTargetException e) {
             // something bad happened in the body of the action itself
@@ -154,6 +155,33 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
         }
     }
 
+    /**
+     * Can this action be run at the same time as the other actions in its request.
+     */
+    public boolean isParallelSafe() {
+        return this.actionDef != null && this.actionDef.isParallelSafe();
+    }
+
+    /**
+     * Gets how long the result of this action may be cached on the server, zero if it may not be.
+     */
+    public int getCacheExpiration() {
+        return this.actionDef != null ? this.actionDef.getCacheExpiration() : 0;
+    }
+
+    /**
+     * Replace the return value with its serialized form.
+     *
+     * This is used to answer from (or fill) the server side action result cache, in place of {@link #run()}. It
+     * leaves the action in the SUCCESS state.
+     *
+     * @param serialized the serialized return value.
+     */
+    public void setSerializedReturnValue(Literal serialized) {
+        this.returnValue = serialized;
+        this.state = State.SUCCESS;
+    }
+
     @Override
     public Object getReturnValue() {
         return returnValue;
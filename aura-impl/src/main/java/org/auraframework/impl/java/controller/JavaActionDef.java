@@ -16,6 +16,8 @@
 package org.auraframework.impl.java.controller;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -23,6 +25,7 @@ import org.auraframework.def.ActionDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.TypeDef;
 import org.auraframework.def.ValueDef;
+import org.auraframework.impl.java.JavaInvoker;
 import org.auraframework.impl.system.DefinitionImpl;
 import org.auraframework.impl.util.AuraUtil;
 import org.auraframework.util.json.Json;
@@ -36,9 +39,13 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
     private final List<ValueDef> params;
     private final List<String> loggableParams;
     private final Class<?>[] javaParams;
-    private final Method method;
+    /** Not serializable, so written by name, see {@link #writeObject(ObjectOutputStream)} */
+    private transient Method method;
+    private transient JavaInvoker invoker;
     private final boolean background;
     private final boolean caboose;
+    private final boolean parallelSafe;
+    private final int cacheExpiration;
 
     protected JavaActionDef(Builder builder) {
         super(builder);
@@ -47,8 +54,21 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         this.loggableParams = builder.loggableParams;
         this.javaParams = builder.javaParams;
         this.method = builder.method;
+        this.invoker = builder.method != null ? JavaInvoker.create(builder.method) : null;
         this.background = builder.background;
         this.caboose = builder.caboose;
+        this.parallelSafe = builder.parallelSafe;
+        this.cacheExpiration = builder.cacheExpiration;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        JavaInvoker.writeMethod(out, method);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        method = JavaInvoker.readMethod(in);
     }
 
     @Override
@@ -79,6 +99,19 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         return this.method;
     }
 
+    /**
+     * Gets the invoker for the method, bound when the definition was built.
+     *
+     * @return The invoker.
+     */
+    public JavaInvoker getInvoker() {
+        if (this.invoker == null && this.method != null) {
+            // we were deserialized.
+            this.invoker = JavaInvoker.create(this.method);
+        }
+        return this.invoker;
+    }
+
     @Override
     public DefDescriptor<TypeDef> getReturnType() {
         return returnTypeDescriptor;
@@ -92,6 +125,22 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
     	return caboose;
     }
 
+    /**
+     * Can this action be run at the same time as the other actions in its request.
+     */
+    public boolean isParallelSafe() {
+        return parallelSafe;
+    }
+
+    /**
+     * Gets how long the result of this action may be cached on the server.
+     *
+     * @return The time in seconds, zero if the result is not cacheable.
+     */
+    public int getCacheExpiration() {
+        return cacheExpiration;
+    }
+
     @Override
     public void serialize(Json json) throws IOException {
         json.writeMapBegin();
@@ -118,6 +167,8 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         private Method method;
         private boolean background = false;
         private boolean caboose = false;
+        private boolean parallelSafe = false;
+        private int cacheExpiration = 0;
 
         @Override
         public JavaActionDef build() {
@@ -171,5 +222,13 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
 	public void setCaboose(boolean caboose) {
 	    this.caboose = caboose;
 	}
+
+        public void setParallelSafe(boolean parallelSafe) {
+            this.parallelSafe = parallelSafe;
+        }
+
+        public void setCacheExpiration(int cacheExpiration) {
+            this.cacheExpiration = cacheExpiration;
+        }
     }
 }
@@ -37,8 +37,10 @@ import org.auraframework.impl.system.SubDefDescriptorImpl;
 import org.auraframework.system.Annotations.AuraEnabled;
 import org.auraframework.system.Annotations.BackgroundAction;
 import org.auraframework.system.Annotations.CabooseAction;
+import org.auraframework.system.Annotations.CacheableAction;
 import org.auraframework.system.Annotations.Controller;
 import org.auraframework.system.Annotations.Key;
+import org.auraframework.system.Annotations.ParallelSafeAction;
 import org.auraframework.system.DefFactory;
 import org.auraframework.system.Location;
 import org.auraframework.system.SourceLoader;
@@ -172,6 +174,15 @@ public class JavaControllerDefFactory extends BaseJavaDefFactory<ControllerDef>
         
     	actionBuilder.setBackground(method.isAnnotationPresent(BackgroundAction.class));
     	actionBuilder.setCaboose(method.isAnnotationPresent(CabooseAction.class));
+        actionBuilder.setParallelSafe(method.isAnnotationPresent(ParallelSafeAction.class));
+        CacheableAction cacheable = method.getAnnotation(CacheableAction.class);
+        if (cacheable != null) {
+            if (cacheable.expiration() <= 0) {
+                throw new InvalidDefinitionException("@CacheableAction expiration must be positive",
+                        new Location(controllerClass.getName() + "." + name, 0));
+            }
+            actionBuilder.setCacheExpiration(cacheable.expiration());
+        }
         
         return actionBuilder.build();
     }
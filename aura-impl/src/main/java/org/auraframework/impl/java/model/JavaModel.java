@@ -17,13 +17,13 @@ package org.auraframework.impl.java.model;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
 
 import org.auraframework.Aura;
 import org.auraframework.def.*;
 import org.auraframework.expression.PropertyReference;
+import org.auraframework.impl.java.JavaInvoker;
 import org.auraframework.impl.java.type.JavaValueProvider;
 import org.auraframework.impl.javascript.testsuite.JavascriptMockHandler;
 import org.auraframework.instance.*;
@@ -31,7 +31,6 @@ import org.auraframework.service.LoggingService;
 import org.auraframework.throwable.AuraExecutionException;
 import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.quickfix.QuickFixException;
-import org.auraframework.util.AuraTextUtil;
 import org.auraframework.util.json.Json;
 
 /**
@@ -159,18 +158,12 @@ public class JavaModel implements Model {
                 }
             }
             else {
-                Method meth = null;
-                try {
-                    meth = root.getClass().getMethod("get" + AuraTextUtil.initCap(part));
-                } catch (NoSuchMethodException e) {
-                    try {
-                        meth = root.getClass().getMethod("is" + AuraTextUtil.initCap(part));
-                    } catch (NoSuchMethodException nme) {
-                        throw makeException("no such property: " + part, e, def);
-                    }
+                JavaInvoker getter = JavaInvoker.getGetter(root.getClass(), part);
+                if (getter == null) {
+                    throw makeException("no such property: " + part, null, def);
                 }
                 try {
-                    ret = meth.invoke(root);
+                    ret = getter.invoke(root);
                 } catch (IllegalAccessException iae) {
                     throw makeException("no such property: " + part, iae, def);
                 } catch (InvocationTargetException ite) {
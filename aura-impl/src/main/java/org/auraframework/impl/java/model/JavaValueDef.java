@@ -16,6 +16,8 @@
 package org.auraframework.impl.java.model;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
@@ -23,6 +25,7 @@ import org.auraframework.Aura;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.TypeDef;
 import org.auraframework.def.ValueDef;
+import org.auraframework.impl.java.JavaInvoker;
 import org.auraframework.impl.system.DefinitionImpl;
 import org.auraframework.service.LoggingService;
 import org.auraframework.system.Location;
@@ -40,7 +43,9 @@ public class JavaValueDef extends DefinitionImpl<ValueDef> implements ValueDef {
 
     private final String name;
     private final DefDescriptor<TypeDef> typeDescriptor;
-    private final Method getter;
+    /** Not serializable, so written by name, see {@link #writeObject(ObjectOutputStream)} */
+    private transient Method getter;
+    private transient JavaInvoker invoker;
 
     public JavaValueDef(String name, DefDescriptor<TypeDef> typeDescriptor, Location location) {
         super(null, location);
@@ -53,9 +58,20 @@ public class JavaValueDef extends DefinitionImpl<ValueDef> implements ValueDef {
         super(null, location);
         this.name = name;
         this.getter = getter;
+        this.invoker = JavaInvoker.create(getter);
         this.typeDescriptor = typeDescriptor;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        JavaInvoker.writeMethod(out, getter);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        getter = JavaInvoker.readMethod(in);
+    }
+
     public static String getMemberName(String name) {
         if (name.startsWith(GET)) {
             name = name.substring(GET.length());
@@ -81,7 +97,11 @@ public class JavaValueDef extends DefinitionImpl<ValueDef> implements ValueDef {
         try {
             LoggingService loggingService = Aura.getLoggingService();
             loggingService.incrementNum("JavaCallCount");
-            return getter.invoke(obj);
+            if (invoker == null) {
+                // we were deserialized.
+                invoker = JavaInvoker.create(getter);
+            }
+            return invoker.invoke(obj);
         } catch (IllegalArgumentException e) {
             throw new AuraRuntimeException(e);
         } catch (IllegalAccessException e) {
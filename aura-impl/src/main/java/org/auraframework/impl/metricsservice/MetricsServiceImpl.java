@@ -16,16 +16,20 @@
 package org.auraframework.impl.metricsservice;
 
 import java.io.IOException;
+import java.util.Map;
 
 import aQute.bnd.annotation.component.Component;
 import org.auraframework.Aura;
 import org.auraframework.ds.serviceloader.AuraServiceProvider;
 import org.auraframework.service.LoggingService;
 import org.auraframework.service.MetricsService;
+import org.auraframework.util.LatencyHistogram;
 import org.auraframework.util.json.Json;
 
+import com.google.common.collect.Ordering;
+
 /**
- * ResourceDef handler.
+ * Sampled request metrics, kept in {@link PhaseMetrics}.
  */
 @Component(provide=AuraServiceProvider.class)
 public class MetricsServiceImpl implements MetricsService  {
@@ -35,6 +39,16 @@ public class MetricsServiceImpl implements MetricsService  {
      */
     private static final long serialVersionUID = 2207073608997955461L;
 
+    private final PhaseMetrics metrics;
+
+    public MetricsServiceImpl() {
+        this(PhaseMetrics.getInstance());
+    }
+
+    MetricsServiceImpl(PhaseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     public void serializeMetrics(Json json) {
         LoggingService loggingService = Aura.getLoggingService();
@@ -48,6 +62,17 @@ public class MetricsServiceImpl implements MetricsService  {
             json.writeArrayBegin();
             loggingService.serializeActions(json);
             json.writeArrayEnd();
+
+            // phases of a sampled request, in ms
+            Map<String, Long> phases = metrics.getRequestPhases();
+            if (phases != null && !phases.isEmpty()) {
+                json.writeMapKey("phases");
+                json.writeMapBegin();
+                for (Map.Entry<String, Long> entry : phases.entrySet()) {
+                    json.writeMapEntry(entry.getKey(), PhaseMetrics.toMillis(entry.getValue()));
+                }
+                json.writeMapEnd();
+            }
             json.writeMapEnd();
 
         } catch (IOException e) {
@@ -58,6 +83,53 @@ public class MetricsServiceImpl implements MetricsService  {
 
     @Override
     public void clearMetrics() {
-        // TODO Auto-generated method stub
+        metrics.clearRequest();
+    }
+
+    @Override
+    public void startRequest() {
+        metrics.startRequest();
+    }
+
+    @Override
+    public boolean isSampled() {
+        return metrics.isSampled();
+    }
+
+    @Override
+    public void recordPhase(String phase, long nanos) {
+        metrics.record(phase, nanos);
+    }
+
+    @Override
+    public void endRequest() {
+        metrics.endRequest();
+    }
+
+    @Override
+    public void serializeSnapshot(Json json) throws IOException {
+        Map<String, LatencyHistogram> phases = metrics.getPhases();
+        json.writeMapBegin();
+        json.writeMapEntry("sampleRate", metrics.getSampleRate());
+        json.writeMapEntry("sampledRequests", metrics.getSampledRequests());
+        json.writeMapKey("phases");
+        json.writeMapBegin();
+        for (String phase : Ordering.natural().sortedCopy(phases.keySet())) {
+            LatencyHistogram histogram = phases.get(phase);
+            if (histogram == null || histogram.getCount() == 0) {
+                continue;
+            }
+            json.writeMapKey(phase);
+            json.writeMapBegin();
+            json.writeMapEntry("count", histogram.getCount());
+            json.writeMapEntry("mean", PhaseMetrics.toMillis(histogram.getMean()));
+            json.writeMapEntry("p50", PhaseMetrics.toMillis(histogram.getPercentile(50)));
+            json.writeMapEntry("p90", PhaseMetrics.toMillis(histogram.getPercentile(90)));
+            json.writeMapEntry("p99", PhaseMetrics.toMillis(histogram.getPercentile(99)));
+            json.writeMapEntry("max", PhaseMetrics.toMillis(histogram.getMax()));
+            json.writeMapEnd();
+        }
+        json.writeMapEnd();
+        json.writeMapEnd();
     }
 }
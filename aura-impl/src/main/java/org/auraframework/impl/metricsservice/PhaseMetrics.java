@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.metricsservice;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+import org.auraframework.util.LatencyHistogram;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+/**
+ * Sampled per phase timings of requests, rolled up into process wide histograms.
+ *
+ * A request is sampled with a fixed probability, set by the aura.metrics.sampleRate system property (default 0.01),
+ * or over JMX. A request that is not sampled costs a thread local lookup per phase. The phases of a sampled request are
+ * recorded straight into lock free histograms, and also kept for the request itself until they are cleared, so that
+ * they can be sent back with the response.
+ *
+ * The histograms are exposed over JMX as org.auraframework:type=Metrics.
+ */
+public final class PhaseMetrics implements PhaseMetricsMBean {
+    private static final Logger logger = Logger.getLogger(PhaseMetrics.class);
+
+    public static final String OBJECT_NAME = "org.auraframework:type=Metrics";
+
+    /** The most phases that get a histogram, since each action is a phase */
+    private static final int MAX_PHASES = Integer.getInteger("aura.metrics.maxPhases", 4096);
+
+    private static final PhaseMetrics INSTANCE = new PhaseMetrics(parseRate(System.getProperty(
+            "aura.metrics.sampleRate"), 0.01));
+
+    static {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (Exception e) {
+            // Not fatal, the histograms are still kept.
+            logger.warn("Unable to register " + OBJECT_NAME, e);
+        }
+    }
+
+    /** The phases of the sampled request on each thread, null when it is not sampled */
+    private final ThreadLocal<Map<String, Long>> current = new ThreadLocal<>();
+    private final ConcurrentMap<String, LatencyHistogram> phases = new ConcurrentHashMap<>();
+    private final AtomicLong sampledRequests = new AtomicLong();
+    private volatile double sampleRate;
+
+    PhaseMetrics(double sampleRate) {
+        setSampleRate(sampleRate);
+    }
+
+    public static PhaseMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    static double parseRate(String value, double defaultRate) {
+        if (value == null) {
+            return defaultRate;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException nfe) {
+            logger.warn("Invalid aura.metrics.sampleRate " + value);
+            return defaultRate;
+        }
+    }
+
+    /**
+     * Start a request on this thread, sampling it with the current rate.
+     */
+    void startRequest() {
+        double rate = sampleRate;
+        if (rate > 0 && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate)) {
+            current.set(Maps.<String, Long> newLinkedHashMap());
+            sampledRequests.incrementAndGet();
+        } else {
+            current.remove();
+        }
+    }
+
+    void endRequest() {
+        current.remove();
+    }
+
+    boolean isSampled() {
+        return current.get() != null;
+    }
+
+    void record(String phase, long nanos) {
+        Map<String, Long> request = current.get();
+        if (request == null) {
+            return;
+        }
+        Long previous = request.get(phase);
+        request.put(phase, previous == null ? nanos : previous + nanos);
+        LatencyHistogram histogram = phases.get(phase);
+        if (histogram == null) {
+            if (phases.size() >= MAX_PHASES) {
+                return;
+            }
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = phases.putIfAbsent(phase, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * @return the phases recorded so far for the sampled request on this thread, in nanoseconds, or null if it is not
+     *         sampled. This is a live view.
+     */
+    Map<String, Long> getRequestPhases() {
+        return current.get();
+    }
+
+    /**
+     * Clear the phases recorded so far for the request on this thread, leaving it sampled.
+     */
+    void clearRequest() {
+        Map<String, Long> request = current.get();
+        if (request != null) {
+            request.clear();
+        }
+    }
+
+    /**
+     * @return the histogram for a phase, or null if it has no values.
+     */
+    public LatencyHistogram getPhase(String phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * @return the phase histograms, by name. This is a live view.
+     */
+    public Map<String, LatencyHistogram> getPhases() {
+        return phases;
+    }
+
+    static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    @Override
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public void setSampleRate(double rate) {
+        sampleRate = Double.isNaN(rate) ? 0 : Math.min(1, Math.max(0, rate));
+    }
+
+    @Override
+    public long getSampledRequests() {
+        return sampledRequests.get();
+    }
+
+    @Override
+    public String[] getPhaseSummary() {
+        List<String> lines = Lists.newArrayList();
+        for (String phase : Ordering.natural().sortedCopy(phases.keySet())) {
+            LatencyHistogram histogram = phases.get(phase);
+            if (histogram != null && histogram.getCount() > 0) {
+                lines.add(String.format("%s count=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f max=%.3f", phase,
+                        histogram.getCount(), toMillis(histogram.getMean()),
+                        toMillis(histogram.getPercentile(50)), toMillis(histogram.getPercentile(90)),
+                        toMillis(histogram.getPercentile(99)), toMillis(histogram.getMax())));
+            }
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public double getPhasePercentile(String phase, double percentile) {
+        LatencyHistogram histogram = phases.get(phase);
+        return histogram == null ? 0 : toMillis(histogram.getPercentile(percentile));
+    }
+
+    @Override
+    public void reset() {
+        phases.clear();
+        sampledRequests.set(0);
+    }
+}
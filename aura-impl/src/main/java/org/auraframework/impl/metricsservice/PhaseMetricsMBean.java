@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.metricsservice;
+
+/**
+ * JMX view of the sampled phase timings in {@link PhaseMetrics}. Times are in milliseconds.
+ */
+public interface PhaseMetricsMBean {
+    /**
+     * @return the fraction of requests that are sampled, from 0 to 1.
+     */
+    double getSampleRate();
+
+    void setSampleRate(double rate);
+
+    /**
+     * @return the number of requests sampled since the last reset.
+     */
+    long getSampledRequests();
+
+    /**
+     * @return one line per phase, with the count, mean, percentiles and max.
+     */
+    String[] getPhaseSummary();
+
+    double getPhasePercentile(String phase, double percentile);
+
+    void reset();
+}
@@ -26,6 +26,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -137,6 +138,9 @@ public abstract class BaseComponentDefImpl<T extends BaseComponentDef> extends
     private final int hashCode;
 
     private JavascriptComponentClass javascriptClass;
+    /** Results of getCode, indexed by minify and locker */
+    private transient AtomicReferenceArray<Object> codeCache;
+    private static final Object NO_CODE = new Object();
 
     private transient Boolean localDeps = null;
 
@@ -1067,8 +1071,22 @@ public abstract class BaseComponentDefImpl<T extends BaseComponentDef> extends
 
     @Override
     public String getCode(boolean minify) throws QuickFixException {
-    	String js = null;
 		initializeJavascriptClass();
+    	boolean requireLocker = isLockerRequired();
+
+    	// The locker conversion runs a regex over the whole class, so keep the results, keyed on both choices.
+    	int index = (minify ? 1 : 0) | (requireLocker ? 2 : 0);
+    	AtomicReferenceArray<Object> cache = codeCache;
+    	if (cache == null) {
+    		cache = new AtomicReferenceArray<>(4);
+    		codeCache = cache;
+    	}
+    	Object cached = cache.get(index);
+    	if (cached != null) {
+    		return cached == NO_CODE ? null : (String) cached;
+    	}
+
+    	String js = null;
     	if (minify) {
     		js = javascriptClass.getMinifiedCode();
     	}
@@ -1077,10 +1095,11 @@ public abstract class BaseComponentDefImpl<T extends BaseComponentDef> extends
     		js = javascriptClass.getCode();
     	}
     	
-    	if (isLockerRequired()) {
+    	if (requireLocker) {
     		js = convertToLocker(js);
     	}
     	
+    	cache.set(index, js == null ? NO_CODE : js);
     	return js;
     }
     
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.Aura;
+import org.auraframework.cache.Cache;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.Definition;
+import org.auraframework.def.DescriptorFilter;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A static registry read from the binary registries format, see {@link StaticRegistryCodec}.
+ *
+ * The descriptors are all known up front, along with where each definition sits in the (usually memory mapped)
+ * buffer. A definition is only decoded the first time it is asked for, and is then kept in a bounded cache, so that
+ * rarely used definitions can be dropped and decoded again later.
+ */
+public class EncodedStaticDefRegistryImpl<T extends Definition> extends StaticDefRegistryImpl<T> {
+    private static final long serialVersionUID = -2395474120318264165L;
+
+    private static final int DECODED_CACHE_SIZE = Integer.getInteger("aura.cache.staticDefCacheSize", 1024);
+
+    private final transient ByteBuffer buffer;
+    private final Map<DefDescriptor<T>, Long> index;
+    private transient volatile Cache<DefDescriptor<T>, T> decoded;
+
+    public EncodedStaticDefRegistryImpl(Set<DefType> defTypes, Set<String> prefixes, Set<String> namespaces,
+            ByteBuffer buffer, Map<DefDescriptor<T>, Long> index) {
+        super(defTypes, prefixes, namespaces, Maps.<DefDescriptor<T>, T> newHashMap());
+        this.buffer = buffer;
+        this.index = index;
+    }
+
+    /**
+     * Pack the location of an encoded definition into a single value for the index.
+     */
+    static long location(int offset, int length) {
+        return ((long) offset << 32) | (length & 0xffffffffL);
+    }
+
+    @Override
+    public T getDef(DefDescriptor<T> descriptor) {
+        Cache<DefDescriptor<T>, T> cache = getDecoded();
+        T def = cache.getIfPresent(descriptor);
+        if (def == null) {
+            Long location = index.get(descriptor);
+            if (location == null) {
+                return null;
+            }
+            def = StaticRegistryCodec.decodeDef(buffer, (int) (location >>> 32), (int) location.longValue());
+            cache.put(descriptor, def);
+        }
+        return def;
+    }
+
+    /**
+     * Get the cache of decoded definitions, built on first use as the caching service may not be up when the
+     * registries are read.
+     */
+    private Cache<DefDescriptor<T>, T> getDecoded() {
+        Cache<DefDescriptor<T>, T> cache = decoded;
+        if (cache == null) {
+            synchronized (this) {
+                cache = decoded;
+                if (cache == null) {
+                    int size = Math.min(DECODED_CACHE_SIZE, Math.max(index.size(), 1));
+                    cache = Aura.getCachingService().<DefDescriptor<T>, T> getCacheBuilder()
+                            .setInitialSize(size)
+                            .setMaximumSize(size)
+                            .setRecordStats(true)
+                            .setSoftValues(true)
+                            .setName("staticDefCache")
+                            .build();
+                    decoded = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    @Override
+    public Set<DefDescriptor<?>> find(DescriptorFilter matcher) {
+        Set<DefDescriptor<?>> ret = new HashSet<>();
+
+        for (DefDescriptor<T> key : index.keySet()) {
+            if (matcher.matchDescriptor(key)) {
+                ret.add(key);
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public boolean exists(DefDescriptor<T> descriptor) {
+        return index.containsKey(descriptor);
+    }
+}
@@ -21,9 +21,14 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -43,9 +48,12 @@ import org.auraframework.def.ParentedDef;
 import org.auraframework.def.RootDefinition;
 import org.auraframework.impl.controller.AuraStaticControllerDefRegistry;
 import org.auraframework.service.CachingService;
+import org.auraframework.service.ContextService;
 import org.auraframework.service.LoggingService;
+import org.auraframework.service.MetricsService;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.DefRegistry;
+import org.auraframework.system.DefinitionSnapshot;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.Location;
 import org.auraframework.system.MasterDefRegistry;
@@ -120,18 +128,44 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
 
     private final static int ACCESS_CHECK_CACHE_SIZE = 4096;
 
-    private final Lock rLock;
+    /**
+     * The descriptors being compiled by some registry, keyed like the non-uid entries in {@link #depsCache}.
+     *
+     * When many requests miss the dependency cache at once (e.g. when a popular app changes after a deploy), only one
+     * of them compiles, the others wait for it and build from what it cached. See {@link #compileDE(DefDescriptor)}.
+     */
+    private static final ConcurrentMap<String, CountDownLatch> compilingDEs = new ConcurrentHashMap<>();
+
+    /**
+     * The number of threads used to parse definitions ahead of a compile, zero (the default) to parse everything on
+     * the request thread. See {@link #prefetchDefs(DefDescriptor, CompileContext)}.
+     */
+    private static final int COMPILE_THREADS = Integer.getInteger("aura.mdr.compileThreads", 0);
+
+    private static final ForkJoinPool compilePool = COMPILE_THREADS > 0 ? new ForkJoinPool(COMPILE_THREADS) : null;
+
+    private final CachingService cachingService;
 
     private final Cache<DefDescriptor<?>, Boolean> existsCache;
     private final Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache;
     private final Cache<String, DependencyEntry> depsCache;
     private final Cache<String, String> stringsCache;
-    private final Cache<String, String> altStringsCache;
+    private final Cache<String, byte[]> altBytesCache;
     private final Cache<String, Set<DefDescriptor<?>>> descriptorFilterCache;
     private final Cache<String, String> accessCheckCache;
 
     private final Map<String, Boolean> clientClassesLoaded;
 
+    /**
+     * The snapshot of the caches from the last shutdown, null if there is none.
+     */
+    private final DefinitionSnapshot definitionSnapshot;
+
+    /**
+     * The descriptors whose sources we have checked against the snapshot, and whether they were unchanged.
+     */
+    private final Map<DefDescriptor<?>, Boolean> checkedSources = Maps.newHashMap();
+
     /**
      * A local dependencies cache.
      *
@@ -164,12 +198,12 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
 
         this.delegateRegistries = delegate;
         this.original = original;
-        this.rLock = acs.getReadLock();
+        this.cachingService = acs;
         this.existsCache = acs.getExistsCache();
         this.defsCache = acs.getDefsCache();
         this.depsCache = acs.getDepsCache();
         this.stringsCache = acs.getStringsCache();
-        this.altStringsCache = acs.getAltStringsCache();
+        this.altBytesCache = acs.getAltBytesCache();
         this.descriptorFilterCache = acs.getDescriptorFilterCache();
         this.accessCheckCache = acs.<String, String> getCacheBuilder()
                 .setInitialSize(ACCESS_CHECK_CACHE_SIZE)
@@ -182,6 +216,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         this.localDescs = null;
         this.currentCC = null;
         this.clientClassesLoaded = Maps.newHashMap();
+        this.definitionSnapshot = acs.getDefinitionSnapshot();
     }
 
     /**
@@ -261,66 +296,61 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             // If we have somthing that is non-constant, we'll have to muck with caches and do some funky
             // running around.
             //
-            rLock.lock();
-            try {
-                //
-                // We _never_ cache non-constant namespaces. We'd like to make them illegal, but for the moment
-                // we will make them undesirable.
-                //
-                boolean cacheable = shouldCache(matcher) && namespaceMatcher.isConstant();
-                for (DefRegistry<?> reg : delegateRegistries.getRegistries(matcher)) {
-                    if (reg.hasFind()) {
-                        //
-                        // Now we walk then entire set of registries, and check to see if our namespace
-                        // matches them. In the case of a constant namespace, this is easy, otherwise
-                        // we have to do a double walk.
-                        //
-                        // We could theoretically do the cache lookup first, but that seems overly complicated
-                        //
-                        Set<String> namespaces = reg.getNamespaces();
-                        boolean nsm = namespaces.contains("*");
-                        if (!nsm) {
-                            if (namespace != null) {
-                                nsm = namespaces.contains(namespace);
-                            } else {
-                                for (String ns : namespaces) {
-                                    if (namespaceMatcher.match(ns)) {
-                                        nsm = true;
-                                    }
+            // We _never_ cache non-constant namespaces. We'd like to make them illegal, but for the moment
+            // we will make them undesirable.
+            //
+            boolean cacheable = shouldCache(matcher) && namespaceMatcher.isConstant();
+            long generation = cachingService.getGeneration();
+            for (DefRegistry<?> reg : delegateRegistries.getRegistries(matcher)) {
+                if (reg.hasFind()) {
+                    //
+                    // Now we walk then entire set of registries, and check to see if our namespace
+                    // matches them. In the case of a constant namespace, this is easy, otherwise
+                    // we have to do a double walk.
+                    //
+                    // We could theoretically do the cache lookup first, but that seems overly complicated
+                    //
+                    Set<String> namespaces = reg.getNamespaces();
+                    boolean nsm = namespaces.contains("*");
+                    if (!nsm) {
+                        if (namespace != null) {
+                            nsm = namespaces.contains(namespace);
+                        } else {
+                            for (String ns : namespaces) {
+                                if (namespaceMatcher.match(ns)) {
+                                    nsm = true;
                                 }
                             }
                         }
-                        //
-                        // Only look up results if we have a match.
-                        //
-                        if (nsm) {
-                            Set<DefDescriptor<?>> registryResults = null;
-
-                            if (cacheable && reg.isCacheable()) {
-                                // cache results per registry
-                                String cacheKey = filterKey + "|" + reg.toString();
-                                registryResults = descriptorFilterCache.getIfPresent(cacheKey);
-                                if (registryResults == null) {
-                                    registryResults = reg.find(matcher);
-                                    descriptorFilterCache.put(cacheKey, registryResults);
-                                }
-                            } else {
+                    }
+                    //
+                    // Only look up results if we have a match.
+                    //
+                    if (nsm) {
+                        Set<DefDescriptor<?>> registryResults = null;
+
+                        if (cacheable && reg.isCacheable()) {
+                            // cache results per registry
+                            String cacheKey = filterKey + "|" + reg.toString();
+                            registryResults = descriptorFilterCache.getIfPresent(cacheKey);
+                            if (registryResults == null) {
                                 registryResults = reg.find(matcher);
+                                publish(descriptorFilterCache, cacheKey, registryResults, generation);
                             }
-
-                            matched.addAll(registryResults);
+                        } else {
+                            registryResults = reg.find(matcher);
                         }
+
+                        matched.addAll(registryResults);
                     }
                 }
-                if (localDescs != null) {
-                    for (DefDescriptor<? extends Definition> desc : localDescs) {
-                        if (matcher.matchDescriptor(desc)) {
-                            matched.add(desc);
-                        }
+            }
+            if (localDescs != null) {
+                for (DefDescriptor<? extends Definition> desc : localDescs) {
+                    if (matcher.matchDescriptor(desc)) {
+                        matched.add(desc);
                     }
                 }
-            } finally {
-                rLock.unlock();
             }
         }
 
@@ -413,7 +443,10 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
     private static class CompileContext {
         public final AuraContext context = Aura.getContextService().getCurrentContext();
         public final LoggingService loggingService = Aura.getLoggingService();
+        public final long generation = Aura.getCachingService().getGeneration();
         public final Map<DefDescriptor<? extends Definition>, CompilingDef<?>> compiled = Maps.newHashMap();
+        /** Definitions parsed and validated ahead of the tree walk, see prefetchDefs. */
+        public final Map<DefDescriptor<?>, Definition> prefetched = Maps.newHashMap();
         public final List<ClientLibraryDef> clientLibs;
         public final DefDescriptor<? extends Definition> topLevel;
         public final boolean compiling;
@@ -557,6 +590,18 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
                         return false;
                     }
                 }
+                D restored = getRestoredDef(compiling.descriptor, registry);
+                if (restored != null) {
+                    // treat it just as if it had been in the cache.
+                    publish(defsCache, compiling.descriptor, Optional.of(restored), currentCC.generation);
+                    @SuppressWarnings("unchecked")
+                    DefDescriptor<D> canonical = (DefDescriptor<D>) restored.getDescriptor();
+
+                    compiling.def = restored;
+                    compiling.descriptor = canonical;
+                    compiling.built = false;
+                    return true;
+                }
             } else {
                 // if not a cacheable registry or not shouldCache, test other exceptions that might still
                 // allow dependency caching (if it's from static registry, it can't affect our decision on
@@ -575,24 +620,216 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         // In this case, we make sure that the initial validation is called, and put
         // the def in the 'built' set.
         //
-        compiling.def = registry.getDef(compiling.descriptor);
-        if (compiling.def == null) {
-            return false;
+        // If the def was parsed ahead of time, validateDefinition has already been called on it.
+        //
+        @SuppressWarnings("unchecked")
+        D prefetched = (D) currentCC.prefetched.remove(compiling.descriptor);
+        if (prefetched != null) {
+            compiling.def = prefetched;
+        } else {
+            compiling.def = registry.getDef(compiling.descriptor);
+            if (compiling.def == null) {
+                return false;
+            }
         }
         @SuppressWarnings("unchecked")
         DefDescriptor<D> canonical = (DefDescriptor<D>) compiling.def.getDescriptor();
         compiling.descriptor = canonical;
         currentCC.loggingService.incrementNum(LoggingService.DEF_COUNT);
-        context.pushCallingDescriptor(canonical);
-        try {
-            compiling.def.validateDefinition();
-        } finally {
-            context.popCallingDescriptor();
+        if (prefetched == null) {
+            context.pushCallingDescriptor(canonical);
+            try {
+                compiling.def.validateDefinition();
+            } finally {
+                context.popCallingDescriptor();
+            }
         }
         compiling.built = true;
         return true;
     }
 
+    /**
+     * Parse the definitions that a compile will need in parallel, ahead of the tree walk.
+     *
+     * This walks the dependencies breadth first, and hands each level of definitions that are neither local nor in the
+     * defs cache to the compile pool, where they are parsed and have validateDefinition() called. The workers run in
+     * contexts forked from ours, as this registry is not thread safe, and we wait for each level before going on.
+     *
+     * The parsed defs are only picked up by {@link #fillCompilingDef(CompilingDef, AuraContext)}, so the tree walk,
+     * levels, and uid are exactly what they would be without this. Anything that fails here is dropped, and loaded
+     * again by the tree walk, so that it fails there as usual. validateReferences() is left to the request thread, as
+     * it looks up other definitions in this registry.
+     *
+     * @param descriptor the top level descriptor being compiled.
+     * @param cc the compile context to fill.
+     */
+    private void prefetchDefs(@Nonnull DefDescriptor<?> descriptor, @Nonnull CompileContext cc) {
+        Set<DefDescriptor<?>> seen = Sets.newHashSet();
+        List<DefDescriptor<?>> level = Lists.newArrayList();
+        seen.add(descriptor);
+        level.add(descriptor);
+        while (!level.isEmpty()) {
+            List<Definition> found = Lists.newArrayList();
+            Map<DefDescriptor<?>, DefRegistry<?>> toParse = Maps.newLinkedHashMap();
+            for (DefDescriptor<?> desc : level) {
+                Definition def = getKnownDef(desc, cc, toParse);
+                if (def != null) {
+                    found.add(def);
+                }
+            }
+            if (!toParse.isEmpty()) {
+                Map<DefDescriptor<?>, Definition> parsed = parseInParallel(toParse);
+                cc.prefetched.putAll(parsed);
+                found.addAll(parsed.values());
+            }
+            Set<DefDescriptor<?>> deps = Sets.newLinkedHashSet();
+            for (Definition def : found) {
+                def.appendDependencies(deps);
+            }
+            level = Lists.newArrayList();
+            for (DefDescriptor<?> dep : deps) {
+                if (seen.add(dep)) {
+                    level.add(dep);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find a def that the tree walk will not have to parse, or mark it to be parsed.
+     *
+     * @return the def if we already have it, null if it is missing or must be parsed.
+     */
+    @CheckForNull
+    private <D extends Definition> D getKnownDef(@Nonnull DefDescriptor<D> descriptor, @Nonnull CompileContext cc,
+            @Nonnull Map<DefDescriptor<?>, DefRegistry<?>> toParse) {
+        @SuppressWarnings("unchecked")
+        CompilingDef<D> cd = (CompilingDef<D>) cc.compiled.get(descriptor);
+        if (cd != null && cd.def != null) {
+            return cd.def;
+        }
+        if (hasLocalDef(descriptor)) {
+            return getLocalDef(descriptor);
+        }
+        DefRegistry<D> registry = getRegistryFor(descriptor);
+        if (registry == null) {
+            return null;
+        }
+        if (registry.isStatic()) {
+            // cheap, and never cached, so just look it up to keep walking.
+            try {
+                return registry.getDef(descriptor);
+            } catch (QuickFixException qfe) {
+                return null;
+            }
+        }
+        if (registry.isCacheable() && shouldCache(descriptor)) {
+            @SuppressWarnings("unchecked")
+            Optional<D> opt = (Optional<D>) defsCache.getIfPresent(descriptor);
+            if (opt != null) {
+                return opt.orNull();
+            }
+            D restored = getRestoredDef(descriptor, registry);
+            if (restored != null) {
+                publish(defsCache, descriptor, Optional.of(restored), cc.generation);
+                return restored;
+            }
+        }
+        toParse.put(descriptor, registry);
+        return null;
+    }
+
+    /**
+     * Parse and validate a set of defs on the compile pool.
+     *
+     * The descriptors are split evenly over the pool, and each task runs in its own forked context.
+     *
+     * @param toParse the descriptors to parse, along with their registries.
+     * @return the defs that were parsed and validated without error.
+     */
+    private Map<DefDescriptor<?>, Definition> parseInParallel(Map<DefDescriptor<?>, DefRegistry<?>> toParse) {
+        final ContextService contextService = Aura.getContextService();
+        int taskCount = Math.min(COMPILE_THREADS, toParse.size());
+        List<List<Map.Entry<DefDescriptor<?>, DefRegistry<?>>>> chunks = Lists.newArrayList();
+        for (int i = 0; i < taskCount; i++) {
+            chunks.add(Lists.<Map.Entry<DefDescriptor<?>, DefRegistry<?>>> newArrayList());
+        }
+        int i = 0;
+        for (Map.Entry<DefDescriptor<?>, DefRegistry<?>> entry : toParse.entrySet()) {
+            chunks.get(i++ % taskCount).add(entry);
+        }
+        List<Callable<Map<DefDescriptor<?>, Definition>>> tasks = Lists.newArrayList();
+        for (final List<Map.Entry<DefDescriptor<?>, DefRegistry<?>>> chunk : chunks) {
+            final AuraContext fork = contextService.forkContext();
+            tasks.add(new Callable<Map<DefDescriptor<?>, Definition>>() {
+                @Override
+                public Map<DefDescriptor<?>, Definition> call() {
+                    Map<DefDescriptor<?>, Definition> parsed = Maps.newHashMap();
+                    // A task may be run by a thread that already has a context, in which case it is ours.
+                    boolean forked = !contextService.isEstablished();
+                    if (forked) {
+                        contextService.startForkedContext(fork);
+                    }
+                    try {
+                        for (Map.Entry<DefDescriptor<?>, DefRegistry<?>> entry : chunk) {
+                            Definition def = parseDef(entry.getKey(), entry.getValue());
+                            if (def != null) {
+                                parsed.put(entry.getKey(), def);
+                            }
+                        }
+                    } finally {
+                        if (forked) {
+                            contextService.endContext();
+                        }
+                    }
+                    return parsed;
+                }
+            });
+        }
+        Map<DefDescriptor<?>, Definition> parsed = Maps.newHashMap();
+        try {
+            for (Future<Map<DefDescriptor<?>, Definition>> result : compilePool.invokeAll(tasks)) {
+                try {
+                    parsed.putAll(result.get());
+                } catch (ExecutionException ee) {
+                    // Whatever was in there is parsed again by the tree walk.
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return parsed;
+    }
+
+    /**
+     * Parse and validate a single def in the current context.
+     *
+     * @return the def, or null if it could not be parsed or failed validation.
+     */
+    @CheckForNull
+    private static <D extends Definition> D parseDef(@Nonnull DefDescriptor<D> descriptor,
+            @Nonnull DefRegistry<?> registry) {
+        @SuppressWarnings("unchecked")
+        DefRegistry<D> typed = (DefRegistry<D>) registry;
+        AuraContext context = Aura.getContextService().getCurrentContext();
+        try {
+            D def = typed.getDef(descriptor);
+            if (def != null) {
+                context.pushCallingDescriptor(def.getDescriptor());
+                try {
+                    def.validateDefinition();
+                } finally {
+                    context.popCallingDescriptor();
+                }
+            }
+            return def;
+        } catch (QuickFixException qfe) {
+            return null;
+        } catch (RuntimeException re) {
+            return null;
+        }
+    }
+
     /**
      * A private helper routine to make the compiler code more sane.
      *
@@ -710,7 +947,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
                 defs.put(cd.descriptor, cd.def);
                 if (cd.built) {
                     if (cd.cacheable) { // false for non-internal namespaces, or non-cacheable registries
-                        defsCache.put(cd.descriptor, Optional.of(cd.def));
+                        publish(defsCache, cd.descriptor, Optional.of(cd.def), currentCC.generation);
                     }
                     cd.def.markValid();
                 }
@@ -751,10 +988,15 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             throw new AuraRuntimeException("Unexpected nesting of contexts. This is not allowed");
         }
         currentCC = cc;
+        long start = 0L;
         if (!nested) {
             currentCC.loggingService.startTimer(LoggingService.TIMER_DEFINITION_CREATION);
+            start = System.nanoTime();
         }
         try {
+            if (!nested && cc.compiling && compilePool != null) {
+                prefetchDefs(descriptor, cc);
+            }
             Set<DefDescriptor<?>> stack = Sets.newLinkedHashSet();
             try {
                 def = getHelper(descriptor, currentCC, stack, null);
@@ -785,6 +1027,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         } finally {
             if (!nested) {
                 currentCC.loggingService.stopTimer(LoggingService.TIMER_DEFINITION_CREATION);
+                Aura.getMetricsService().recordPhase(MetricsService.PHASE_DEFINITION_COMPILE, System.nanoTime() - start);
                 currentCC = null;
             }
         }
@@ -796,6 +1039,11 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
      * This routine always compiles the definition, even if it is in the caches. If the incoming descriptor does not
      * correspond to a definition, it will return null, otherwise, on failure it will throw a QuickFixException.
      *
+     * The one exception is when another thread is already compiling the same cacheable descriptor. In that case we
+     * wait for it to finish, and build from the entry that it cached instead, so that a burst of cache misses only
+     * compiles once. If there is no such entry, we compile anyway. Shadowing registries (see
+     * {@link #MasterDefRegistryImpl(MasterDefRegistryImpl)}) always compile for themselves.
+     *
      * Please look at {@link #localDependencies} if you are mucking in here.
      *
      * Side Effects:
@@ -814,13 +1062,70 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
     @CheckForNull
     protected <T extends Definition> DependencyEntry compileDE(@Nonnull DefDescriptor<T> descriptor)
             throws QuickFixException {
-        // See localDependencies commentcurrentCC
-        String key = makeLocalKey(descriptor);
-
         if (currentCC != null) {
             throw new AuraRuntimeException("Ugh, nested compileDE/buildDE on " + currentCC.topLevel
                     + " trying to build " + descriptor);
         }
+        if (!shouldCache(descriptor) || original != null) {
+            // Shadowing registries may be compiling for a registry that is itself in flight, so they never wait.
+            return compileDEInternal(descriptor);
+        }
+
+        String flightKey = makeNonUidGlobalKey(descriptor);
+        CountDownLatch done = new CountDownLatch(1);
+        CountDownLatch inFlight = compilingDEs.putIfAbsent(flightKey, done);
+        if (inFlight != null) {
+            DependencyEntry de = awaitCompiledDE(inFlight, descriptor);
+            if (de != null) {
+                return de;
+            }
+            return compileDEInternal(descriptor);
+        }
+        try {
+            return compileDEInternal(descriptor);
+        } finally {
+            compilingDEs.remove(flightKey, done);
+            done.countDown();
+        }
+    }
+
+    /**
+     * Wait for another thread to compile a descriptor, and build from the entry it cached.
+     *
+     * The definitions come out of the defs cache, so nothing is parsed or validated again here. If the other thread
+     * failed, or its entry could not be cached (e.g. it has uncacheable dependencies, or sources changed meanwhile),
+     * there is nothing to build from, and the caller has to compile for itself.
+     *
+     * @param inFlight the latch released once the other thread is done.
+     * @param descriptor the descriptor being compiled.
+     * @return the dependency entry, or null if the caller must compile.
+     */
+    @CheckForNull
+    private DependencyEntry awaitCompiledDE(@Nonnull CountDownLatch inFlight, @Nonnull DefDescriptor<?> descriptor) {
+        try {
+            inFlight.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        DependencyEntry de = getDE(null, descriptor);
+        if (de == null || de.qfe != null) {
+            return null;
+        }
+        try {
+            buildDE(de, descriptor);
+        } catch (QuickFixException qfe) {
+            // Something changed under us, compiling will sort it out.
+            return null;
+        }
+        return de;
+    }
+
+    @CheckForNull
+    private <T extends Definition> DependencyEntry compileDEInternal(@Nonnull DefDescriptor<T> descriptor)
+            throws QuickFixException {
+        // See localDependencies comment
+        String key = makeLocalKey(descriptor);
 
         try {
             List<ClientLibraryDef> clientLibs = Lists.newArrayList();
@@ -862,15 +1167,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
                 //
                 // Now update our hash.
                 //
-                sb.setLength(0);
-                sb.append(cd.descriptor.getQualifiedName().toLowerCase());
-                sb.append("|");
-                String hash = cd.def.getOwnHash();
-                if (hash != null) {
-                    sb.append(hash);
-                }
-                sb.append(",");
-                globalBuilder.addString(sb.toString());
+                addToUid(globalBuilder, sb, cd.descriptor, cd.def.getOwnHash());
             }
             uid = globalBuilder.build().toString();
 
@@ -894,11 +1191,15 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             de = new DependencyEntry(uid, Collections.unmodifiableSet(deps), clientLibs);
             if (shouldCache(descriptor)) {
                 // put UID-qualified descriptor key for dependency
-                depsCache.put(makeGlobalKey(de.uid, descriptor), de);
+                String globalKey = makeGlobalKey(de.uid, descriptor);
+                cachingService.registerDependencyEntry(globalKey, de);
+                publish(depsCache, globalKey, de, cc.generation);
 
                 // put unqualified descriptor key for dependency
                 if (cc.shouldCacheDependencies) {
-                    depsCache.put(makeNonUidGlobalKey(descriptor), de);
+                    String nonUidKey = makeNonUidGlobalKey(descriptor);
+                    cachingService.registerDependencyEntry(nonUidKey, de);
+                    publish(depsCache, nonUidKey, de, cc.generation);
                 }
             }
             // See localDependencies comment
@@ -912,6 +1213,136 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         }
     }
 
+    /**
+     * Add a definition to a uid being computed, the definitions must be added in descriptor order.
+     */
+    private static void addToUid(Hash.StringBuilder builder, StringBuilder sb, DefDescriptor<?> descriptor,
+            String ownHash) {
+        sb.setLength(0);
+        sb.append(descriptor.getQualifiedName().toLowerCase());
+        sb.append("|");
+        if (ownHash != null) {
+            sb.append(ownHash);
+        }
+        sb.append(",");
+        builder.addString(sb.toString());
+    }
+
+    /**
+     * Get a definition restored from the cache snapshot, if its source has not changed since.
+     *
+     * The definition was fully validated before it was cached, so it can be used just like one from the defs cache.
+     *
+     * @param descriptor the descriptor.
+     * @param registry the registry that the descriptor comes from, which must be cacheable.
+     * @return the definition, or null if there is none, or it is out of date.
+     */
+    @CheckForNull
+    private <D extends Definition> D getRestoredDef(@Nonnull DefDescriptor<D> descriptor,
+            @Nonnull DefRegistry<D> registry) {
+        if (definitionSnapshot == null || definitionSnapshot.isEmpty()) {
+            return null;
+        }
+        D def = definitionSnapshot.takeDef(descriptor);
+        if (def == null || !isSourceCurrent(descriptor, registry)) {
+            return null;
+        }
+        return def;
+    }
+
+    /**
+     * Get a dependency entry restored from the cache snapshot, if all of its dependencies are unchanged.
+     *
+     * We check this by computing the uid again from the current hashes of the dependencies, which must come either
+     * from unchanged sources or from static registries. The entry is put back into the dependency cache.
+     *
+     * @param key the key of the entry in the dependency cache.
+     * @return the entry, or null if there is none, or it is out of date.
+     */
+    @CheckForNull
+    private DependencyEntry getRestoredDE(@Nonnull String key) {
+        if (definitionSnapshot == null || definitionSnapshot.isEmpty()) {
+            return null;
+        }
+        long generation = cachingService.getGeneration();
+        DependencyEntry de = definitionSnapshot.takeDependencyEntry(key);
+        if (de == null) {
+            return null;
+        }
+        SortedMap<DefDescriptor<?>, String> hashes = Maps.newTreeMap();
+        for (DefDescriptor<?> dependency : de.dependencies) {
+            Optional<String> hash = getCurrentHash(dependency);
+            if (hash == null) {
+                return null;
+            }
+            hashes.put(dependency, hash.orNull());
+        }
+        StringBuilder sb = new StringBuilder(256);
+        Hash.StringBuilder builder = new Hash.StringBuilder();
+        for (Map.Entry<DefDescriptor<?>, String> entry : hashes.entrySet()) {
+            addToUid(builder, sb, entry.getKey(), entry.getValue());
+        }
+        if (!builder.build().toString().equals(de.uid)) {
+            return null;
+        }
+        cachingService.registerDependencyEntry(key, de);
+        publish(depsCache, key, de, generation);
+        return de;
+    }
+
+    /**
+     * Get the current hash of a definition without building it, for checking restored dependency entries.
+     *
+     * @return the hash (which may be absent), or null if we can't tell without building the definition.
+     */
+    @CheckForNull
+    private <D extends Definition> Optional<String> getCurrentHash(@Nonnull DefDescriptor<D> descriptor) {
+        Definition def = AuraStaticControllerDefRegistry.INSTANCE.getAll().get(descriptor);
+        if (def != null) {
+            return Optional.fromNullable(def.getOwnHash());
+        }
+        DefRegistry<D> registry = getRegistryFor(descriptor);
+        if (registry == null) {
+            return null;
+        }
+        if (registry.isStatic()) {
+            try {
+                def = registry.getDef(descriptor);
+            } catch (QuickFixException qfe) {
+                return null;
+            }
+            return def != null ? Optional.fromNullable(def.getOwnHash()) : null;
+        }
+        if (!isSourceCurrent(descriptor, registry)) {
+            return null;
+        }
+        return Optional.of(definitionSnapshot.getHash(descriptor));
+    }
+
+    /**
+     * Check that the source for a descriptor still has the hash recorded in the snapshot.
+     *
+     * The answer is kept for the rest of the request, as nothing changes for us once we have seen it.
+     */
+    private <D extends Definition> boolean isSourceCurrent(@Nonnull DefDescriptor<D> descriptor,
+            @Nonnull DefRegistry<D> registry) {
+        Boolean current = checkedSources.get(descriptor);
+        if (current == null) {
+            current = Boolean.FALSE;
+            String hash = definitionSnapshot.getHash(descriptor);
+            Source<D> source = hash != null ? registry.getSource(descriptor) : null;
+            if (source != null && source.exists()) {
+                try {
+                    current = Boolean.valueOf(hash.equals(new Hash(source.getReader()).toString()));
+                } catch (IOException ioe) {
+                    // treat it as changed, it will be loaded (and fail) as usual.
+                }
+            }
+            checkedSources.put(descriptor, current);
+        }
+        return current.booleanValue();
+    }
+
     /**
      * Get a dependency entry for a given uid.
      *
@@ -939,7 +1370,11 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
                 return de;
             }
             if (shouldCache(descriptor)) {
-                de = depsCache.getIfPresent(makeGlobalKey(uid, descriptor));
+                String globalKey = makeGlobalKey(uid, descriptor);
+                de = depsCache.getIfPresent(globalKey);
+                if (de == null) {
+                    de = getRestoredDE(globalKey);
+                }
             }
         } else {
             // See localDependencies comment
@@ -948,7 +1383,11 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
                 return de;
             }
             if (shouldCache(descriptor)) {
-                de = depsCache.getIfPresent(makeNonUidGlobalKey(descriptor));
+                String nonUidKey = makeNonUidGlobalKey(descriptor);
+                de = depsCache.getIfPresent(nonUidKey);
+                if (de == null) {
+                    de = getRestoredDE(nonUidKey);
+                }
             }
         }
         if (de != null) {
@@ -1042,14 +1481,14 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         }
 
         //
-        // Always check for a local def before locking.
+        // Always check for a local def first.
         //
         if (hasLocalDef(descriptor)) {
             return getLocalDef(descriptor);
         }
         //
         // If our current context is not null, we want to recurse in to properly include the defs when we
-        // are compiling. Note that in this case, we already own the lock, so it can be outside the locking below.
+        // are compiling.
         // When we are 'building' instead of 'compiling' we should already have the def somewhere, so we just
         // fill it in and continue. If no def is present, we explode.
         //
@@ -1073,45 +1512,40 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             //
             return compileDef(descriptor, currentCC);
         }
-        rLock.lock();
-        try {
-            DependencyEntry de = getDE(null, descriptor);
-            if (de == null) {
-                for (DependencyEntry det : localDependencies.values()) {
-                    if (det.dependencies != null && det.dependencies.contains(descriptor)) {
-                        de = det;
-                        break;
-                    }
+        DependencyEntry de = getDE(null, descriptor);
+        if (de == null) {
+            for (DependencyEntry det : localDependencies.values()) {
+                if (det.dependencies != null && det.dependencies.contains(descriptor)) {
+                    de = det;
+                    break;
                 }
+            }
 
-                if (de == null) {
-                    compileDE(descriptor);
+            if (de == null) {
+                compileDE(descriptor);
 
-                    @SuppressWarnings("unchecked")
-                    D def = (D) defs.get(descriptor);
-                    return def;
-                }
+                @SuppressWarnings("unchecked")
+                D def = (D) defs.get(descriptor);
+                return def;
             }
+        }
 
-            //
-            // found an entry.
-            // In this case, throw a QFE if we have one.
-            //
-            if (de.qfe != null) {
-                throw de.qfe;
-            }
+        //
+        // found an entry.
+        // In this case, throw a QFE if we have one.
+        //
+        if (de.qfe != null) {
+            throw de.qfe;
+        }
 
-            //
-            // Now we need to actually do the build..
-            //
-            buildDE(de, descriptor);
+        //
+        // Now we need to actually do the build..
+        //
+        buildDE(de, descriptor);
 
-            @SuppressWarnings("unchecked")
-            D def = (D) defs.get(descriptor);
-            return def;
-        } finally {
-            rLock.unlock();
-        }
+        @SuppressWarnings("unchecked")
+        D def = (D) defs.get(descriptor);
+        return def;
     }
 
     /**
@@ -1132,7 +1566,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         }
 
         //
-        // Always check for a local def before locking.
+        // Always check for a local def first.
         //
         if (hasLocalDef(descriptor)) {
             return getLocalDef(descriptor);
@@ -1178,6 +1612,7 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             return false;
         }
         cacheable = reg.isCacheable() && shouldCache(descriptor);
+        long generation = cachingService.getGeneration();
         if (cacheable) {
             //
             // Try our various caches.
@@ -1186,31 +1621,24 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
             if (val != null && val.booleanValue()) {
                 return true;
             }
-        }
-        rLock.lock();
-        try {
-            if (cacheable) {
-                Optional<?> opt = defsCache.getIfPresent(descriptor);
-                if (opt != null) {
-                    //
-                    // We cache here.
-                    //
-                    if (opt.isPresent()) {
-                        existsCache.put(descriptor, Boolean.TRUE);
-                        return true;
-                    } else {
-                        existsCache.put(descriptor, Boolean.FALSE);
-                        return false;
-                    }
+            Optional<?> opt = defsCache.getIfPresent(descriptor);
+            if (opt != null) {
+                //
+                // We cache here.
+                //
+                if (opt.isPresent()) {
+                    publish(existsCache, descriptor, Boolean.TRUE, generation);
+                    return true;
+                } else {
+                    publish(existsCache, descriptor, Boolean.FALSE, generation);
+                    return false;
                 }
             }
-            regExists = reg.exists(descriptor);
-            if (cacheable) {
-                Boolean cacheVal = Boolean.valueOf(regExists);
-                existsCache.put(descriptor, cacheVal);
-            }
-        } finally {
-            rLock.unlock();
+        }
+        regExists = reg.exists(descriptor);
+        if (cacheable) {
+            Boolean cacheVal = Boolean.valueOf(regExists);
+            publish(existsCache, descriptor, cacheVal, generation);
         }
         if (regExists == false) {
             // Cache negatives to avoid excessive lookups.
@@ -1219,6 +1647,29 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
         return regExists;
     }
 
+    /**
+     * Put a value in one of the global caches.
+     *
+     * No lock is held while reading, so if the caches were being invalidated when we noted the generation, or were
+     * invalidated since, the value may have been computed from stale sources. In the first case we don't put it at
+     * all, as the invalidation may not have reached the sources we read yet. In the second we take it out again, as
+     * the invalidation may have run before our put.
+     *
+     * @param cache the global cache.
+     * @param key the key to put.
+     * @param value the value computed.
+     * @param generation the cache generation noted before reading anything that went into the value.
+     */
+    private <K, V> void publish(Cache<K, V> cache, K key, V value, long generation) {
+        if (generation % 2 != 0) {
+            return;
+        }
+        cache.put(key, value);
+        if (cachingService.getGeneration() != generation) {
+            cache.invalidate(key);
+        }
+    }
+
     /**
      * This figures out based on prefix what registry this component is for, it could return null if the prefix is not
      * found.
@@ -1408,15 +1859,15 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
 
     @Override
     public String getCachedString(String uid, DefDescriptor<?> descriptor, String key) {
-    	return getCachedString(stringsCache, uid, descriptor, key);
+    	return getCachedValue(stringsCache, uid, descriptor, key);
     }
 
     @Override
-    public String getAltCachedString(String uid, DefDescriptor<?> descriptor, String key) {
-    	return getCachedString(altStringsCache, uid, descriptor, key);
+    public byte[] getAltCachedBytes(String uid, DefDescriptor<?> descriptor, String key) {
+    	return getCachedValue(altBytesCache, uid, descriptor, key);
     }
 
-    private String getCachedString(Cache<String, String> cache, String uid, DefDescriptor<?> descriptor, String key) {
+    private <V> V getCachedValue(Cache<String, V> cache, String uid, DefDescriptor<?> descriptor, String key) {
         if (shouldCache(descriptor)) {
             DependencyEntry de = localDependencies.get(uid);
 
@@ -1429,15 +1880,15 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
 
     @Override
     public String getCachedString(String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader) throws QuickFixException, IOException {
-    	return getCachedString(stringsCache, uid, descriptor, key, loader);
+    	return getCachedValue(stringsCache, uid, descriptor, key, loader);
     }
 
     @Override
-    public String getAltCachedString(String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader) throws QuickFixException, IOException {
-    	return getCachedString(altStringsCache, uid, descriptor, key, loader);
+    public byte[] getAltCachedBytes(String uid, DefDescriptor<?> descriptor, String key, Callable<byte[]> loader) throws QuickFixException, IOException {
+    	return getCachedValue(altBytesCache, uid, descriptor, key, loader);
     }
 
-    private String getCachedString(Cache<String, String> cache, String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader) throws QuickFixException, IOException {
+    private <V> V getCachedValue(Cache<String, V> cache, String uid, DefDescriptor<?> descriptor, String key, Callable<V> loader) throws QuickFixException, IOException {
     	if (shouldCache(descriptor)) {
 	        DependencyEntry de = localDependencies.get(uid);
 
@@ -1504,28 +1955,23 @@ public class MasterDefRegistryImpl implements MasterDefRegistry {
 
         DependencyEntry de = null;
 
-        rLock.lock();
-        try {
-            de = getDE(uid, descriptor);
-            if (de == null) {
-                try {
-                    de = compileDE(descriptor);
-                    //
-                    // If we can't find our descriptor, we just give back a null.
-                    if (de == null) {
-                        return null;
-                    }
-                } catch (QuickFixException qfe) {
-                    // try to pick it up from the cache.
-                    de = getDE(null, descriptor);
-                    // this should never happen.
-                    if (de == null) {
-                        throw new AuraRuntimeException("unexpected null on QFE");
-                    }
+        de = getDE(uid, descriptor);
+        if (de == null) {
+            try {
+                de = compileDE(descriptor);
+                //
+                // If we can't find our descriptor, we just give back a null.
+                if (de == null) {
+                    return null;
+                }
+            } catch (QuickFixException qfe) {
+                // try to pick it up from the cache.
+                de = getDE(null, descriptor);
+                // this should never happen.
+                if (de == null) {
+                    throw new AuraRuntimeException("unexpected null on QFE");
                 }
             }
-        } finally {
-            rLock.unlock();
         }
         if (de.qfe != null) {
             throw de.qfe;
@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.Definition;
+import org.auraframework.system.DefRegistry;
+import org.auraframework.throwable.AuraRuntimeException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * The binary format for pre-compiled static registries (the '.registries' file).
+ *
+ * The file starts with a magic number and a format version, followed by a table of all of the strings used by the
+ * descriptors, and then the registries. Each registry lists its def types, prefixes and namespaces, then a descriptor
+ * table with, for each definition, its descriptor (as indexes into the string table) and the length of the encoded
+ * definition. The encoded definitions follow the table, in the same order.
+ *
+ * This means that a registry can be read without decoding a single definition: only the descriptors are built, and
+ * each definition is decoded when it is first asked for (see {@link EncodedStaticDefRegistryImpl}). When the file is
+ * on disk, it is memory mapped, so that the encoded definitions are not even read onto the heap. The definitions
+ * themselves are still encoded with Java serialization, each one on its own, as they are far too varied to encode by
+ * hand.
+ *
+ * Files written with plain Java serialization of the registry list can still be read by the caller, use
+ * {@link #isEncoded(InputStream)} to tell them apart.
+ */
+public final class StaticRegistryCodec {
+    /** 'AREG', never the start of a Java serialization stream (0xACED) */
+    private static final int MAGIC = 0x41524547;
+
+    private static final int VERSION = 1;
+
+    /** A descriptor given by qualified name, type, and bundle */
+    private static final int DESCRIPTOR_NAMED = 0;
+
+    /** A descriptor of some other kind, encoded with Java serialization */
+    private static final int DESCRIPTOR_SERIALIZED = 1;
+
+    private static final int NO_STRING = -1;
+
+    private StaticRegistryCodec() {
+    }
+
+    /**
+     * Check whether a stream holds registries in this format, without consuming it.
+     *
+     * @param in a stream supporting mark and reset.
+     * @return true if the stream starts with our magic number.
+     */
+    public static boolean isEncoded(InputStream in) throws IOException {
+        in.mark(4);
+        try {
+            DataInputStream data = new DataInputStream(in);
+            return data.readInt() == MAGIC;
+        } catch (IOException ioe) {
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Write a set of static registries.
+     *
+     * @param registries the registries to write.
+     * @param out the stream to write to, which is not closed.
+     */
+    public static void write(Collection<? extends StaticDefRegistryImpl<?>> registries, OutputStream out)
+            throws IOException {
+        StringTable strings = new StringTable();
+        List<byte[]> encodedRegistries = Lists.newArrayList();
+        for (StaticDefRegistryImpl<?> registry : registries) {
+            encodedRegistries.add(encodeRegistry(registry, strings));
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(strings.list.size());
+        for (String string : strings.list) {
+            data.writeUTF(string);
+        }
+        data.writeInt(encodedRegistries.size());
+        for (byte[] encoded : encodedRegistries) {
+            data.write(encoded);
+        }
+        data.flush();
+    }
+
+    /**
+     * Read a set of static registries from a stream.
+     *
+     * The whole stream is read onto the heap, use {@link #read(File)} when the registries are in a file.
+     *
+     * @param in the stream to read from, which must start with our magic number. It is not closed.
+     * @return the registries, with the definitions not yet decoded.
+     */
+    public static DefRegistry<?>[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return read(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    /**
+     * Read a set of static registries from a file, by memory mapping it.
+     *
+     * @param file the file to read.
+     * @return the registries, with the definitions not yet decoded, or null if the file is not in this format.
+     */
+    public static DefRegistry<?>[] read(File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid once the channel is closed.
+            buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 4 || buffer.getInt(0) != MAGIC) {
+            return null;
+        }
+        return read(buffer);
+    }
+
+    /**
+     * Read a set of static registries from a buffer.
+     *
+     * The registries keep the buffer, and decode their definitions straight out of it.
+     */
+    private static DefRegistry<?>[] read(ByteBuffer buffer) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteBufferInputStream(buffer));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a registries file");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unknown registries file version " + version);
+        }
+        String[] strings = new String[data.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = data.readUTF().intern();
+        }
+        DefRegistry<?>[] registries = new DefRegistry<?>[data.readInt()];
+        for (int i = 0; i < registries.length; i++) {
+            registries[i] = readRegistry(data, buffer, strings);
+        }
+        return registries;
+    }
+
+    /**
+     * Decode a single definition.
+     *
+     * @param buffer the buffer that the registry was read from.
+     * @param offset the offset of the encoded definition in the buffer.
+     * @param length the length of the encoded definition.
+     * @return the definition.
+     */
+    public static <T extends Definition> T decodeDef(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer encoded = buffer.duplicate();
+        encoded.limit(offset + length);
+        encoded.position(offset);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(encoded))) {
+            @SuppressWarnings("unchecked")
+            T def = (T) in.readObject();
+            return def;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new AuraRuntimeException("Unable to decode definition", e);
+        }
+    }
+
+    private static <T extends Definition> byte[] encodeRegistry(StaticDefRegistryImpl<T> registry,
+            StringTable strings) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(header);
+
+        Set<DefType> defTypes = registry.getDefTypes();
+        data.writeInt(defTypes.size());
+        for (DefType defType : defTypes) {
+            data.writeInt(strings.indexOf(defType.name()));
+        }
+        writeStrings(data, registry.getPrefixes(), strings);
+        writeStrings(data, registry.getNamespaces(), strings);
+
+        Map<DefDescriptor<T>, T> defs = registry.defs;
+        data.writeInt(defs.size());
+        for (Map.Entry<DefDescriptor<T>, T> entry : defs.entrySet()) {
+            writeDescriptor(data, entry.getKey(), strings);
+            byte[] encoded = serialize(entry.getValue());
+            data.writeInt(encoded.length);
+            body.write(encoded);
+        }
+        data.flush();
+        body.writeTo(header);
+        return header.toByteArray();
+    }
+
+    private static DefRegistry<?> readRegistry(DataInputStream data, ByteBuffer buffer, String[] strings)
+            throws IOException {
+        Set<DefType> defTypes = Sets.newHashSet();
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            defTypes.add(DefType.valueOf(strings[data.readInt()]));
+        }
+        Set<String> prefixes = readStrings(data, strings);
+        Set<String> namespaces = readStrings(data, strings);
+
+        count = data.readInt();
+        List<DefDescriptor<Definition>> descriptors = Lists.newArrayListWithCapacity(count);
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            descriptors.add(readDescriptor(data, strings));
+            lengths[i] = data.readInt();
+        }
+        // The definitions follow the table, we only note where each one is.
+        Map<DefDescriptor<Definition>, Long> index = Maps.newHashMapWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            int offset = buffer.position();
+            index.put(descriptors.get(i), EncodedStaticDefRegistryImpl.location(offset, lengths[i]));
+            buffer.position(offset + lengths[i]);
+        }
+        return new EncodedStaticDefRegistryImpl<>(defTypes, prefixes, namespaces, buffer, index);
+    }
+
+    private static void writeStrings(DataOutputStream data, Set<String> values, StringTable strings)
+            throws IOException {
+        if (values == null) {
+            data.writeInt(NO_STRING);
+            return;
+        }
+        data.writeInt(values.size());
+        for (String value : values) {
+            data.writeInt(strings.indexOf(value));
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream data, String[] strings) throws IOException {
+        int count = data.readInt();
+        if (count == NO_STRING) {
+            return null;
+        }
+        Set<String> values = Sets.newHashSetWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            values.add(strings[data.readInt()]);
+        }
+        return values;
+    }
+
+    private static void writeDescriptor(DataOutputStream data, DefDescriptor<?> descriptor, StringTable strings)
+            throws IOException {
+        DefDescriptor<?> bundle = descriptor.getBundle();
+        if (descriptor.getClass() != DefDescriptorImpl.class
+                || (bundle != null && (bundle.getClass() != DefDescriptorImpl.class || bundle.getBundle() != null))) {
+            data.writeByte(DESCRIPTOR_SERIALIZED);
+            byte[] encoded = serialize(descriptor);
+            data.writeInt(encoded.length);
+            data.write(encoded);
+            return;
+        }
+        data.writeByte(DESCRIPTOR_NAMED);
+        data.writeInt(strings.indexOf(descriptor.getQualifiedName()));
+        data.writeInt(strings.indexOf(descriptor.getDefType().name()));
+        if (bundle == null) {
+            data.writeInt(NO_STRING);
+        } else {
+            data.writeInt(strings.indexOf(bundle.getQualifiedName()));
+            data.writeInt(strings.indexOf(bundle.getDefType().name()));
+        }
+    }
+
+    private static DefDescriptor<Definition> readDescriptor(DataInputStream data, String[] strings)
+            throws IOException {
+        int kind = data.readByte();
+        if (kind == DESCRIPTOR_SERIALIZED) {
+            byte[] encoded = new byte[data.readInt()];
+            data.readFully(encoded);
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(encoded))) {
+                @SuppressWarnings("unchecked")
+                DefDescriptor<Definition> descriptor = (DefDescriptor<Definition>) in.readObject();
+                return descriptor;
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException("Unable to decode descriptor", cnfe);
+            }
+        }
+        if (kind != DESCRIPTOR_NAMED) {
+            throw new IOException("Unknown descriptor kind " + kind);
+        }
+        String qualifiedName = strings[data.readInt()];
+        DefType defType = DefType.valueOf(strings[data.readInt()]);
+        DefDescriptor<?> bundle = null;
+        int bundleName = data.readInt();
+        if (bundleName != NO_STRING) {
+            DefType bundleType = DefType.valueOf(strings[data.readInt()]);
+            bundle = DefDescriptorImpl.getInstance(strings[bundleName], bundleType.getPrimaryInterface());
+        }
+        @SuppressWarnings("unchecked")
+        DefDescriptor<Definition> descriptor = (DefDescriptor<Definition>) DefDescriptorImpl.getInstance(
+                qualifiedName, defType.getPrimaryInterface(), bundle);
+        return descriptor;
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A stream over a byte buffer, which moves the position of the buffer as it is read.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * The strings that we have written, each one only once.
+     */
+    private static class StringTable {
+        private final Map<String, Integer> indexes = Maps.newHashMap();
+        private final List<String> list = Lists.newArrayList();
+
+        private int indexOf(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = list.size();
+                indexes.put(value, index);
+                list.add(value);
+            }
+            return index;
+        }
+    }
+}
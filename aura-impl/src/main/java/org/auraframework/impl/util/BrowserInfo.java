@@ -49,6 +49,7 @@ import static org.auraframework.impl.util.UserAgent.VERSIONED_CUTOFF;
 
 import org.apache.commons.lang3.StringUtils;
 import org.auraframework.impl.util.UserAgent.UA;
+import org.auraframework.system.UserAgentCache;
 
 // user-agent parser to provide browser information
 public class BrowserInfo {
@@ -144,6 +145,23 @@ public class BrowserInfo {
         parseUserAgent();
     }
 
+    /**
+     * Get the browser info for a user agent, parsed once and kept in the {@link UserAgentCache}.
+     *
+     * @param userAgentString the raw user agent, may be null.
+     * @return the browser info, shared by every caller with the same user agent.
+     */
+    public static BrowserInfo get(String userAgentString) {
+        UserAgentCache.Entry entry = UserAgentCache.getInstance().get(userAgentString);
+        Object details = entry.getDetails();
+        if (details instanceof BrowserInfo) {
+            return (BrowserInfo) details;
+        }
+        BrowserInfo info = new BrowserInfo(userAgentString);
+        entry.setDetails(info);
+        return info;
+    }
+
     public boolean isTablet() {
         return isTablet;
     }
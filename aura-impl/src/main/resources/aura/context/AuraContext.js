@@ -34,6 +34,10 @@ Aura.Context.AuraContext = function AuraContext(config, initCallback) {
     // make a shallow-copy to use when the context is reset
     this.loadedOriginal = $A.util.apply({}, this.loaded);
 
+    // The server sends a hash of the loaded set when it can take the set back by hash.
+    this.loadedHashing = config["loadedHash"] !== undefined;
+    this.setLoadedHash(config["loadedHash"]);
+
     this.fwuid = config["fwuid"];
     this.num = 0;
 
@@ -258,7 +262,15 @@ Aura.Context.AuraContext.prototype.encodeForServer = function(includeDynamic) {
         contextToSend["test"] = this.test;
     }
     if (includeDynamic) {
-        contextToSend["loaded"] = this.loaded;
+        if (this.loadedHash) {
+            contextToSend["loadedHash"] = this.loadedHash;
+            contextToSend["loaded"] = this.getLoadedChanges();
+        } else {
+            if (this.loadedHashing) {
+                contextToSend["loadedHash"] = "";
+            }
+            contextToSend["loaded"] = this.loaded;
+        }
         contextToSend["dn"] = $A.services.component.getDynamicNamespaces();
         contextToSend["globals"] = this.globalValueProviders.getValueProvider("$Global").serializeForServer();
     }
@@ -317,6 +329,10 @@ Aura.Context.AuraContext.prototype.merge = function(otherContext) {
 
     this.joinComponentConfigs(otherContext["components"], ""+this.getNum());
     this.joinLoaded(otherContext["loaded"]);
+    if (otherContext["loadedHash"] !== undefined) {
+        this.loadedHashing = true;
+    }
+    this.setLoadedHash(otherContext["loadedHash"]);
 };
 
 /**
@@ -559,6 +575,83 @@ Aura.Context.AuraContext.prototype.joinLoaded = function(loaded) {
     }
 };
 
+/**
+ * Hash a loaded set, in the same way as the server (LoadedSetCache.java).
+ *
+ * This is a pair of 32 bit string hashes (FNV-1a and the java String hash), over each key and uid in key order,
+ * each followed by a newline.
+ *
+ * @param {Object} loaded the loaded set.
+ * @returns {String} the hash, as 16 hex digits.
+ * @private
+ */
+Aura.Context.AuraContext.prototype.hashLoaded = function(loaded) {
+    var keys = [];
+    var key, i, j, str;
+    for (key in loaded) {
+        if (loaded.hasOwnProperty(key)) {
+            keys.push(key);
+        }
+    }
+    keys.sort();
+    var fnv = 0x811c9dc5 | 0;
+    var java = 0;
+    for (i = 0; i < keys.length * 2; i++) {
+        str = (i % 2 === 0) ? keys[i / 2] : String(loaded[keys[(i - 1) / 2]]);
+        str += "\n";
+        for (j = 0; j < str.length; j++) {
+            var c = str.charCodeAt(j);
+            fnv ^= c;
+            // fnv * 16777619, modulo 2^32
+            fnv = (fnv + (fnv << 1) + (fnv << 4) + (fnv << 7) + (fnv << 8) + (fnv << 24)) | 0;
+            java = ((java << 5) - java + c) | 0;
+        }
+    }
+    return ("0000000" + (fnv >>> 0).toString(16)).slice(-8) + ("0000000" + (java >>> 0).toString(16)).slice(-8);
+};
+
+/**
+ * Take the token for the loaded set from the server.
+ *
+ * The token starts with the hash of the set it was issued for, and is only kept if that matches the set we have,
+ * which it may not if the set was changed while the request was out, along with a copy of the set, so that only the
+ * changes need to be sent.
+ *
+ * @param {String} hash the token from the server, if any.
+ * @private
+ */
+Aura.Context.AuraContext.prototype.setLoadedHash = function(hash) {
+    if (hash && hash.slice(0, 16) === this.hashLoaded(this.loaded)) {
+        this.loadedHash = hash;
+        this.loadedAtHash = $A.util.apply({}, this.loaded);
+    } else {
+        this.loadedHash = undefined;
+        this.loadedAtHash = undefined;
+    }
+};
+
+/**
+ * Get the changes to the loaded set since it was last hashed, with dropped entries marked as 'deleted'.
+ *
+ * @returns {Object} the changed entries.
+ * @private
+ */
+Aura.Context.AuraContext.prototype.getLoadedChanges = function() {
+    var changes = {};
+    var key;
+    for (key in this.loaded) {
+        if (this.loaded.hasOwnProperty(key) && this.loaded[key] !== this.loadedAtHash[key]) {
+            changes[key] = this.loaded[key];
+        }
+    }
+    for (key in this.loadedAtHash) {
+        if (this.loadedAtHash.hasOwnProperty(key) && !this.loaded.hasOwnProperty(key)) {
+            changes[key] = "deleted";
+        }
+    }
+    return changes;
+};
+
 /**
  * Add back a loaded pair that was extracted using 'findLoaded'.
  *
@@ -605,6 +698,7 @@ Aura.Context.AuraContext.prototype.getLoaded = function() {
  */
 Aura.Context.AuraContext.prototype.resetLoaded = function() {
     this.loaded = $A.util.apply({}, this.loadedOriginal);
+    this.setLoadedHash(undefined);
 };
 
 /**
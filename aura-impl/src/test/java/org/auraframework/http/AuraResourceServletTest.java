@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.auraframework.Aura;
+import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.cache.Cache;
+import org.auraframework.system.AuraContext;
+import org.auraframework.system.CacheableAuraResource;
+import org.auraframework.system.CompressedResource;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.google.common.net.HttpHeaders;
+
+/**
+ * Tests for the response caching in {@link AuraResourceServlet#writeCompressed}.
+ */
+public class AuraResourceServletTest extends UnitTestCase {
+    private static final String KEY = "AuraResourceServletTest@app.js@{}";
+    private static final String BODY = "var a = 1;";
+
+    private final AuraResourceServlet servlet = new AuraResourceServlet();
+    private final ServletUtilAdapter servletUtil = Mockito.mock(ServletUtilAdapter.class);
+    private final AuraContext context = Mockito.mock(AuraContext.class);
+    private Cache<String, CompressedResource> cache;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        cache = Aura.getCachingService().getResourceResponseCache();
+        cache.invalidate(KEY);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        cache.invalidate(KEY);
+        super.tearDown();
+    }
+
+    /**
+     * Get a resource that writes the body, with the given headers, and an error if status is not 200.
+     */
+    private CacheableAuraResource mockResource(String key, final int status, final String... headers)
+            throws IOException {
+        CacheableAuraResource resource = Mockito.mock(CacheableAuraResource.class);
+        Mockito.when(resource.getResponseCacheKey(Mockito.any(HttpServletRequest.class),
+                Mockito.any(AuraContext.class))).thenReturn(key);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                HttpServletResponse response = (HttpServletResponse) invocation.getArguments()[1];
+                for (int i = 0; i < headers.length; i += 2) {
+                    response.setHeader(headers[i], headers[i + 1]);
+                }
+                if (status != HttpServletResponse.SC_OK) {
+                    response.sendError(status);
+                    return null;
+                }
+                response.getWriter().write(BODY);
+                return null;
+            }
+        }).when(resource).write(Mockito.any(HttpServletRequest.class), Mockito.any(HttpServletResponse.class),
+                Mockito.any(AuraContext.class));
+        return resource;
+    }
+
+    @Test
+    public void testResourceWithoutKeyIsStreamed() throws Exception {
+        CacheableAuraResource resource = mockResource(null, HttpServletResponse.SC_OK);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        servlet.writeCompressed(resource, servletUtil, request, response, context);
+
+        // written straight to the response, not buffered, compressed or kept.
+        Mockito.verify(resource, Mockito.times(1)).write(request, response, context);
+        assertEquals(BODY, response.getContentAsString());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+        assertNull(cache.getIfPresent(KEY));
+    }
+
+    @Test
+    public void testResponseIsKeptAndServedFromCache() throws Exception {
+        CacheableAuraResource resource = mockResource(KEY, HttpServletResponse.SC_OK);
+        MockHttpServletResponse first = new MockHttpServletResponse();
+
+        servlet.writeCompressed(resource, servletUtil, new MockHttpServletRequest(), first, context);
+        assertEquals(BODY, first.getContentAsString());
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertNotNull(cache.getIfPresent(KEY));
+
+        MockHttpServletRequest gzip = new MockHttpServletRequest();
+        gzip.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        servlet.writeCompressed(resource, servletUtil, gzip, second, context);
+        assertEquals("gzip", second.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(cache.getIfPresent(KEY).getContent("gzip").length, second.getContentAsByteArray().length);
+        Mockito.verify(servletUtil, Mockito.times(1)).setLongCache(second);
+
+        MockHttpServletRequest revalidate = new MockHttpServletRequest();
+        revalidate.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse third = new MockHttpServletResponse();
+        servlet.writeCompressed(resource, servletUtil, revalidate, third, context);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, third.getStatus());
+        assertEquals(0, third.getContentAsByteArray().length);
+
+        // only the first request generated the output.
+        Mockito.verify(resource, Mockito.times(1)).write(Mockito.any(HttpServletRequest.class),
+                Mockito.any(HttpServletResponse.class), Mockito.any(AuraContext.class));
+    }
+
+    @Test
+    public void testNoCacheResponseIsPassedThrough() throws Exception {
+        CacheableAuraResource resource = mockResource(KEY, HttpServletResponse.SC_OK,
+                HttpHeaders.CACHE_CONTROL, "no-cache, no-store");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        servlet.writeCompressed(resource, servletUtil, request, response, context);
+
+        assertEquals(BODY, response.getContentAsString());
+        assertEquals(BODY.getBytes(StandardCharsets.UTF_8).length, response.getContentLength());
+        assertEquals("no-cache, no-store", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertNull(cache.getIfPresent(KEY));
+    }
+
+    @Test
+    public void testErrorIsPassedThrough() throws Exception {
+        CacheableAuraResource resource = mockResource(KEY, HttpServletResponse.SC_NOT_FOUND);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        servlet.writeCompressed(resource, servletUtil, new MockHttpServletRequest(), response, context);
+
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertNull(cache.getIfPresent(KEY));
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.log4j.WriterAppender;
 import org.apache.log4j.spi.LoggingEvent;
 import org.auraframework.cache.Cache;
 import org.auraframework.def.ApplicationDef;
+import org.auraframework.def.ClientLibraryDef;
 import org.auraframework.def.ComponentDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
@@ -39,6 +40,7 @@ import org.auraframework.def.HelperDef;
 import org.auraframework.def.StyleDef;
 import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.service.CachingService;
+import org.auraframework.system.CompressedResource;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.SourceListener;
 import org.auraframework.system.SourceListener.SourceMonitorEvent;
@@ -369,4 +371,148 @@ public class CachingServiceImplTest extends AuraImplTestCase {
 					}
 				}, keys);
 	}
+
+    @Test
+    public void testNotifyDependentSourceChange_InvalidatesOnlyDependentEntriesOnChange() {
+		DefDescriptor<ComponentDef> changed = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:changed"), ComponentDef.class);
+		DefDescriptor<ComponentDef> unchanged = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:unchanged"), ComponentDef.class);
+		Set<DefDescriptor<? extends Definition>> dependentDeps = Sets.newHashSet();
+		dependentDeps.add(changed);
+		dependentDeps.add(unchanged);
+		Set<DefDescriptor<? extends Definition>> independentDeps = Sets.newHashSet();
+		independentDeps.add(unchanged);
+		DependencyEntry dependent = new DependencyEntry("dependentUid", dependentDeps,
+				Collections.<ClientLibraryDef> emptyList());
+		DependencyEntry independent = new DependencyEntry("independentUid", independentDeps,
+				Collections.<ClientLibraryDef> emptyList());
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		service.registerDependencyEntry("dependentUid/key", dependent);
+		service.getDepsCache().put("dependentUid/key", dependent);
+		service.registerDependencyEntry("dependent", dependent);
+		service.getDepsCache().put("dependent", dependent);
+		service.registerDependencyEntry("independentUid/key", independent);
+		service.getDepsCache().put("independentUid/key", independent);
+		service.getStringsCache().put("dependentUid@some:app@SVG", "");
+		service.getStringsCache().put("independentUid@some:app@SVG", "");
+		service.getAltBytesCache().put("dependentUid@some:app@JS", new byte[0]);
+		service.getAltBytesCache().put("independentUid@some:app@JS", new byte[0]);
+		service.getResourceResponseCache().put("dependentUid@app.js@", CompressedResource.create(new byte[0]));
+		service.getResourceResponseCache().put("independentUid@app.js@", CompressedResource.create(new byte[0]));
+		service.getDescriptorFilterCache().put("filter", Collections.<DefDescriptor<?>> emptySet());
+
+		service.notifyDependentSourceChange(Collections.<WeakReference<SourceListener>> emptySet(), changed,
+				SourceMonitorEvent.CHANGED, null);
+
+		assertNull(service.getDepsCache().getIfPresent("dependentUid/key"));
+		assertNull(service.getDepsCache().getIfPresent("dependent"));
+		assertNotNull(service.getDepsCache().getIfPresent("independentUid/key"));
+		assertNull(service.getStringsCache().getIfPresent("dependentUid@some:app@SVG"));
+		assertNotNull(service.getStringsCache().getIfPresent("independentUid@some:app@SVG"));
+		assertNull(service.getAltBytesCache().getIfPresent("dependentUid@some:app@JS"));
+		assertNotNull(service.getAltBytesCache().getIfPresent("independentUid@some:app@JS"));
+		assertNull(service.getResourceResponseCache().getIfPresent("dependentUid@app.js@"));
+		assertNotNull(service.getResourceResponseCache().getIfPresent("independentUid@app.js@"));
+		assertNotNull(service.getDescriptorFilterCache().getIfPresent("filter"));
+	}
+
+    @Test
+    public void testNotifyDependentSourceChange_InvalidatesAllDependenciesOnCreate() {
+		DefDescriptor<ComponentDef> created = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:created"), ComponentDef.class);
+		DefDescriptor<ComponentDef> other = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:other"), ComponentDef.class);
+		Set<DefDescriptor<? extends Definition>> deps = Sets.newHashSet();
+		deps.add(other);
+		DependencyEntry de = new DependencyEntry("uid", deps, Collections.<ClientLibraryDef> emptyList());
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		service.registerDependencyEntry("uid/key", de);
+		service.getDepsCache().put("uid/key", de);
+		service.getDescriptorFilterCache().put("filter", Collections.<DefDescriptor<?>> emptySet());
+		service.getResourceResponseCache().put("uid@app.js@", CompressedResource.create(new byte[0]));
+
+		service.notifyDependentSourceChange(Collections.<WeakReference<SourceListener>> emptySet(), created,
+				SourceMonitorEvent.CREATED, null);
+
+		assertNull(service.getDepsCache().getIfPresent("uid/key"));
+		assertNull(service.getDescriptorFilterCache().getIfPresent("filter"));
+		assertNull(service.getResourceResponseCache().getIfPresent("uid@app.js@"));
+	}
+
+    @Test
+    public void testNotifyDependentSourceChange_InvalidatesAllDependenciesOnChangeOfUnindexedDescriptor() {
+		DefDescriptor<ComponentDef> changed = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:changed"), ComponentDef.class);
+		DefDescriptor<ComponentDef> other = DefDescriptorImpl.getInstance(
+				getAuraTestingUtil().getNonce("markup://some:other"), ComponentDef.class);
+		Set<DefDescriptor<? extends Definition>> deps = Sets.newHashSet();
+		deps.add(other);
+		DependencyEntry de = new DependencyEntry("uid", deps, Collections.<ClientLibraryDef> emptyList());
+
+		CachingServiceImpl service = new CachingServiceImpl();
+		service.registerDependencyEntry("uid/key", de);
+		service.getDepsCache().put("uid/key", de);
+		// put without being registered, so the index cannot know what it depends on.
+		service.getDepsCache().put("unregistered/key", de);
+		service.getStringsCache().put("unregistered@some:app@SVG", "");
+		service.getResourceResponseCache().put("unregistered@app.js@", CompressedResource.create(new byte[0]));
+
+		service.notifyDependentSourceChange(Collections.<WeakReference<SourceListener>> emptySet(), changed,
+				SourceMonitorEvent.CHANGED, null);
+
+		assertNull(service.getDepsCache().getIfPresent("uid/key"));
+		assertNull(service.getDepsCache().getIfPresent("unregistered/key"));
+		assertNull(service.getStringsCache().getIfPresent("unregistered@some:app@SVG"));
+		assertNull(service.getResourceResponseCache().getIfPresent("unregistered@app.js@"));
+	}
+
+    @Test
+    public void testNotifyDependentSourceChange_ChangesGeneration() {
+		final CachingServiceImpl service = new CachingServiceImpl();
+		final long before = service.getGeneration();
+		final List<Long> duringNotify = Lists.newArrayList();
+		SourceListener listener = new SourceListener() {
+			@Override
+			public void onSourceChanged(DefDescriptor<?> source, SourceMonitorEvent event, String filePath) {
+				duringNotify.add(service.getGeneration());
+			}
+		};
+		Collection<WeakReference<SourceListener>> listeners = Sets.newHashSet();
+		listeners.add(new WeakReference<>(listener));
+
+		service.notifyDependentSourceChange(listeners, null, SourceMonitorEvent.CHANGED, null);
+
+		// readers that started before the notification see a different generation at the end, and readers that
+		// started during it see an odd one.
+		assertEquals(0, before % 2);
+		assertEquals(1, duringNotify.size());
+		assertEquals(1, duringNotify.get(0) % 2);
+		assertEquals(before + 2, service.getGeneration());
+	}
+
+    @Test
+    public void testNotifyDependentSourceChange_GenerationEvenAfterListenerFails() {
+		CachingServiceImpl service = new CachingServiceImpl();
+		long before = service.getGeneration();
+		SourceListener listener = new SourceListener() {
+			@Override
+			public void onSourceChanged(DefDescriptor<?> source, SourceMonitorEvent event, String filePath) {
+				throw new IllegalStateException("listener failed");
+			}
+		};
+		Collection<WeakReference<SourceListener>> listeners = Sets.newHashSet();
+		listeners.add(new WeakReference<>(listener));
+
+		try {
+			service.notifyDependentSourceChange(listeners, null, SourceMonitorEvent.CHANGED, null);
+			fail("Expected the listener failure to be thrown");
+		} catch (IllegalStateException expected) {
+		}
+
+		// otherwise nothing would ever be published again.
+		assertEquals(before + 2, service.getGeneration());
+	}
 }
@@ -109,7 +109,7 @@ public class FakeRegistry implements MasterDefRegistry {
     }
 
 	@Override
-    public String getAltCachedString(String uid, DefDescriptor<?> descriptor, String key) {
+    public byte[] getAltCachedBytes(String uid, DefDescriptor<?> descriptor, String key) {
         return null;
     }
 
@@ -120,7 +120,7 @@ public class FakeRegistry implements MasterDefRegistry {
 	}    
 
 	@Override
-	public String getAltCachedString(String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader)
+	public byte[] getAltCachedBytes(String uid, DefDescriptor<?> descriptor, String key, Callable<byte[]> loader)
 			throws QuickFixException, IOException {
 		return null;
 	}    
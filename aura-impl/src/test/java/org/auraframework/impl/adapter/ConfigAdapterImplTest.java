@@ -21,6 +21,7 @@ import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
@@ -39,6 +40,8 @@ import org.auraframework.util.test.util.UnitTestCase;
 import org.auraframework.util.text.Hash;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * Tests for ConfigAdapterImpl.
@@ -214,6 +217,90 @@ public class ConfigAdapterImplTest extends UnitTestCase {
         assertEquals("Framework uid is not correct", uid, "BJTaoiCDxoAF4Wbh0iC9lA");
     }
 
+    /**
+     * While the framework javascript is being regenerated, the framework uid stays on the files in place, and the
+     * generation is odd so that nothing is kept.
+     */
+    @Test
+    public void testFrameworkUidWhileRegenerating() throws Exception {
+        final AuraJavascriptGroup jsGroup = mock(AuraJavascriptGroup.class);
+        final Hash jsHash = mock(Hash.class);
+        when(jsGroup.isStale()).thenReturn(false);
+        when(jsGroup.getGroupHash()).thenReturn(jsHash);
+        when(jsHash.toString()).thenReturn("jsGroup");
+
+        final AuraResourcesHashingGroup resourcesGroup = mock(AuraResourcesHashingGroup.class);
+        Hash resourcesHash = mock(Hash.class);
+        when(resourcesGroup.isStale()).thenReturn(false);
+        when(resourcesGroup.getGroupHash()).thenReturn(resourcesHash);
+        when(resourcesHash.toString()).thenReturn("resourcesGroup");
+
+        final ConfigAdapterImpl configAdapter = new ConfigAdapterImpl() {
+            @Override
+            protected AuraJavascriptGroup newAuraJavascriptGroup() throws IOException {
+                return jsGroup;
+            }
+
+            @Override
+            protected FileGroup newAuraResourcesHashingGroup() throws IOException {
+                return resourcesGroup;
+            }
+        };
+        assertEquals("9YifBh-oLwXkDGW3d3qyDQ", configAdapter.getAuraFrameworkNonce());
+        assertEquals(0, configAdapter.getAuraJSGeneration());
+
+        final List<Object> seen = new ArrayList<>();
+        when(jsGroup.isStale()).thenReturn(true);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                // the group has its new hash, but the files are not copied yet.
+                when(jsHash.toString()).thenReturn("MocKitYMuCK");
+                seen.add(configAdapter.getAuraJSGeneration());
+                seen.add(configAdapter.getAuraFrameworkNonce());
+                throw new IOException("stop before copying");
+            }
+        }).when(jsGroup).regenerate(Mockito.any(File.class));
+
+        try {
+            configAdapter.regenerateAuraJS();
+            fail("Expected the regeneration to fail");
+        } catch (AuraRuntimeException expected) {
+            // stopped before copying.
+        }
+        assertEquals(Arrays.<Object> asList(1L, "9YifBh-oLwXkDGW3d3qyDQ"), seen);
+        assertEquals(2, configAdapter.getAuraJSGeneration());
+    }
+
+    /**
+     * In production the framework javascript is never regenerated, so getting the nonce must not even check it.
+     */
+    @Test
+    public void testFrameworkUidInProductionDoesNotCheckJs() throws Exception {
+        final AuraJavascriptGroup jsGroup = mock(AuraJavascriptGroup.class);
+        Hash jsHash = mock(Hash.class);
+        when(jsGroup.isStale()).thenReturn(true);
+        when(jsGroup.getGroupHash()).thenReturn(jsHash);
+        when(jsHash.toString()).thenReturn("jsGroup");
+
+        ConfigAdapterImpl configAdapter = new ConfigAdapterImpl() {
+            @Override
+            protected AuraJavascriptGroup newAuraJavascriptGroup() throws IOException {
+                return jsGroup;
+            }
+
+            @Override
+            public boolean isProduction() {
+                return true;
+            }
+        };
+
+        configAdapter.getAuraFrameworkNonce();
+        configAdapter.getAuraFrameworkNonce();
+        verify(jsGroup, Mockito.never()).isStale();
+        verify(jsGroup, Mockito.never()).regenerate(Mockito.any(File.class));
+    }
+
     @Test
     public void testIsInternalNamespaceWithBadArguments() {
         ConfigAdapterImpl impl = new ConfigAdapterImpl();
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+public class TinyLfuCacheImplTest extends UnitTestCase {
+
+    private TinyLfuCacheImpl<String, String> buildCache(long maximumSize) {
+        return new TinyLfuCacheImpl.Builder<String, String>()
+                .setMaximumSize(maximumSize)
+                .setRecordStats(true)
+                .setName("test")
+                .build();
+    }
+
+    @Test
+    public void testPutAndGetIfPresent() {
+        TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        cache.put("key", "value");
+
+        assertEquals("value", cache.getIfPresent("key"));
+        assertNull(cache.getIfPresent("other"));
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    public void testPutReplacesValue() {
+        TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        cache.put("key", "value");
+        cache.put("key", "other");
+
+        assertEquals("other", cache.getIfPresent("key"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        TinyLfuCacheImpl<String, String> cache = buildCache(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value");
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan() {
+        TinyLfuCacheImpl<String, String> cache = buildCache(100);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                if (cache.getIfPresent("hot" + i) == null) {
+                    cache.put("hot" + i, "value");
+                }
+            }
+        }
+        for (int i = 0; i < 5000; i++) {
+            cache.put("cold" + i, "value");
+        }
+
+        int hot = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.getIfPresent("hot" + i) != null) {
+                hot++;
+            }
+        }
+        assertTrue("Expected most hot entries to survive a scan, found " + hot, hot >= 45);
+    }
+
+    @Test
+    public void testGetCallsLoaderOnceOnMiss() throws Exception {
+        TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<String> loader = new Callable<String>() {
+            @Override
+            public String call() {
+                calls.incrementAndGet();
+                return "loaded";
+            }
+        };
+
+        assertEquals("loaded", cache.get("key", loader));
+        assertEquals("loaded", cache.get("key", loader));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.stats().loadSuccessCount());
+    }
+
+    @Test
+    public void testConcurrentGetsShareOneLoad() throws Exception {
+        final TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<String> loader = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                calls.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "loaded";
+            }
+        };
+        Callable<String> get = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return cache.get("key", loader);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = Lists.newArrayList();
+            results.add(executor.submit(get));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(get));
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("loaded", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testGetWrapsCheckedLoaderException() {
+        TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        final IOException expected = new IOException("expected");
+        try {
+            cache.get("key", new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    throw expected;
+                }
+            });
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertSame(expected, e.getCause());
+        }
+        assertNull(cache.getIfPresent("key"));
+        assertEquals(1, cache.stats().loadExceptionCount());
+    }
+
+    @Test
+    public void testGetWrapsRuntimeLoaderException() throws Exception {
+        TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        final RuntimeException expected = new RuntimeException("expected");
+        try {
+            cache.get("key", new Callable<String>() {
+                @Override
+                public String call() {
+                    throw expected;
+                }
+            });
+            fail("Expected UncheckedExecutionException");
+        } catch (UncheckedExecutionException e) {
+            assertSame(expected, e.getCause());
+        }
+    }
+
+    @Test
+    public void testInvalidate() {
+        TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        cache.put("key1", "value");
+        cache.put("key2", "value");
+        cache.put("key3", "value");
+
+        cache.invalidate("key1");
+        assertNull(cache.getIfPresent("key1"));
+        cache.invalidate(Lists.newArrayList("key2", "key3"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        cache.put("key1", "value");
+        cache.put("key2", "value");
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertTrue(cache.getKeySet().isEmpty());
+
+        // the policy must still work after clearing.
+        for (int i = 0; i < 20; i++) {
+            cache.put("key" + i, "value");
+        }
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void testInvalidatePartial() {
+        TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        cache.put("someKey", "value");
+        cache.put("someOtherKey", "value");
+        cache.put("anotherKey", "value");
+
+        cache.invalidatePartial("some");
+        assertNull(cache.getIfPresent("someKey"));
+        assertNull(cache.getIfPresent("someOtherKey"));
+        assertEquals("value", cache.getIfPresent("anotherKey"));
+    }
+
+    @Test
+    public void testInvalidatePartial_EmptyString() {
+        TinyLfuCacheImpl<String, String> cache = buildCache(10);
+        cache.put("someKey", "value");
+
+        cache.invalidatePartial("");
+        assertEquals(0, cache.size());
+    }
+}
@@ -22,6 +22,7 @@ import org.auraframework.adapter.ContextAdapter;
 import org.auraframework.impl.AuraImpl;
 import org.auraframework.impl.AuraImplTestCase;
 import org.auraframework.service.ContextService;
+import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.GlobalValue;
@@ -55,6 +56,40 @@ public class AuraContextServiceImplTest extends AuraImplTestCase {
         assertFalse(p.isEstablished());
     }
 
+    @Test
+    public void testForkContext() throws Exception {
+        final ContextService contextService = Aura.getContextService();
+        AuraContext context = contextService.startContext(Mode.DEV, Format.JSON, Authentication.AUTHENTICATED);
+        try {
+            final AuraContext fork = contextService.forkContext();
+            assertNotSame(context, fork);
+            assertNotSame(context.getDefRegistry(), fork.getDefRegistry());
+            assertEquals(Mode.DEV, fork.getMode());
+            assertSame("forking must not change the current context", context, contextService.getCurrentContext());
+
+            final AuraContext[] seen = new AuraContext[2];
+            Thread worker = new Thread() {
+                @Override
+                public void run() {
+                    contextService.startForkedContext(fork);
+                    try {
+                        seen[0] = contextService.getCurrentContext();
+                    } finally {
+                        contextService.endContext();
+                    }
+                    seen[1] = contextService.isEstablished() ? contextService.getCurrentContext() : null;
+                }
+            };
+            worker.start();
+            worker.join(10000);
+            assertSame(fork, seen[0]);
+            assertNull(seen[1]);
+            assertSame(context, contextService.getCurrentContext());
+        } finally {
+            contextService.endContext();
+        }
+    }
+
     private void unregisterGlobal(String name) {
         try {
             Map<String, GlobalValue> values = AuraPrivateAccessor.get(AuraContextImpl.class, "allowedGlobalValues");
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.context;
+
+import org.auraframework.service.LoggingService;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class RequestMetricsTest extends UnitTestCase {
+
+    @Test
+    public void testTimerNesting() {
+        RequestMetrics metrics = new RequestMetrics();
+        int id = MetricIds.JAVA;
+        assertEquals("Uninitialized timer has a totalTime", -1, metrics.getTime(id));
+
+        metrics.startTimer(id);
+        metrics.startTimer(id);
+        metrics.stopTimer(id);
+        assertEquals("Nested Running timer has a totalTime", -1, metrics.getTime(id));
+
+        metrics.stopTimer(id);
+        assertTrue("Completed timer has no totalTime", metrics.getTime(id) >= 0);
+
+        metrics.resetTimer(id);
+        assertEquals("Reseted timer has a totalTime", -1, metrics.getTime(id));
+    }
+
+    @Test
+    public void testCountsSinceMark() {
+        RequestMetrics metrics = new RequestMetrics();
+        int id = MetricIds.JAVA_CALL_COUNT;
+        assertEquals(-1, metrics.getNum(id));
+        metrics.setNum(id, 2);
+        RequestMetrics.Marks marks = metrics.mark();
+        metrics.incrementNum(id, 3);
+        assertEquals(5, metrics.getNum(id));
+        assertEquals(3, metrics.getCountSince(marks, id));
+    }
+
+    @Test
+    public void testLoggingContextUsesIds() {
+        LoggingContextImpl lc = new LoggingContextImpl();
+        lc.incrementNum("JavaCallCount");
+        lc.incrementNum("JavaCallCount");
+        assertEquals(2, lc.getNum("JavaCallCount"));
+        lc.setNum(LoggingService.CMP_COUNT, 7);
+        assertEquals(7, lc.getNum(LoggingService.CMP_COUNT));
+        assertEquals(-1, lc.getNum("neverCounted"));
+
+        lc.startTimer(LoggingService.TIMER_SERIALIZATION);
+        lc.stopTimer(LoggingService.TIMER_SERIALIZATION);
+        assertTrue(lc.getTime(LoggingService.TIMER_SERIALIZATION) >= 0);
+        assertEquals(-1, lc.getTime("neverTimed"));
+    }
+
+    @Test
+    public void testActionTimersAreNotRegistered() {
+        assertEquals(MetricIds.NONE, MetricIds.get(LoggingService.TIMER_ACTION + "1$java://test/ACTION$a"));
+    }
+
+    @Test
+    public void testActionRecordedByDescriptor() {
+        LoggingContextImpl lc = new LoggingContextImpl();
+        String descriptor = "java://org.auraframework.impl.context.RequestMetricsTest/ACTION$testAction";
+        String actionAndParams = descriptor + "{id=42}";
+        lc.startAction("1$" + actionAndParams);
+        lc.incrementNum("JavaCallCount");
+        lc.stopAction("1$" + actionAndParams, descriptor);
+        assertNotNull(RequestMetricsRegistry.getInstance().getAction(descriptor));
+        assertTrue(RequestMetricsRegistry.getInstance().getAction(descriptor).getCount() >= 1);
+        assertNull(RequestMetricsRegistry.getInstance().getAction(actionAndParams));
+    }
+
+    @Test
+    public void testActionWithoutDescriptorNotRecorded() {
+        LoggingContextImpl lc = new LoggingContextImpl();
+        String descriptor = "java://org.auraframework.impl.context.RequestMetricsTest/ACTION$unrecordedAction";
+        lc.startAction("1$" + descriptor);
+        lc.stopAction("1$" + descriptor);
+        assertNull(RequestMetricsRegistry.getInstance().getAction(descriptor));
+    }
+}
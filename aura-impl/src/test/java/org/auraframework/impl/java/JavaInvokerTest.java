@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.java;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class JavaInvokerTest extends UnitTestCase {
+
+    public static class Bean {
+        public String getName() {
+            return "name";
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public void fail() {
+            throw new IllegalStateException("expected");
+        }
+
+        public static long add(long a, Long b) {
+            return a + b;
+        }
+    }
+
+    @Test
+    public void testGetters() throws Exception {
+        Bean bean = new Bean();
+
+        assertEquals("name", JavaInvoker.getGetter(Bean.class, "name").invoke(bean));
+        assertEquals(Boolean.TRUE, JavaInvoker.getGetter(Bean.class, "active").invoke(bean));
+        assertNull(JavaInvoker.getGetter(Bean.class, "missing"));
+        assertSame(JavaInvoker.getGetter(Bean.class, "name"), JavaInvoker.getGetter(Bean.class, "name"));
+    }
+
+    @Test
+    public void testStaticMethodWithPrimitives() throws Exception {
+        JavaInvoker invoker = JavaInvoker.create(Bean.class.getMethod("add", long.class, Long.class));
+
+        assertEquals(3L, invoker.invoke(null, 1L, 2L));
+        // widening goes through reflection, just as before.
+        assertEquals(3L, invoker.invoke(null, 1, 2L));
+    }
+
+    @Test
+    public void testArgumentMismatch() throws Exception {
+        JavaInvoker invoker = JavaInvoker.create(Bean.class.getMethod("add", long.class, Long.class));
+
+        try {
+            invoker.invoke(null, "one", 2L);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            invoker.invoke(null, null, 2L);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testExceptionIsWrapped() throws Exception {
+        JavaInvoker invoker = JavaInvoker.create(Bean.class.getMethod("fail"));
+
+        try {
+            invoker.invoke(new Bean());
+            fail("Expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+            assertEquals("expected", e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.java.controller;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.auraframework.system.Annotations.AuraEnabled;
+import org.auraframework.system.Annotations.CacheableAction;
+import org.auraframework.system.Annotations.Controller;
+import org.auraframework.system.Annotations.Key;
+
+import com.google.common.collect.ImmutableMap;
+
+@Controller
+public class CacheableActionTestController {
+
+    public static final AtomicInteger calls = new AtomicInteger();
+
+    @AuraEnabled
+    @CacheableAction(expiration = 600)
+    public static Map<String, Object> lookup(@Key("name") String name, @Key("options") Map<String, Object> options) {
+        return ImmutableMap.<String, Object> of("name", name, "call", calls.incrementAndGet());
+    }
+}
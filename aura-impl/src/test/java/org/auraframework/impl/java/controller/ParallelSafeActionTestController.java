@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.java.controller;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.Aura;
+import org.auraframework.system.Annotations.AuraEnabled;
+import org.auraframework.system.Annotations.Controller;
+import org.auraframework.system.Annotations.Key;
+import org.auraframework.system.Annotations.ParallelSafeAction;
+import org.auraframework.system.AuraContext;
+
+@Controller
+public class ParallelSafeActionTestController {
+
+    private static final CyclicBarrier meeting = new CyclicBarrier(2);
+
+    private static volatile String lastEcho;
+
+    /**
+     * Only returns once a second call has arrived, so two of these only succeed if they run at the same time.
+     */
+    @AuraEnabled
+    @ParallelSafeAction
+    public static String meet(@Key("name") String name) throws Exception {
+        meeting.await(10, TimeUnit.SECONDS);
+        return name;
+    }
+
+    @AuraEnabled
+    public static String echo(@Key("name") String name) {
+        lastEcho = name;
+        return name;
+    }
+
+    /**
+     * The name given to the last echo, so a parallel safe action can show whether the actions before it have run.
+     */
+    @AuraEnabled
+    @ParallelSafeAction
+    public static String getLastEcho() {
+        return lastEcho;
+    }
+
+    /**
+     * The first requested locale and the client type, as seen by a parallel safe action.
+     */
+    @AuraEnabled
+    @ParallelSafeAction
+    public static String getRequestState() {
+        AuraContext context = Aura.getContextService().getCurrentContext();
+        return context.getRequestedLocales().get(0) + "|" + context.getClient().getType();
+    }
+}
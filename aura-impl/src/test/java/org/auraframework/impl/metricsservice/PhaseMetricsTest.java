@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.metricsservice;
+
+import java.util.Map;
+
+import org.auraframework.service.MetricsService;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class PhaseMetricsTest extends UnitTestCase {
+
+    @Test
+    public void testUnsampledRequestRecordsNothing() {
+        PhaseMetrics metrics = new PhaseMetrics(0);
+        metrics.startRequest();
+        try {
+            assertFalse(metrics.isSampled());
+            metrics.record(MetricsService.PHASE_DESERIALIZATION, 1000L);
+            assertNull(metrics.getRequestPhases());
+            assertNull(metrics.getPhase(MetricsService.PHASE_DESERIALIZATION));
+            assertEquals(0L, metrics.getSampledRequests());
+        } finally {
+            metrics.endRequest();
+        }
+    }
+
+    @Test
+    public void testSampledRequestRecordsPhases() {
+        PhaseMetrics metrics = new PhaseMetrics(1);
+        metrics.startRequest();
+        try {
+            assertTrue(metrics.isSampled());
+            metrics.record(MetricsService.PHASE_DEFINITION_COMPILE, 1000L);
+            metrics.record(MetricsService.PHASE_DEFINITION_COMPILE, 3000L);
+            metrics.record(MetricsService.PHASE_ACTION + "java://a.b/ACTION$c", 5000L);
+
+            Map<String, Long> phases = metrics.getRequestPhases();
+            assertEquals(4000L, phases.get(MetricsService.PHASE_DEFINITION_COMPILE).longValue());
+            assertEquals(2L, metrics.getPhase(MetricsService.PHASE_DEFINITION_COMPILE).getCount());
+            assertEquals(3000L, metrics.getPhase(MetricsService.PHASE_DEFINITION_COMPILE).getMax());
+            assertEquals(1L, metrics.getSampledRequests());
+            assertEquals(2, metrics.getPhaseSummary().length, 0);
+
+            metrics.clearRequest();
+            assertTrue(metrics.isSampled());
+            assertTrue(metrics.getRequestPhases().isEmpty());
+            assertEquals(2L, metrics.getPhase(MetricsService.PHASE_DEFINITION_COMPILE).getCount());
+        } finally {
+            metrics.endRequest();
+        }
+        assertFalse(metrics.isSampled());
+        metrics.record(MetricsService.PHASE_DEFINITION_COMPILE, 1000L);
+        assertEquals(2L, metrics.getPhase(MetricsService.PHASE_DEFINITION_COMPILE).getCount());
+    }
+
+    @Test
+    public void testSampleRateIsClamped() {
+        PhaseMetrics metrics = new PhaseMetrics(2);
+        assertEquals(1.0, metrics.getSampleRate(), 0);
+        metrics.setSampleRate(-1);
+        assertEquals(0.0, metrics.getSampleRate(), 0);
+        metrics.setSampleRate(Double.NaN);
+        assertEquals(0.0, metrics.getSampleRate(), 0);
+        assertEquals(0.25, PhaseMetrics.parseRate("0.25", 0.01), 0);
+        assertEquals(0.01, PhaseMetrics.parseRate("often", 0.01), 0);
+        assertEquals(0.01, PhaseMetrics.parseRate(null, 0.01), 0);
+    }
+}
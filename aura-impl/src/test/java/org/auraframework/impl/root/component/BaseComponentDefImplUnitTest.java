@@ -46,10 +46,13 @@ import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.test.adapter.MockConfigAdapter;
+import org.auraframework.test.util.AuraTestCase;
 import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.quickfix.InvalidAccessValueException;
 import org.auraframework.throwable.quickfix.InvalidDefinitionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.test.util.AuraPrivateAccessor;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -196,6 +199,85 @@ extends RootDefinitionImplUnitTest<I, D, B> {
         }
     }
 
+    /**
+     * Build a definition whose component class is the given mock, in a namespace that requires locker when locker is
+     * enabled.
+     */
+    private D buildDefinitionWithClass(JavascriptComponentClass javascriptClass) throws Exception {
+        Mockito.doReturn("cmpcodetest").when(this.descriptor).getNamespace();
+        D def = buildDefinition();
+        AuraPrivateAccessor.set(def, "javascriptClass", javascriptClass);
+        return def;
+    }
+
+    @Test
+    public void testGetCodeIsMemoized() throws Exception {
+        String code = "$A.componentService.addComponentClass(\"markup://cmpcodetest:cmp\", function() {\nreturn {};\n});";
+        JavascriptComponentClass javascriptClass = Mockito.mock(JavascriptComponentClass.class);
+        Mockito.doReturn(code).when(javascriptClass).getCode();
+        D def = buildDefinitionWithClass(javascriptClass);
+        MockConfigAdapter configAdapter = AuraTestCase.getMockConfigAdapter();
+        try {
+            configAdapter.setLockerServiceEnabled(true);
+            String locker = def.getCode(false);
+            assertNotNull(locker);
+            assertFalse("Expected the code to be converted for locker", code.equals(locker));
+
+            // the same instance comes back, without converting the class again.
+            assertSame(locker, def.getCode(false));
+            Mockito.verify(javascriptClass, Mockito.times(1)).getCode();
+        } finally {
+            configAdapter.reset();
+        }
+    }
+
+    @Test
+    public void testGetCodeKeyedOnMinifyAndLocker() throws Exception {
+        String code = "$A.componentService.addComponentClass(\"markup://cmpcodetest:cmp\", function() {\nreturn {};\n});";
+        String minified = "$A.componentService.addComponentClass(\"markup://cmpcodetest:cmp\", function() {return {};});";
+        JavascriptComponentClass javascriptClass = Mockito.mock(JavascriptComponentClass.class);
+        Mockito.doReturn(code).when(javascriptClass).getCode();
+        Mockito.doReturn(minified).when(javascriptClass).getMinifiedCode();
+        D def = buildDefinitionWithClass(javascriptClass);
+        MockConfigAdapter configAdapter = AuraTestCase.getMockConfigAdapter();
+        try {
+            configAdapter.setLockerServiceEnabled(false);
+            assertEquals(code, def.getCode(false));
+            assertEquals(minified, def.getCode(true));
+
+            configAdapter.setLockerServiceEnabled(true);
+            String locker = def.getCode(false);
+            String minifiedLocker = def.getCode(true);
+            assertFalse(code.equals(locker));
+            assertFalse(minified.equals(minifiedLocker));
+            assertFalse(locker.equals(minifiedLocker));
+
+            // flipping back selects the earlier results.
+            configAdapter.setLockerServiceEnabled(false);
+            assertEquals(code, def.getCode(false));
+            assertEquals(minified, def.getCode(true));
+            Mockito.verify(javascriptClass, Mockito.times(2)).getCode();
+            Mockito.verify(javascriptClass, Mockito.times(2)).getMinifiedCode();
+        } finally {
+            configAdapter.reset();
+        }
+    }
+
+    @Test
+    public void testGetCodeCachesNull() throws Exception {
+        JavascriptComponentClass javascriptClass = Mockito.mock(JavascriptComponentClass.class);
+        D def = buildDefinitionWithClass(javascriptClass);
+        MockConfigAdapter configAdapter = AuraTestCase.getMockConfigAdapter();
+        try {
+            configAdapter.setLockerServiceEnabled(false);
+            assertNull(def.getCode(false));
+            assertNull(def.getCode(false));
+            Mockito.verify(javascriptClass, Mockito.times(1)).getCode();
+        } finally {
+            configAdapter.reset();
+        }
+    }
+
     @Override
     protected void setupValidateReferences() throws Exception {
         this.interfaces = Sets.newHashSet();
@@ -18,8 +18,10 @@ package org.auraframework.impl.system;
 import java.util.Map;
 
 import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.impl.util.BrowserInfo;
 import org.auraframework.system.Client;
 import org.auraframework.system.Client.Type;
+import org.auraframework.system.UserAgentCache;
 import org.auraframework.test.client.UserAgent;
 import org.junit.Test;
 
@@ -84,4 +86,40 @@ public class ClientTest extends AuraImplTestCase {
         Client client = new Client();
         assertEquals("Incorrect default client type.", client.getType().name(), "OTHER");
     }
+
+    /**
+     * Clients are parsed once per user agent, and shared.
+     */
+    @Test
+    public void testGetIsCached() throws Exception {
+        UserAgentCache cache = UserAgentCache.getInstance();
+        cache.clear();
+        String ua = UserAgent.GOOGLE_CHROME.getUserAgentString();
+
+        Client first = Client.get(ua);
+        assertEquals(Type.WEBKIT, first.getType());
+        assertEquals(ua, first.getUserAgent());
+        assertSame(first, Client.get(ua));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+
+        assertEquals(Type.OTHER, Client.get(null).getType());
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * The full parse is made once per user agent, and shared along with the client.
+     */
+    @Test
+    public void testBrowserInfoIsCached() throws Exception {
+        UserAgentCache.getInstance().clear();
+        String ua = UserAgent.IPAD.getUserAgentString();
+
+        BrowserInfo info = BrowserInfo.get(ua);
+        assertTrue(info.isIPad());
+        assertEquals(new BrowserInfo(ua).getFormFactor(), info.getFormFactor());
+        assertSame(info, BrowserInfo.get(ua));
+        assertSame(info, UserAgentCache.getInstance().get(ua).getDetails());
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.Definition;
+import org.auraframework.def.DescriptorFilter;
+import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.system.DefRegistry;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class StaticRegistryCodecTest extends AuraImplTestCase {
+
+    private StaticDefRegistryImpl<Definition> buildRegistry(Definition... defs) {
+        return new StaticDefRegistryImpl<>(Sets.newHashSet(DefType.COMPONENT), Sets.newHashSet("markup"),
+                Sets.newHashSet("aura"), Lists.newArrayList(defs));
+    }
+
+    private DefRegistry<?>[] roundTrip(StaticDefRegistryImpl<Definition> registry) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<StaticDefRegistryImpl<Definition>> registries = Lists.newArrayList();
+        registries.add(registry);
+        StaticRegistryCodec.write(registries, out);
+
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(StaticRegistryCodec.isEncoded(in));
+        return StaticRegistryCodec.read(in);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        DefDescriptor<ComponentDef> desc = definitionService.getDefDescriptor("aura:text", ComponentDef.class);
+        ComponentDef def = definitionService.getDefinition(desc);
+
+        DefRegistry<?>[] registries = roundTrip(buildRegistry(def));
+
+        assertEquals(1, registries.length);
+        @SuppressWarnings("unchecked")
+        DefRegistry<ComponentDef> registry = (DefRegistry<ComponentDef>) registries[0];
+        assertTrue(registry instanceof EncodedStaticDefRegistryImpl);
+        assertTrue(registry.isStatic());
+        assertEquals(Sets.newHashSet(DefType.COMPONENT), registry.getDefTypes());
+        assertEquals(Sets.newHashSet("markup"), registry.getPrefixes());
+        assertEquals(Sets.newHashSet("aura"), registry.getNamespaces());
+        assertTrue(registry.exists(desc));
+        assertEquals(Sets.newHashSet(desc), registry.find(new DescriptorFilter("markup://aura:*", DefType.COMPONENT)));
+
+        ComponentDef decoded = registry.getDef(desc);
+        assertEquals(desc, decoded.getDescriptor());
+        assertEquals(def.getOwnHash(), decoded.getOwnHash());
+        assertSame("a definition should only be decoded once", decoded, registry.getDef(desc));
+    }
+
+    @Test
+    public void testReadMappedFile() throws Exception {
+        DefDescriptor<ComponentDef> desc = definitionService.getDefDescriptor("aura:text", ComponentDef.class);
+        ComponentDef def = definitionService.getDefinition(desc);
+        List<StaticDefRegistryImpl<Definition>> registries = Lists.newArrayList();
+        registries.add(buildRegistry(def));
+        File file = File.createTempFile("registries", ".bin");
+        try {
+            try (OutputStream out = new FileOutputStream(file)) {
+                StaticRegistryCodec.write(registries, out);
+            }
+
+            DefRegistry<?>[] read = StaticRegistryCodec.read(file);
+
+            assertEquals(1, read.length);
+            @SuppressWarnings("unchecked")
+            DefRegistry<ComponentDef> registry = (DefRegistry<ComponentDef>) read[0];
+            assertTrue(registry.exists(desc));
+            assertEquals(def.getOwnHash(), registry.getDef(desc).getOwnHash());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReadFileNotEncoded() throws Exception {
+        File file = File.createTempFile("registries", ".bin");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+                out.writeObject(Lists.newArrayList(buildRegistry()));
+            }
+
+            assertNull(StaticRegistryCodec.read(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testMissingDef() throws Exception {
+        DefDescriptor<ComponentDef> missing = definitionService.getDefDescriptor("aura:doesNotExist",
+                ComponentDef.class);
+
+        @SuppressWarnings("unchecked")
+        DefRegistry<ComponentDef> registry = (DefRegistry<ComponentDef>) roundTrip(buildRegistry())[0];
+
+        assertFalse(registry.exists(missing));
+        assertNull(registry.getDef(missing));
+    }
+
+    @Test
+    public void testJavaSerializedFileIsNotEncoded() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(Lists.newArrayList(buildRegistry()));
+        }
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(out.toByteArray()));
+
+        assertFalse(StaticRegistryCodec.isEncoded(in));
+        assertEquals("the stream must not be consumed", 0xAC, in.read());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+import org.auraframework.Aura;
+import org.auraframework.cache.Cache;
+import org.auraframework.def.ClientLibraryDef;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.ControllerDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+import org.auraframework.def.ModelDef;
+import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.impl.java.controller.JavaActionDef;
+import org.auraframework.impl.java.model.JavaValueDef;
+import org.auraframework.impl.java.model.TestModel;
+import org.auraframework.throwable.quickfix.DefinitionNotFoundException;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class DefinitionSnapshotTest extends AuraImplTestCase {
+    private File file;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("definitionSnapshot", ".ser");
+        file.delete();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    private <K, V> Cache<K, V> buildCache() {
+        return Aura.getCachingService().<K, V> getCacheBuilder().setMaximumSize(10).build();
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        DefDescriptor<ComponentDef> desc = definitionService.getDefDescriptor("aura:text", ComponentDef.class);
+        ComponentDef def = definitionService.getDefinition(desc);
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = buildCache();
+        Cache<String, DependencyEntry> depsCache = buildCache();
+        defsCache.put(desc, Optional.of(def));
+        Set<DefDescriptor<? extends Definition>> dependencies = Sets.newLinkedHashSet();
+        dependencies.add(desc);
+        List<ClientLibraryDef> clientLibs = Lists.newArrayList();
+        depsCache.put("key", new DependencyEntry("uid", dependencies, clientLibs));
+
+        DefinitionSnapshot.write(file, "stamp", defsCache, depsCache);
+        DefinitionSnapshot snapshot = DefinitionSnapshot.read(file, "stamp");
+
+        assertNotNull(snapshot);
+        assertEquals(def.getOwnHash(), snapshot.getHash(desc));
+        ComponentDef restored = snapshot.takeDef(desc);
+        assertEquals(desc, restored.getDescriptor());
+        assertNull("a definition must only be handed out once", snapshot.takeDef(desc));
+        assertEquals(def.getOwnHash(), snapshot.getHash(desc));
+
+        DependencyEntry de = snapshot.takeDependencyEntry("key");
+        assertEquals("uid", de.uid);
+        assertEquals(Lists.newArrayList(dependencies), Lists.newArrayList(de.dependencies));
+        assertNull(snapshot.takeDependencyEntry("key"));
+        assertTrue(snapshot.isEmpty());
+    }
+
+    /**
+     * Java controllers and models hold reflected methods, which are not serializable themselves.
+     */
+    @Test
+    public void testWriteAndReadJavaDefinitions() throws Exception {
+        DefDescriptor<ControllerDef> controllerDesc = definitionService.getDefDescriptor(
+                "java://org.auraframework.impl.java.controller.TestController", ControllerDef.class);
+        DefDescriptor<ModelDef> modelDesc = definitionService.getDefDescriptor(
+                "java://org.auraframework.impl.java.model.TestModel", ModelDef.class);
+        ControllerDef controller = definitionService.getDefinition(controllerDesc);
+        ModelDef model = definitionService.getDefinition(modelDesc);
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = buildCache();
+        Cache<String, DependencyEntry> depsCache = buildCache();
+        defsCache.put(controllerDesc, Optional.of(controller));
+        defsCache.put(modelDesc, Optional.of(model));
+
+        assertEquals(0, DefinitionSnapshot.write(file, "stamp", defsCache, depsCache));
+        DefinitionSnapshot snapshot = DefinitionSnapshot.read(file, "stamp");
+
+        ControllerDef restoredController = snapshot.takeDef(controllerDesc);
+        assertNotNull(restoredController);
+        JavaActionDef action = (JavaActionDef) controller.getActionDefs().get("getNamedComponent");
+        JavaActionDef restoredAction = (JavaActionDef) restoredController.getActionDefs().get("getNamedComponent");
+        assertEquals(action.getMethod(), restoredAction.getMethod());
+        assertNotNull(restoredAction.getInvoker());
+
+        ModelDef restoredModel = snapshot.takeDef(modelDesc);
+        assertNotNull(restoredModel);
+        JavaValueDef member = (JavaValueDef) restoredModel.getMemberByName("firstThing");
+        assertEquals("firstThingDefault", member.getValueFrom(new TestModel()));
+    }
+
+    @Test
+    public void testUnserializableDefinitionIsLeftOut() throws Exception {
+        DefDescriptor<ComponentDef> desc = definitionService.getDefDescriptor("aura:text", ComponentDef.class);
+        DefDescriptor<ComponentDef> badDesc = definitionService.getDefDescriptor("aura:unserializable",
+                ComponentDef.class);
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = buildCache();
+        Cache<String, DependencyEntry> depsCache = buildCache();
+        defsCache.put(desc, Optional.of(definitionService.getDefinition(desc)));
+        // mocks are not serializable.
+        defsCache.put(badDesc, Optional.of(Mockito.mock(ComponentDef.class)));
+
+        assertEquals(1, DefinitionSnapshot.write(file, "stamp", defsCache, depsCache));
+        DefinitionSnapshot snapshot = DefinitionSnapshot.read(file, "stamp");
+
+        assertNotNull(snapshot.takeDef(desc));
+        assertNull(snapshot.takeDef(badDesc));
+    }
+
+    @Test
+    public void testReadIgnoresOtherVersions() throws Exception {
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = buildCache();
+        Cache<String, DependencyEntry> depsCache = buildCache();
+        DefinitionSnapshot.write(file, "stamp", defsCache, depsCache);
+
+        assertNull(DefinitionSnapshot.read(file, "other stamp"));
+    }
+
+    @Test
+    public void testReadMissingFile() throws Exception {
+        assertNull(DefinitionSnapshot.read(file, "stamp"));
+    }
+
+    @Test
+    public void testQuickFixEntriesAreNotWritten() throws Exception {
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = buildCache();
+        Cache<String, DependencyEntry> depsCache = buildCache();
+        depsCache.put("key", new DependencyEntry(new DefinitionNotFoundException(
+                definitionService.getDefDescriptor("aura:text", ComponentDef.class))));
+        DefinitionSnapshot.write(file, "stamp", defsCache, depsCache);
+
+        assertTrue(DefinitionSnapshot.read(file, "stamp").isEmpty());
+    }
+}
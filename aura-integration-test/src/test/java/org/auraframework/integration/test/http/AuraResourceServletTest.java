@@ -17,6 +17,7 @@ package org.auraframework.integration.test.http;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -189,10 +190,10 @@ public class AuraResourceServletTest extends AuraTestCase {
 
         final String key = "CSS:" + context.getClient().getType().name().toLowerCase() + "$" + mKey + uid;
         // Verify something was actually added to cache
-        String cssCache = context.getDefRegistry().getAltCachedString(uid, appDesc, key);
+        byte[] cssCache = context.getDefRegistry().getAltCachedBytes(uid, appDesc, key);
         assertNotNull("Nothing added to CSS cache", cssCache);
         if (!cssMsgToVerify.isEmpty()) {
-            assertTrue(cssCache.contains(cssMsgToVerify));
+            assertTrue(new String(cssCache, StandardCharsets.UTF_8).contains(cssMsgToVerify));
         }
     }
 
@@ -235,13 +236,13 @@ public class AuraResourceServletTest extends AuraTestCase {
         final String key = "CSS:" + context.getClient().getType().name().toLowerCase() + "$" + mKey + uid;
 
         // Verify something was actually added to cache
-        String cssCache = context.getDefRegistry().getAltCachedString(uid, appDesc, key);
+        byte[] cssCache = context.getDefRegistry().getAltCachedBytes(uid, appDesc, key);
         assertNotNull("Nothing added to CSS cache", cssCache);
 
         // Now force a source change event and verify cache is emptied
         definitionService.onSourceChanged(null, SourceListener.SourceMonitorEvent.CHANGED, null);
 
-        cssCache = context.getDefRegistry().getCachedString(uid, appDesc, key);
+        cssCache = context.getDefRegistry().getAltCachedBytes(uid, appDesc, key);
 
         assertNull("CSS cache not cleared after source change event", cssCache);
     }
@@ -276,13 +277,13 @@ public class AuraResourceServletTest extends AuraTestCase {
         final String key = "JS:" + mKey + uid;
 
         // Verify something was actually added to cache
-        String jsCache = context.getDefRegistry().getAltCachedString(uid, appDesc, key);
+        byte[] jsCache = context.getDefRegistry().getAltCachedBytes(uid, appDesc, key);
         assertNotNull("Nothing added to JS cache", jsCache);
 
         // Now force a source change event and verify cache is emptied
         definitionService.onSourceChanged(null, SourceListener.SourceMonitorEvent.CHANGED, null);
 
-        jsCache = context.getDefRegistry().getCachedString(uid, appDesc, key);
+        jsCache = context.getDefRegistry().getAltCachedBytes(uid, appDesc, key);
         assertNull("JS cache not cleared after source change event", jsCache);
     }
 
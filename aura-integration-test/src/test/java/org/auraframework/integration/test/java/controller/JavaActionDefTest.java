@@ -51,6 +51,17 @@ public class JavaActionDefTest extends AuraImplTestCase {
         assertTrue("ActionDef should be background when class has Background annotation", actual);
     }
 
+    /**
+     * Verify Java action with parallel safe annotation is parallel safe
+     */
+    @Test
+    public void testJavaActionDefIsParallelSafeWithAnnotation() throws Exception {
+        String controllerName = "java://org.auraframework.impl.java.controller.ParallelSafeActionTestController";
+
+        assertTrue(((JavaActionDef) getJavaActionDef(controllerName, "meet")).isParallelSafe());
+        assertFalse(((JavaActionDef) getJavaActionDef(controllerName, "echo")).isParallelSafe());
+    }
+
     @Test
     public void testJavaActionDefWithMethodHasNoParams() throws Exception{
         String controllerName = "java://org.auraframework.components.test.java.controller.TestController";
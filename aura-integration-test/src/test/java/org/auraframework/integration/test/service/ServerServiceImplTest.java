@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.EmptyStackException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -43,6 +44,7 @@ import org.auraframework.adapter.ExceptionAdapter;
 import org.auraframework.def.ActionDef;
 import org.auraframework.def.ApplicationDef;
 import org.auraframework.def.ComponentDef;
+import org.auraframework.def.ControllerDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.Definition;
 import org.auraframework.def.DefinitionAccess;
@@ -50,6 +52,7 @@ import org.auraframework.def.TypeDef;
 import org.auraframework.def.ValueDef;
 import org.auraframework.impl.AuraImplTestCase;
 import org.auraframework.impl.adapter.ServletUtilAdapterImpl;
+import org.auraframework.impl.java.controller.CacheableActionTestController;
 import org.auraframework.instance.AbstractActionImpl;
 import org.auraframework.instance.Action;
 import org.auraframework.instance.ActionDelegate;
@@ -62,17 +65,20 @@ import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.system.Client;
 import org.auraframework.system.Location;
 import org.auraframework.system.Message;
 import org.auraframework.system.SubDefDescriptor;
 import org.auraframework.throwable.AuraExecutionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.Json;
+import org.auraframework.util.json.JsonEncoder;
 import org.auraframework.util.json.JsonReader;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -440,6 +446,109 @@ public class ServerServiceImplTest extends AuraImplTestCase {
 
     }
 
+    /**
+     * A cacheable action is only run once for the same parameters, whatever their order.
+     */
+    @Test
+    public void testCacheableActionRunsOnce() throws Exception {
+        Aura.getContextService().startContext(Mode.UTEST, Format.JSON, Authentication.AUTHENTICATED);
+        ControllerDef controllerDef = definitionService.getDefinition(
+                "java://org.auraframework.impl.java.controller.CacheableActionTestController", ControllerDef.class);
+        String name = getName() + System.nanoTime();
+        Map<String, Object> options = Maps.newLinkedHashMap();
+        options.put("a", 1);
+        options.put("b", 2);
+        Map<String, Object> reordered = Maps.newLinkedHashMap();
+        reordered.put("b", 2);
+        reordered.put("a", 1);
+        Action first = controllerDef.createAction("lookup",
+                ImmutableMap.<String, Object> of("name", name, "options", options));
+        Action second = controllerDef.createAction("lookup",
+                ImmutableMap.<String, Object> of("options", reordered, "name", name));
+        int calls = CacheableActionTestController.calls.get();
+
+        StringWriter firstOut = new StringWriter();
+        Aura.getServerService().run(new Message(Lists.newArrayList(first)),
+                Aura.getContextService().getCurrentContext(), firstOut, null);
+        StringWriter secondOut = new StringWriter();
+        Aura.getServerService().run(new Message(Lists.newArrayList(second)),
+                Aura.getContextService().getCurrentContext(), secondOut, null);
+
+        assertEquals(calls + 1, CacheableActionTestController.calls.get());
+        assertEquals(Action.State.SUCCESS, second.getState());
+        assertEquals(JsonEncoder.serialize(first.getReturnValue()), JsonEncoder.serialize(second.getReturnValue()));
+        assertTrue(secondOut.toString().contains(name));
+    }
+
+    /**
+     * Parallel safe actions run at the same time, but their results are still written in order.
+     */
+    @Test
+    public void testParallelSafeActions() throws Exception {
+        Aura.getContextService().startContext(Mode.UTEST, Format.JSON, Authentication.AUTHENTICATED);
+        ControllerDef controllerDef = definitionService.getDefinition(
+                "java://org.auraframework.impl.java.controller.ParallelSafeActionTestController", ControllerDef.class);
+        Action a = controllerDef.createAction("meet", ImmutableMap.<String, Object> of("name", "first"));
+        Action b = controllerDef.createAction("meet", ImmutableMap.<String, Object> of("name", "second"));
+        Action c = controllerDef.createAction("echo", ImmutableMap.<String, Object> of("name", "third"));
+        Message message = new Message(Lists.newArrayList(a, b, c));
+        StringWriter sw = new StringWriter();
+
+        Aura.getServerService().run(message, Aura.getContextService().getCurrentContext(), sw, null);
+
+        for (Action action : message.getActions()) {
+            assertEquals("errors: " + action.getErrors(), Action.State.SUCCESS, action.getState());
+        }
+        assertEquals("first", a.getReturnValue());
+        assertEquals("second", b.getReturnValue());
+        String response = sw.toString();
+        assertTrue(response.indexOf("\"first\"") < response.indexOf("\"second\""));
+        assertTrue(response.indexOf("\"second\"") < response.indexOf("\"third\""));
+    }
+
+    /**
+     * A parallel safe action still runs after the actions that came before it in the request.
+     */
+    @Test
+    public void testParallelSafeActionsRunAfterEarlierActions() throws Exception {
+        Aura.getContextService().startContext(Mode.UTEST, Format.JSON, Authentication.AUTHENTICATED);
+        ControllerDef controllerDef = definitionService.getDefinition(
+                "java://org.auraframework.impl.java.controller.ParallelSafeActionTestController", ControllerDef.class);
+        String name = getName() + System.nanoTime();
+        Action write = controllerDef.createAction("echo", ImmutableMap.<String, Object> of("name", name));
+        Action a = controllerDef.createAction("getLastEcho", ImmutableMap.<String, Object> of());
+        Action b = controllerDef.createAction("getLastEcho", ImmutableMap.<String, Object> of());
+        Message message = new Message(Lists.newArrayList(write, a, b));
+
+        Aura.getServerService().run(message, Aura.getContextService().getCurrentContext(), new StringWriter(), null);
+
+        assertEquals("errors: " + a.getErrors(), Action.State.SUCCESS, a.getState());
+        assertEquals(name, a.getReturnValue());
+        assertEquals(name, b.getReturnValue());
+    }
+
+    /**
+     * Parallel safe actions see the locale and client of the request in their forked contexts.
+     */
+    @Test
+    public void testParallelSafeActionsSeeRequestState() throws Exception {
+        AuraContext context = Aura.getContextService().startContext(Mode.UTEST, Format.JSON,
+                Authentication.AUTHENTICATED);
+        context.setRequestedLocales(Lists.newArrayList(Locale.FRANCE));
+        context.setClient(new Client("Mozilla/5.0 (X11; Linux x86_64; rv:40.0) Gecko/20100101 Firefox/40.0"));
+        ControllerDef controllerDef = definitionService.getDefinition(
+                "java://org.auraframework.impl.java.controller.ParallelSafeActionTestController", ControllerDef.class);
+        Action a = controllerDef.createAction("getRequestState", ImmutableMap.<String, Object> of());
+        Action b = controllerDef.createAction("getRequestState", ImmutableMap.<String, Object> of());
+        Message message = new Message(Lists.newArrayList(a, b));
+
+        Aura.getServerService().run(message, context, new StringWriter(), null);
+
+        assertEquals("errors: " + a.getErrors(), Action.State.SUCCESS, a.getState());
+        assertEquals("fr_FR|FIREFOX", a.getReturnValue());
+        assertEquals("fr_FR|FIREFOX", b.getReturnValue());
+    }
+
     /**
      * Test a simple action that serializes a specific value.
      *
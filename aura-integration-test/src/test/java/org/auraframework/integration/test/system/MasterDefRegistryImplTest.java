@@ -29,6 +29,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nonnull;
 
@@ -672,6 +676,145 @@ public class MasterDefRegistryImplTest extends AuraImplTestCase {
         Mockito.verify(registry, Mockito.times(0)).compileDE(Mockito.eq(cmpDesc));
     }
 
+    /**
+     * Count the times the sub-registries of an MDR are asked for a descriptor, i.e. the times it is compiled, and hold
+     * each of them until released.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void holdCompiles(MasterDefRegistryImplOverride registry, final DefDescriptor<?> descriptor,
+            final AtomicInteger compiles, final CountDownLatch compiling, final CountDownLatch release,
+            final RuntimeException failure) throws QuickFixException {
+        for (DefRegistry<?> subReg : registry.getAllRegistries()) {
+            Mockito.doAnswer(new Answer<Definition>() {
+                @Override
+                public Definition answer(InvocationOnMock invocation) throws Throwable {
+                    if (descriptor.equals(invocation.getArguments()[0])) {
+                        compiles.incrementAndGet();
+                        compiling.countDown();
+                        release.await();
+                        if (failure != null) {
+                            throw failure;
+                        }
+                    }
+                    return (Definition) invocation.callRealMethod();
+                }
+            }).when(subReg).getDef(Mockito.<DefDescriptor> any());
+        }
+    }
+
+    /**
+     * Call getDef on another thread, in a context like the current one, as a concurrent request would.
+     */
+    private Thread startGetDef(final MasterDefRegistry registry, final DefDescriptor<?> descriptor,
+            final AtomicReference<Object> result) {
+        AuraContext ctx = Aura.getContextService().getCurrentContext();
+        final Mode mode = ctx.getMode();
+        final Format format = ctx.getFormat();
+        final Authentication access = ctx.getAccess();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Aura.getContextService().startContext(mode, format, access);
+                try {
+                    result.set(registry.getDef(descriptor));
+                } catch (Throwable t) {
+                    result.set(t);
+                } finally {
+                    Aura.getContextService().endContext();
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Wait until a thread is parked, i.e. waiting for another thread's compile.
+     */
+    private void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue("Thread never waited for the compile in progress", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Concurrent getDef calls for the same descriptor on different MDRs compile it once, the others build from what
+     * the first compile cached.
+     */
+    @Test
+    public void testConcurrentGetDefCompilesOnce() throws Exception {
+        DefDescriptor<ComponentDef> cmpDesc = addSourceAutoCleanup(ComponentDef.class, "<aura:component/>");
+        CountDownLatch leaderCompiling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger leaderCompiles = new AtomicInteger();
+        AtomicInteger waiterCompiles = new AtomicInteger();
+        AtomicReference<Object> leaderResult = new AtomicReference<>();
+        AtomicReference<Object> waiterResult = new AtomicReference<>();
+
+        MasterDefRegistryImplOverride leader = getDefRegistry(true);
+        holdCompiles(leader, cmpDesc, leaderCompiles, leaderCompiling, release, null);
+        MasterDefRegistryImplOverride waiter = getDefRegistry(true);
+        holdCompiles(waiter, cmpDesc, waiterCompiles, new CountDownLatch(1), new CountDownLatch(0), null);
+
+        Thread leaderThread = startGetDef(leader, cmpDesc, leaderResult);
+        Thread waiterThread = null;
+        try {
+            assertTrue(leaderCompiling.await(10, TimeUnit.SECONDS));
+            waiterThread = startGetDef(waiter, cmpDesc, waiterResult);
+            awaitWaiting(waiterThread);
+        } finally {
+            release.countDown();
+        }
+        leaderThread.join(10000);
+        waiterThread.join(10000);
+
+        assertTrue("leader failed: " + leaderResult.get(), leaderResult.get() instanceof ComponentDef);
+        assertTrue("waiter failed: " + waiterResult.get(), waiterResult.get() instanceof ComponentDef);
+        assertEquals(cmpDesc, ((ComponentDef) waiterResult.get()).getDescriptor());
+        assertEquals(1, leaderCompiles.get());
+        assertEquals("the waiter should not have compiled", 0, waiterCompiles.get());
+        Mockito.verify(waiter, Mockito.times(1)).compileDE(Mockito.eq(cmpDesc));
+    }
+
+    /**
+     * A getDef waiting on another thread's compile compiles for itself if that compile fails.
+     */
+    @Test
+    public void testConcurrentGetDefFallsBackWhenLeaderFails() throws Exception {
+        DefDescriptor<ComponentDef> cmpDesc = addSourceAutoCleanup(ComponentDef.class, "<aura:component/>");
+        CountDownLatch leaderCompiling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger leaderCompiles = new AtomicInteger();
+        AtomicInteger waiterCompiles = new AtomicInteger();
+        AtomicReference<Object> leaderResult = new AtomicReference<>();
+        AtomicReference<Object> waiterResult = new AtomicReference<>();
+        RuntimeException failure = new RuntimeException("leader failed");
+
+        MasterDefRegistryImplOverride leader = getDefRegistry(true);
+        holdCompiles(leader, cmpDesc, leaderCompiles, leaderCompiling, release, failure);
+        MasterDefRegistryImplOverride waiter = getDefRegistry(true);
+        holdCompiles(waiter, cmpDesc, waiterCompiles, new CountDownLatch(1), new CountDownLatch(0), null);
+
+        Thread leaderThread = startGetDef(leader, cmpDesc, leaderResult);
+        Thread waiterThread = null;
+        try {
+            assertTrue(leaderCompiling.await(10, TimeUnit.SECONDS));
+            waiterThread = startGetDef(waiter, cmpDesc, waiterResult);
+            awaitWaiting(waiterThread);
+        } finally {
+            release.countDown();
+        }
+        leaderThread.join(10000);
+        waiterThread.join(10000);
+
+        assertFalse("leader should have failed", leaderResult.get() instanceof ComponentDef);
+        assertTrue("waiter failed: " + waiterResult.get(), waiterResult.get() instanceof ComponentDef);
+        assertEquals(cmpDesc, ((ComponentDef) waiterResult.get()).getDescriptor());
+        assertTrue("the waiter should have compiled for itself", waiterCompiles.get() > 0);
+    }
+
     @Test
     public void testGetDefDescriptorNull() throws Exception {
         MasterDefRegistryImplOverride registry = getDefRegistry(false);
@@ -50,6 +50,37 @@ public interface Annotations {
     @interface CabooseAction {
     }
 
+    /**
+     * Marks a server action as safe to run at the same time as the other actions in its request.
+     *
+     * Such an action runs on a pooled thread with its own forked context, so it must not depend on anything done by
+     * the other actions in the request, nor on the context (other than reading it). It only overlaps with the parallel
+     * safe actions right next to it in the request, so it still runs after any other action that came before it.
+     * Results are still sent back in the order the actions were received.
+     *
+     * The AuraEnabled annotation is still required to use this method as a server action.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    @interface ParallelSafeAction {
+    }
+
+    /**
+     * Marks a server action whose result may be cached on the server, and handed to any other call with the same
+     * parameters until it expires.
+     *
+     * The result must depend on nothing but the parameters: not on the user, the locale, or anything else in the
+     * context. Only successful results that create no components and fire no events are cached.
+     *
+     * The AuraEnabled annotation is still required to use this method as a server action.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    @interface CacheableAction {
+        /** How long a result is kept, in seconds */
+        int expiration() default 60;
+    }
+
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.METHOD)
     @interface AuraEnabled {
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of latencies, in nanoseconds.
+ *
+ * Values are counted in log-linear buckets, in the manner of an HDR histogram: each power of two is split into eight
+ * buckets, so that a percentile is accurate to within an eighth (12.5%) of its value, whatever the range. Recording is
+ * a couple of atomic adds, with no locking and no allocation, so a single histogram can be shared by every thread.
+ *
+ * Percentiles are read from the counts as they stand, and so are only approximate while values are being recorded.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Values below this are counted exactly, one bucket each */
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+
+    /** Enough buckets for any positive long */
+    private static final int BUCKETS = LINEAR + (63 - SUB_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exp - SUB_BITS - 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * The highest value that is counted in a bucket.
+     */
+    static long highestInBucket(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int exp = (bucket - LINEAR) / SUB_BUCKETS + SUB_BITS + 1;
+        long sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long lowest = (1L << exp) + (sub << (exp - SUB_BITS));
+        return lowest + (1L << (exp - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param nanos the latency, negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : nanos;
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the number of values recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the largest value recorded, 0 if there are none.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the values recorded, 0 if there are none.
+     */
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : total.get() / n;
+    }
+
+    /**
+     * Get a percentile.
+     *
+     * @param percentile the percentile, from 0 to 100.
+     * @return the value at or below which that percentage of the values fall, to the accuracy of the buckets, or 0 if
+     *         there are none.
+     */
+    public long getPercentile(double percentile) {
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long wanted = Math.max(1, (long) Math.ceil(n * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= wanted) {
+                return Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clear all values.
+     *
+     * This is not atomic with respect to values being recorded at the same time, which may be partly lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.javascript;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * A content addressed cache of minified javascript.
+ *
+ * Minified code is keyed by a SHA-256 of the writer, the compiler release and the source, so the same source is only
+ * minified once, whatever definition it came from. There are two tiers: an in memory cache, bounded by the number of
+ * characters it holds, and a directory of files that survives a restart, and can be shipped with an image so that every
+ * node starts warm. Only clean output is cached, anything with errors or warnings is compiled every time so that the
+ * messages name the right file.
+ *
+ * Misses are compiled on a bounded pool, so that a burst of cold definitions compiles in parallel without running an
+ * unbounded number of compilers at once, and two threads missing on the same source share one compile.
+ *
+ * The disk tier is off unless a directory is set by the aura.minify.cache.dir system property. Whatever is in the
+ * directory ends up in served code, so it is created readable and writable by its owner only, and is not used if anyone
+ * else can write to it, which is what keeps others from putting code there. Each file also starts with a digest of the
+ * code that follows, so that a file that was cut short or damaged on disk is ignored rather than served. The digest
+ * does not stop anyone who can write to the directory, as they can write a matching digest.
+ */
+public final class MinificationCache {
+    private static final Log LOG = LogFactory.getLog(MinificationCache.class);
+
+    /** Bumped whenever the compiler options in {@link JavascriptWriter} change */
+    private static final String OPTIONS_VERSION = "1";
+
+    private static final long MEMORY_CHARS = Long.getLong("aura.minify.cache.memoryChars", 32L * 1024 * 1024);
+    private static final int THREADS = Integer.getInteger("aura.minify.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private static final MinificationCache INSTANCE = new MinificationCache(defaultDirectory(), MEMORY_CHARS);
+
+    private static final ExecutorService pool = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "aura-minify-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final File directory;
+    private final Cache<String, String> memory;
+    private final ConcurrentMap<String, Future<Minified>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The output of one compile.
+     */
+    private static final class Minified {
+        private final String code;
+        private final List<JavascriptProcessingError> errors;
+
+        private Minified(String code, List<JavascriptProcessingError> errors) {
+            this.code = code;
+            this.errors = errors;
+        }
+    }
+
+    @VisibleForTesting
+    MinificationCache(File directory, long memoryChars) {
+        this.directory = directory != null && prepareDirectory(directory) ? directory : null;
+        this.memory = CacheBuilder.newBuilder().maximumWeight(memoryChars).weigher(new Weigher<String, String>() {
+            @Override
+            public int weigh(String key, String value) {
+                return value.length();
+            }
+        }).build();
+    }
+
+    public static MinificationCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static File defaultDirectory() {
+        String dir = System.getProperty("aura.minify.cache.dir");
+        return dir == null || dir.isEmpty() ? null : new File(dir);
+    }
+
+    /**
+     * Make sure that the directory exists, and that only we can write to it.
+     *
+     * @return false if the directory can't be used.
+     */
+    private static boolean prepareDirectory(File directory) {
+        Path path = directory.toPath();
+        try {
+            if (!directory.isDirectory()) {
+                createDirectories(path);
+            }
+            if (isPosix()) {
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+                String owner = Files.getOwner(path).getName();
+                if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+                        || permissions.contains(PosixFilePermission.OTHERS_WRITE)
+                        || !owner.equals(System.getProperty("user.name"))) {
+                    LOG.warn("Not caching minified javascript in " + directory + ", as it is writable by others");
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Not caching minified javascript in " + directory, e);
+            return false;
+        }
+    }
+
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Create a directory, and any missing parents, readable and writable by their owner only.
+     */
+    private static void createDirectories(Path path) throws IOException {
+        if (isPosix()) {
+            Files.createDirectories(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        } else {
+            Files.createDirectories(path);
+        }
+    }
+
+    /**
+     * Compress javascript, as {@link JavascriptWriter#compress(String, Writer, String)} does, using cached output if
+     * the same source has been compressed before.
+     *
+     * @param writer the compression to use.
+     * @param in the source.
+     * @param out where to write the compressed source.
+     * @param filename the name used in any errors.
+     * @return the errors and warnings, which are never cached.
+     */
+    public List<JavascriptProcessingError> compress(final JavascriptWriter writer, final String in, Writer out,
+            final String filename) throws IOException {
+        String key = key(writer, in);
+        String cached = memory.getIfPresent(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            out.append(cached);
+            return new ArrayList<>();
+        }
+        cached = readFile(key);
+        if (cached != null) {
+            diskHits.incrementAndGet();
+            memory.put(key, cached);
+            out.append(cached);
+            return new ArrayList<>();
+        }
+
+        Minified minified;
+        FutureTask<Minified> task = new FutureTask<>(new Callable<Minified>() {
+            @Override
+            public Minified call() throws Exception {
+                StringWriter sw = new StringWriter();
+                List<JavascriptProcessingError> errors = writer.compress(in, sw, filename);
+                return new Minified(sw.toString(), errors);
+            }
+        });
+        Future<Minified> existing = inFlight.putIfAbsent(key, task);
+        if (existing == null) {
+            misses.incrementAndGet();
+            try {
+                pool.execute(task);
+                minified = get(task);
+                if (minified.errors == null || minified.errors.isEmpty()) {
+                    memory.put(key, minified.code);
+                    writeFile(key, minified.code);
+                }
+            } finally {
+                inFlight.remove(key, task);
+            }
+        } else {
+            minified = get(existing);
+            if (minified.errors != null && !minified.errors.isEmpty()) {
+                // The messages name the other caller's file, so compile again for ours.
+                return writer.compress(in, out, filename);
+            }
+        }
+        out.append(minified.code);
+        return minified.errors;
+    }
+
+    private static Minified get(Future<Minified> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    @VisibleForTesting
+    static String key(JavascriptWriter writer, String in) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(writer.name().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(OPTIONS_VERSION.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(com.google.javascript.jscomp.Compiler.getReleaseVersion())
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(in.getBytes(StandardCharsets.UTF_8));
+            return Hex.encodeHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is a required MessageDigest algorithm, but is not registered here.");
+        }
+    }
+
+    private File file(String key) {
+        return new File(new File(directory, key.substring(0, 2)), key + ".js");
+    }
+
+    private String readFile(String key) {
+        if (directory == null) {
+            return null;
+        }
+        File file = file(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            String contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            int newline = contents.indexOf('\n');
+            if (newline > 0) {
+                String code = contents.substring(newline + 1);
+                if (contents.substring(0, newline).equals(digest(code))) {
+                    return code;
+                }
+            }
+            LOG.warn("Ignoring minified javascript in " + file + ", as it does not match its digest");
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Unable to read minified javascript from " + file, e);
+            return null;
+        }
+    }
+
+    private static String digest(String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Hex.encodeHexString(digest.digest(code.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is a required MessageDigest algorithm, but is not registered here.");
+        }
+    }
+
+    /**
+     * Write a file, with the digest of the code before it, atomically, so that another process or thread never reads
+     * part of one.
+     */
+    private void writeFile(String key, String code) {
+        if (directory == null) {
+            return;
+        }
+        File file = file(key);
+        try {
+            File parent = file.getParentFile();
+            if (!parent.isDirectory()) {
+                createDirectories(parent.toPath());
+            }
+            File temp = File.createTempFile(key, ".tmp", parent);
+            try {
+                Files.write(temp.toPath(), (digest(code) + "\n" + code).getBytes(StandardCharsets.UTF_8));
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to write minified javascript to " + file, e);
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Drop the in memory tier, the files are kept.
+     */
+    public void invalidateMemory() {
+        memory.invalidateAll();
+    }
+}
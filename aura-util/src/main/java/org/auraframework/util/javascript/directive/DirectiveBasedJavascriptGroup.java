@@ -16,16 +16,30 @@
 package org.auraframework.util.javascript.directive;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.auraframework.util.javascript.CommonJavascriptGroupImpl;
 import org.auraframework.util.javascript.JavascriptProcessingError;
 import org.auraframework.util.javascript.JavascriptValidator;
@@ -37,7 +51,7 @@ import org.auraframework.util.text.Hash;
  */
 public class DirectiveBasedJavascriptGroup extends CommonJavascriptGroupImpl {
     /**
-     * We spawn multiple threads to go the per-mode generation, and throw this to indicate at least one failure. When
+     * We use multiple threads to do the per-mode generation, and throw this to indicate at least one failure. When
      * printed, this exception will have a "caused by" stack trace for the first error, but its message will identify
      * the cause (and failing thread, which hints at the compilation mode) for each error encountered.
      */
@@ -88,14 +102,33 @@ public class DirectiveBasedJavascriptGroup extends CommonJavascriptGroupImpl {
         }
     }
 
+    private static final Log LOG = LogFactory.getLog(DirectiveBasedJavascriptGroup.class);
+
     // name for threads that compress and write the output
     public static final String THREAD_NAME = "jsgen.";
 
+    private static final int THREADS = Integer.getInteger("aura.jsgen.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Shared by every group, so that the modes of all groups being generated at once are compressed in parallel, but
+     * with no more compilers running than there are threads.
+     */
+    private static final ExecutorService pool = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, THREAD_NAME + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     private final List<DirectiveType<?>> directiveTypes;
     private final Set<JavascriptGeneratorMode> modes;
     private final File startFile;
-    private CountDownLatch counter;
-    private Map<String, Throwable> errors;
+    private volatile Map<JavascriptGeneratorMode, Long> generationTimes = Collections.emptyMap();
 
     // used during parsing, should be clear for storing in memory
     private DirectiveParser parser;
@@ -103,7 +136,6 @@ public class DirectiveBasedJavascriptGroup extends CommonJavascriptGroupImpl {
     public DirectiveBasedJavascriptGroup(String name, File root, String start) throws IOException {
         this(name, root, start, DirectiveTypes.DEFAULT_TYPES, EnumSet.of(JavascriptGeneratorMode.DEVELOPMENT,
                 JavascriptGeneratorMode.PRODUCTION));
-        errors = null;
     }
 
     public DirectiveBasedJavascriptGroup(String name, File root, String start, List<DirectiveType<?>> directiveTypes,
@@ -133,7 +165,7 @@ public class DirectiveBasedJavascriptGroup extends CommonJavascriptGroupImpl {
     }
 
     @Override
-    public void generate(File destRoot, boolean doValidation) throws IOException {
+    public void generate(final File destRoot, boolean doValidation) throws IOException {
         if (parser == null) {
             throw new RuntimeException("No parser available to generate with");
         }
@@ -141,20 +173,54 @@ public class DirectiveBasedJavascriptGroup extends CommonJavascriptGroupImpl {
             validate();
         }
 
-        counter = new CountDownLatch(modes.size());
-        errors = new HashMap<>();
-        for (JavascriptGeneratorMode mode : modes) {
-            generateForMode(destRoot, mode);
+        final Map<String, Throwable> errors = new ConcurrentHashMap<>();
+        final Map<JavascriptGeneratorMode, Long> times = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>(modes.size());
+        for (final JavascriptGeneratorMode mode : modes) {
+            futures.add(pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    try {
+                        generateForMode(destRoot, mode);
+                    } catch (Throwable t) {
+                        // Store any problems, to be thrown in a composite runtime exception from the calling thread.
+                        errors.put(THREAD_NAME + mode, t);
+                    } finally {
+                        times.put(mode, System.nanoTime() - start);
+                    }
+                }
+            }));
         }
         try {
-            counter.await();
+            for (Future<?> future : futures) {
+                future.get();
+            }
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        Map<JavascriptGeneratorMode, Long> generated = new EnumMap<>(JavascriptGeneratorMode.class);
+        generated.putAll(times);
+        generationTimes = Collections.unmodifiableMap(generated);
+        if (LOG.isInfoEnabled()) {
+            for (Map.Entry<JavascriptGeneratorMode, Long> entry : generated.entrySet()) {
+                LOG.info(String.format("Generated %s for %s in %d ms", getName(), entry.getKey(),
+                        TimeUnit.NANOSECONDS.toMillis(entry.getValue())));
+            }
         }
         if (!errors.isEmpty()) {
             throw new CompositeRuntimeException("Errors generating javascript for " + getName(), errors);
         }
-        errors = null;
+    }
+
+    /**
+     * @return how long each mode took in the last call to generate, in nanoseconds, including modes that were already
+     *         up to date.
+     */
+    public Map<JavascriptGeneratorMode, Long> getGenerationTimes() {
+        return generationTimes;
     }
 
     public void validate() throws IOException {
@@ -170,45 +236,48 @@ public class DirectiveBasedJavascriptGroup extends CommonJavascriptGroupImpl {
         }
     }
 
-    protected void generateForMode(File destRoot, final JavascriptGeneratorMode mode) throws IOException {
-        final File dest = new File(destRoot, getName() + "_" + mode.getSuffix() + ".js");
-        if (dest.exists()) {
-            if (dest.lastModified() < getLastMod()) {
-                dest.delete();
-            } else {
-                // its up to date already, skip
-                counter.countDown();
-                return;
-            }
+    /**
+     * Generate and compress the output for one mode, unless it is already up to date.
+     *
+     * This is called on a pool thread, once for each mode, at the same time.
+     */
+    protected void generateForMode(File destRoot, JavascriptGeneratorMode mode) throws IOException {
+        File dest = new File(destRoot, getName() + "_" + mode.getSuffix() + ".js");
+        if (dest.exists() && dest.lastModified() >= getLastMod()) {
+            // its up to date already, skip
+            return;
         }
         dest.getParentFile().mkdirs();
-        final String everything = buildContent(mode);
-        final String threadName = THREAD_NAME + mode;
-        Thread t = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    Writer writer = null;
-                    try {
-                        writer = new FileWriter(dest);
-                        mode.getJavascriptWriter().compress(everything, writer, dest.getName());
-                        writer.write('\n');
-                    } finally {
-                        if (writer != null) {
-                            writer.close();
-                        }
-                        dest.setReadOnly();
-                    }
-                } catch (Throwable t) {
-                    // Store any problems, to be thrown in a composite runtime exception from the main thread.
-                    // Otherwise, they kill this worker thread but are basically ignored.
-                    errors.put(threadName, t);
-                } finally {
-                    counter.countDown();
-                }
-            }
-        }, threadName);
-        t.start();
+        String everything = buildContent(mode);
+        StringWriter writer = new StringWriter(everything.length());
+        mode.getJavascriptWriter().compress(everything, writer, dest.getName());
+        writer.write('\n');
+        writeIfChanged(dest, writer.toString().getBytes(Charset.defaultCharset()));
+    }
+
+    /**
+     * Write a generated file, unless it already has this content, in which case it is only marked as up to date.
+     *
+     * The file is replaced atomically, so that nothing reading it sees part of a file, and is left read only.
+     *
+     * @return true if the file was written.
+     */
+    private static boolean writeIfChanged(File dest, byte[] content) throws IOException {
+        if (dest.isFile() && dest.length() == content.length
+                && Arrays.equals(Files.readAllBytes(dest.toPath()), content)) {
+            dest.setLastModified(System.currentTimeMillis());
+            return false;
+        }
+        File temp = File.createTempFile(dest.getName(), ".tmp", dest.getParentFile());
+        try {
+            Files.write(temp.toPath(), content);
+            temp.setReadOnly();
+            Files.move(temp.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        return true;
     }
 
     protected String buildContent(JavascriptGeneratorMode mode) {
@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Parses a single top-level object from a buffer, with the same result as {@link JsonReader}.
+ *
+ * The whole input is read into a char array, and plain JSON is parsed straight from the array: there is no pushback,
+ * no position tracking, and strings without escapes are copied out in one go. Anything else that JsonStreamReader
+ * understands (comments, functions, unquoted keys, trailing commas, NaN and so on), and anything that is not valid, is
+ * handed to JsonStreamReader, so that the result and the errors (with their line and column) are just as they were.
+ *
+ * The mappings are those of JsonStreamReader: maps are LinkedHashMaps, lists ArrayLists and numbers BigDecimals.
+ */
+public class JsonBufferReader {
+
+    /** The same limit as JsonStreamReader, which reports it */
+    private static final int MAX_LENGTH = 1000000;
+
+    /**
+     * Thrown to hand the input over to JsonStreamReader.
+     */
+    private static class Fallback extends RuntimeException {
+        private static final long serialVersionUID = 4393164405616546451L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final Fallback FALLBACK = new Fallback();
+
+    private char[] buf;
+    private int length;
+    private int pos;
+
+    /**
+     * Read a value from a reader. The reader is read to the end, but not closed.
+     *
+     * @return the value, see {@link JsonStreamReader} for the mappings.
+     */
+    public Object read(Reader reader) {
+        char[] chars = new char[8192];
+        int count = 0;
+        try {
+            int n;
+            while ((n = reader.read(chars, count, chars.length - count)) != -1) {
+                count += n;
+                if (count == chars.length) {
+                    char[] grown = new char[chars.length * 2];
+                    System.arraycopy(chars, 0, grown, 0, count);
+                    chars = grown;
+                }
+            }
+        } catch (IOException e) {
+            throw new JsonStreamReader.JsonParseException(e);
+        }
+        return read(chars, count);
+    }
+
+    /**
+     * Read a value from a string.
+     *
+     * @return the value, see {@link JsonStreamReader} for the mappings.
+     */
+    public Object read(String string) {
+        if (string == null) {
+            throw new JsonStreamReader.JsonParseException("String cannot be null");
+        }
+        return read(string.toCharArray(), string.length());
+    }
+
+    private Object read(char[] chars, int count) {
+        this.buf = chars;
+        this.length = count;
+        this.pos = 0;
+        try {
+            if (count > MAX_LENGTH) {
+                throw FALLBACK;
+            }
+            skipWhitespace();
+            if (pos == length) {
+                throw FALLBACK;
+            }
+            return readValue();
+        } catch (Fallback f) {
+            return new JsonReader().read(new CharArrayReader(chars, 0, count));
+        } finally {
+            this.buf = null;
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < length) {
+            char c = buf[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Read a value, with pos on its first character.
+     */
+    private Object readValue() {
+        char c = buf[pos];
+        switch (c) {
+        case '{':
+            return readObject();
+        case '[':
+            return readArray();
+        case '"':
+        case '\'':
+            return readString(c);
+        case 't':
+            return readWord("true", Boolean.TRUE);
+        case 'f':
+            return readWord("false", Boolean.FALSE);
+        case 'n':
+            return readWord("null", null);
+        default:
+            return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = Maps.newLinkedHashMap();
+        pos++;
+        skipWhitespace();
+        if (pos < length && buf[pos] == '}') {
+            pos++;
+            return map;
+        }
+        while (true) {
+            if (pos == length || (buf[pos] != '"' && buf[pos] != '\'')) {
+                throw FALLBACK;
+            }
+            String key = readString(buf[pos]);
+            skipWhitespace();
+            if (pos == length || buf[pos] != ':') {
+                throw FALLBACK;
+            }
+            pos++;
+            skipWhitespace();
+            if (pos == length) {
+                throw FALLBACK;
+            }
+            map.put(key, readValue());
+            skipWhitespace();
+            if (pos == length) {
+                throw FALLBACK;
+            }
+            char c = buf[pos++];
+            if (c == '}') {
+                return map;
+            }
+            if (c != ',') {
+                throw FALLBACK;
+            }
+            skipWhitespace();
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = Lists.newArrayList();
+        pos++;
+        skipWhitespace();
+        if (pos < length && buf[pos] == ']') {
+            pos++;
+            return list;
+        }
+        while (true) {
+            if (pos == length) {
+                throw FALLBACK;
+            }
+            list.add(readValue());
+            skipWhitespace();
+            if (pos == length) {
+                throw FALLBACK;
+            }
+            char c = buf[pos++];
+            if (c == ']') {
+                return list;
+            }
+            if (c != ',') {
+                throw FALLBACK;
+            }
+            skipWhitespace();
+        }
+    }
+
+    /**
+     * Read a quoted string, with pos on the opening quote.
+     */
+    private String readString(char quote) {
+        int start = ++pos;
+        while (pos < length) {
+            char c = buf[pos];
+            if (c == quote) {
+                return new String(buf, start, pos++ - start);
+            }
+            if (c == '\\') {
+                return readEscapedString(quote, start);
+            }
+            if (c == '\n') {
+                throw FALLBACK;
+            }
+            pos++;
+        }
+        throw FALLBACK;
+    }
+
+    /**
+     * Finish reading a string that has escapes in it, with pos on the first backslash.
+     */
+    private String readEscapedString(char quote, int start) {
+        StringBuilder sb = new StringBuilder(pos - start + 16);
+        sb.append(buf, start, pos - start);
+        while (pos < length) {
+            char c = buf[pos++];
+            if (c == quote) {
+                return sb.toString();
+            }
+            if (c == '\n') {
+                throw FALLBACK;
+            }
+            if (c == '\\') {
+                if (pos == length) {
+                    throw FALLBACK;
+                }
+                c = buf[pos++];
+                switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                case '\'':
+                    break;
+                case 'b':
+                    c = '\b';
+                    break;
+                case 'f':
+                    c = '\f';
+                    break;
+                case 'n':
+                    c = '\n';
+                    break;
+                case 'r':
+                    c = '\r';
+                    break;
+                case 't':
+                    c = '\t';
+                    break;
+                case '0':
+                    c = '\0';
+                    break;
+                case 'v':
+                    c = '\u000B';
+                    break;
+                case 'u':
+                    c = readHex();
+                    break;
+                default:
+                    throw FALLBACK;
+                }
+            }
+            sb.append(c);
+        }
+        throw FALLBACK;
+    }
+
+    private char readHex() {
+        if (pos + 4 > length) {
+            throw FALLBACK;
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(buf[pos++], 16);
+            if (digit < 0) {
+                throw FALLBACK;
+            }
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+
+    private Object readWord(String word, Object value) {
+        int end = pos + word.length();
+        if (end > length) {
+            throw FALLBACK;
+        }
+        for (int i = 1; i < word.length(); i++) {
+            if (buf[pos + i] != word.charAt(i)) {
+                throw FALLBACK;
+            }
+        }
+        pos = end;
+        checkDelimiter();
+        return value;
+    }
+
+    /**
+     * Read a number. Small integers are made from a long, anything else goes straight from the buffer to BigDecimal.
+     */
+    private BigDecimal readNumber() {
+        int start = pos;
+        boolean integer = true;
+        while (pos < length) {
+            char c = buf[pos];
+            if (c >= '0' && c <= '9') {
+                pos++;
+            } else if (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                integer &= (c == '-' && pos == start);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        checkNumberEnd();
+        int digits = pos - start - (buf[start] == '-' ? 1 : 0);
+        if (integer && digits > 0 && digits <= 18) {
+            long value = 0;
+            for (int i = pos - digits; i < pos; i++) {
+                value = value * 10 + (buf[i] - '0');
+            }
+            return BigDecimal.valueOf(buf[start] == '-' ? -value : value);
+        }
+        if (pos == start) {
+            throw FALLBACK;
+        }
+        try {
+            return new BigDecimal(buf, start, pos - start);
+        } catch (NumberFormatException nfe) {
+            throw FALLBACK;
+        }
+    }
+
+    /**
+     * Check that a number ends where JsonStreamReader would end it.
+     *
+     * JsonStreamReader carries on reading a number after whitespace, so "1 2" is 12.
+     */
+    private void checkNumberEnd() {
+        int end = pos;
+        skipWhitespace();
+        if (pos < length) {
+            char c = buf[pos];
+            if (c != ',' && c != '}' && c != ']') {
+                throw FALLBACK;
+            }
+        }
+        pos = end;
+    }
+
+    /**
+     * Check that a word ends where JsonStreamReader would end it.
+     */
+    private void checkDelimiter() {
+        if (pos < length) {
+            char c = buf[pos];
+            if (c != ',' && c != '}' && c != ']' && c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                throw FALLBACK;
+            }
+        }
+    }
+}
@@ -18,7 +18,6 @@ package org.auraframework.util.json;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
@@ -27,7 +26,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -35,12 +33,10 @@ import java.util.TimeZone;
 
 import javax.annotation.Nonnull;
 
-import org.auraframework.util.AuraTextUtil;
 import org.auraframework.util.UncloseableOutputStream;
 import org.auraframework.util.json.Serialization.ReferenceScope;
 import org.auraframework.util.json.Serialization.ReferenceType;
 
-import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.CountingOutputStream;
@@ -117,9 +113,10 @@ public class JsonEncoder implements Json {
     }
 
     private final JsonSerializationContext serializationContext;
-    private final Map<Object, Integer> actionMap;
-    private final Map<Object, Integer> requestMap;
+    private RefIdMap actionMap;
+    private RefIdMap requestMap;
     private int lastRefId = 0;
+    private int refHits = 0;
     private final Appendable out;
     private final ArrayDeque<IndentEntry> indentStack = new ArrayDeque<>();
     private final DataOutputStream binaryOutput;
@@ -147,8 +144,8 @@ public class JsonEncoder implements Json {
 
         // No need to create the maps if we're not doing the ref stuff
         if (this.serializationContext.refSupport()) {
-            actionMap = new IdentityHashMap<>();
-            requestMap = new IdentityHashMap<>();
+            actionMap = RefIdMap.acquire();
+            requestMap = RefIdMap.acquire();
         } else {
             actionMap = null;
             requestMap = null;
@@ -282,8 +279,7 @@ public class JsonEncoder implements Json {
         if (out == null) {
             throw new IllegalArgumentException("out must not be null");
         }
-        final Writer writer = new OutputStreamWriter(out, Charsets.UTF_8);
-        return new JsonEncoder(writer, out, context);
+        return new JsonEncoder(new Utf8JsonWriter(out), out, context);
     }
 
     /*
@@ -320,9 +316,9 @@ public class JsonEncoder implements Json {
      * @param value the value for which we are storing a reference.
      * @return
      */
-    private Integer addReference(ReferenceScope rs, Object value) {
+    private int addReference(ReferenceScope rs, Object value) {
         int ret = ++lastRefId;
-        Map<Object, Integer> m = (rs == ReferenceScope.ACTION) ? actionMap : requestMap;
+        RefIdMap m = (rs == ReferenceScope.ACTION) ? actionMap : requestMap;
         m.put(value, ret);
         return ret;
     }
@@ -346,13 +342,32 @@ public class JsonEncoder implements Json {
      */
     @Override
     public Integer getRefId(ReferenceScope rs, Object value) {
+        int refId = findRefId(rs, value);
+        return refId == RefIdMap.MISSING ? null : refId;
+    }
+
+    private int findRefId(ReferenceScope rs, Object value) {
         switch (rs) {
         case ACTION:
             return actionMap.get(value);
         case REQUEST:
             return requestMap.get(value);
         }
-        return null;
+        return RefIdMap.MISSING;
+    }
+
+    /**
+     * @return the number of objects that have been given a ref id.
+     */
+    public int getReferenceCount() {
+        return lastRefId;
+    }
+
+    /**
+     * @return the number of times a ref was written in place of an object that was already serialized.
+     */
+    public int getReferenceHitCount() {
+        return refHits;
     }
 
     /**
@@ -593,14 +608,16 @@ public class JsonEncoder implements Json {
         }
         ReferenceType rt = serializationContext.refSupport() ? serializer.getReferenceType(value) : ReferenceType.NONE;
         if (rt != ReferenceType.NONE) {
-            Integer refId;
-            if ((refId = getRefId(serializer.getReferenceScope(value), value)) != null) {
+            ReferenceScope rs = serializer.getReferenceScope(value);
+            int refId;
+            if ((refId = findRefId(rs, value)) != RefIdMap.MISSING) {
+                refHits++;
                 // Output a simple reference
                 writeMapBegin();
                 writeMapEntry(ApplicationKey.SERIAL_REFID.toString(), refId);
                 writeMapEnd();
             } else {
-                refId = addReference(serializer.getReferenceScope(value), value);
+                refId = addReference(rs, value);
                 // Now manually output this 2-element map to avoid loop
                 writeMapBegin();
                 writeMapEntry(ApplicationKey.SERIAL_ID.toString(), refId);
@@ -632,8 +649,12 @@ public class JsonEncoder implements Json {
      */
     @Override
     public void writeString(Object value) throws IOException {
+        if (out instanceof Utf8JsonWriter) {
+            ((Utf8JsonWriter) out).writeJsonString(value.toString());
+            return;
+        }
         out.append('"');
-        out.append(AuraTextUtil.escapeForJSONString(value.toString()));
+        Utf8JsonWriter.appendEscaped(out, value.toString());
         out.append('"');
     }
 
@@ -867,15 +888,24 @@ public class JsonEncoder implements Json {
     }
 
     /**
-     * Writes out any buffered characters in the OutputStreamWriter to the
+     * Writes out any buffered characters in the Utf8JsonWriter to the
      * binary OutputStream and then closes the OutputStream.<br>
      * <br>
-     * Note that this method does nothing if Json was not created with an
-     * OutputStream, such as via
-     * {@link #createJsonStream(OutputStream, boolean, boolean, boolean)}.
+     * Note that this method does not close anything if Json was not created
+     * with an OutputStream, such as via
+     * {@link #createJsonStream(OutputStream, boolean, boolean, boolean)}.<br>
+     * <br>
+     * With refSupport on, this also hands the reference maps back to the
+     * thread's pool, so no references may be written after it.
      */
     @Override
     public void close() throws IOException {
+        if (actionMap != null) {
+            actionMap.release();
+            requestMap.release();
+            actionMap = null;
+            requestMap = null;
+        }
         if (binaryOutput != null) {
             if (out instanceof Writer) {
 
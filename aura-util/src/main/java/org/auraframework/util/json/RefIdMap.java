@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.util.ArrayDeque;
+
+/**
+ * An identity map from objects to serialization ref ids, for {@link JsonEncoder}.
+ *
+ * Keys are compared with ==, and stored with open addressing (linear probing) in a plain array, with the ids in a
+ * parallel int array, so that neither lookups nor puts allocate. The slots in use are remembered, so that clearing the
+ * map only touches those slots, rather than the whole table.
+ *
+ * Maps are pooled per thread: get one with {@link #acquire()}, and hand it back with {@link #release()} when the
+ * encoder is done with it. Not thread safe.
+ */
+final class RefIdMap {
+    /** The id returned for a key that is not in the map, ref ids start at 1 */
+    static final int MISSING = 0;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Tables bigger than this are not kept in the pool */
+    private static final int MAX_POOLED_CAPACITY = 1 << 16;
+
+    /** The most maps kept for each thread, an encoder uses two */
+    private static final int MAX_POOLED = 4;
+
+    private static final ThreadLocal<ArrayDeque<RefIdMap>> pool = new ThreadLocal<ArrayDeque<RefIdMap>>() {
+        @Override
+        protected ArrayDeque<RefIdMap> initialValue() {
+            return new ArrayDeque<>(MAX_POOLED);
+        }
+    };
+
+    private Object[] keys = new Object[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    /** The slots in use, in the order they were filled */
+    private int[] used = new int[INITIAL_CAPACITY / 2];
+    private int size;
+
+    /**
+     * Get an empty map, from this thread's pool if there is one.
+     */
+    static RefIdMap acquire() {
+        RefIdMap map = pool.get().pollFirst();
+        return map != null ? map : new RefIdMap();
+    }
+
+    /**
+     * Clear the map and hand it back to this thread's pool. The map must not be used after this.
+     */
+    void release() {
+        clear();
+        ArrayDeque<RefIdMap> maps = pool.get();
+        if (keys.length <= MAX_POOLED_CAPACITY && maps.size() < MAX_POOLED) {
+            maps.addFirst(this);
+        }
+    }
+
+    private int slot(Object key) {
+        int h = System.identityHashCode(key);
+        // spread the bits, as identity hashes are not well distributed in the low bits.
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h & (keys.length - 1);
+    }
+
+    /**
+     * Get the id for an object.
+     *
+     * @return the id, or {@link #MISSING} if there is none.
+     */
+    int get(Object key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            Object k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == null) {
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * Set the id for an object.
+     *
+     * @param key the object, not null.
+     * @param value the id, not {@link #MISSING}.
+     */
+    void put(Object key, int value) {
+        int mask = keys.length - 1;
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            Object k = keys[i];
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            if (k == null) {
+                keys[i] = key;
+                values[i] = value;
+                used[size++] = i;
+                if (size * 2 >= keys.length) {
+                    resize();
+                }
+                return;
+            }
+        }
+    }
+
+    private void resize() {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldUsed = used;
+        int oldSize = size;
+        keys = new Object[oldKeys.length * 2];
+        values = new int[keys.length];
+        used = new int[keys.length / 2];
+        size = 0;
+        for (int j = 0; j < oldSize; j++) {
+            int i = oldUsed[j];
+            put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    /**
+     * Empty the map, touching only the slots in use.
+     */
+    void clear() {
+        for (int j = 0; j < size; j++) {
+            keys[used[j]] = null;
+        }
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * A writer that encodes straight to UTF-8 in a byte buffer, and flushes the buffer to an output stream.
+ *
+ * This is the output used by {@link JsonEncoder} when it streams to an OutputStream. Besides avoiding a charset
+ * encoder, it can write a JSON string value with {@link #writeJsonString(String)}, escaping each character as it is
+ * encoded rather than building an escaped copy of the string first.
+ *
+ * The escaping is exactly that of {@link org.auraframework.util.AuraTextUtil#escapeForJSONString(String)}, see
+ * {@link #appendEscaped(Appendable, String)} for writers that are not backed by bytes.
+ *
+ * Buffers are reused by the thread that closes the writer. Like the encoder, this is not thread safe.
+ */
+public final class Utf8JsonWriter extends Writer {
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The most bytes that one char can need, as an escape or as UTF-8 (a surrogate pair is written as 4) */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    /** The escape for each ASCII character, null if it is written as is */
+    private static final String[] ESCAPES = new String[128];
+
+    static {
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['<'] = "\\u003C";
+        ESCAPES['>'] = "\\u003E";
+        ESCAPES[0] = "";
+        // only when followed by "--" and "/" respectively, see getEscape.
+        ESCAPES['!'] = "\\u0021";
+        ESCAPES['*'] = "\\u002A";
+    }
+
+    private static final ThreadLocal<byte[]> buffers = new ThreadLocal<>();
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int count;
+
+    /** A high surrogate at the end of the last write, waiting for its low surrogate */
+    private char pendingHigh;
+
+    public Utf8JsonWriter(OutputStream out) {
+        this.out = out;
+        byte[] pooled = buffers.get();
+        if (pooled != null) {
+            // the buffer is ours until we are closed.
+            buffers.remove();
+            this.buffer = pooled;
+        } else {
+            this.buffer = new byte[BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Get the escape for a character in a string.
+     *
+     * @return the escape, or null if the character is written as is.
+     */
+    private static String getEscape(String s, int i, char c) {
+        if (c < 128) {
+            String escape = ESCAPES[c];
+            if (escape == null) {
+                return null;
+            }
+            if (c == '!') {
+                return s.startsWith("--", i + 1) ? escape : null;
+            }
+            if (c == '*') {
+                return (i + 1 < s.length() && s.charAt(i + 1) == '/') ? escape : null;
+            }
+            return escape;
+        }
+        if (c == '\u2028') {
+            return "\\n";
+        }
+        if (c == '\u2029') {
+            return "\\u2029";
+        }
+        return null;
+    }
+
+    /**
+     * Append a string, escaped for a JSON string, to any appendable.
+     *
+     * Runs of characters that need no escaping are appended straight from the string, so no escaped copy is built.
+     *
+     * @param out where to append.
+     * @param s the string to escape.
+     */
+    public static void appendEscaped(Appendable out, String s) throws IOException {
+        int length = s.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            String escape = getEscape(s, i, c);
+            if (escape != null) {
+                appendRun(out, s, start, i);
+                out.append(escape);
+                start = i + 1;
+            }
+        }
+        appendRun(out, s, start, length);
+    }
+
+    private static void appendRun(Appendable out, String s, int start, int end) throws IOException {
+        if (start == 0 && end == s.length()) {
+            out.append(s);
+        } else if (start < end) {
+            if (out instanceof Writer) {
+                // Writer.append(csq, start, end) copies the run into a new string.
+                ((Writer) out).write(s, start, end - start);
+            } else {
+                out.append(s, start, end);
+            }
+        }
+    }
+
+    /**
+     * Write a string as a quoted, escaped JSON string.
+     */
+    public void writeJsonString(String s) throws IOException {
+        writeChar('"');
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            String escape = getEscape(s, i, c);
+            if (escape != null) {
+                ensureCapacity(escape.length());
+                for (int j = 0; j < escape.length(); j++) {
+                    buffer[count++] = (byte) escape.charAt(j);
+                }
+            } else {
+                writeChar(c);
+            }
+        }
+        writeChar('"');
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if (count + needed > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void writeChar(char c) throws IOException {
+        ensureCapacity(MAX_CHAR_BYTES);
+        if (pendingHigh != 0) {
+            char high = pendingHigh;
+            pendingHigh = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                buffer[count++] = (byte) (0xf0 | (cp >> 18));
+                buffer[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (cp & 0x3f));
+                return;
+            }
+            // unpaired, as the JDK encoder does.
+            buffer[count++] = '?';
+        }
+        if (c < 0x80) {
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xc0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHigh = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = '?';
+        } else {
+            buffer[count++] = (byte) (0xe0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buffer[count++] = (byte) (0x80 | (c & 0x3f));
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            writeChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+        if (csq instanceof String) {
+            String s = (String) csq;
+            write(s, 0, s.length());
+            return this;
+        }
+        return append(csq, 0, csq == null ? 4 : csq.length());
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) {
+            csq = "null";
+        }
+        for (int i = start; i < end; i++) {
+            writeChar(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Writer append(char c) throws IOException {
+        writeChar(c);
+        return this;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Write out everything buffered so far, and flush the stream.
+     *
+     * A high surrogate waiting for its pair stays buffered.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (pendingHigh != 0) {
+                pendingHigh = 0;
+                buffer[count++] = '?';
+            }
+            flushBuffer();
+            out.close();
+        } finally {
+            buffers.set(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class LatencyHistogramTest extends UnitTestCase {
+
+    @Test
+    public void testBucketsCoverValues() {
+        long[] values = { 0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE };
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue("bucket too low for " + value, LatencyHistogram.highestInBucket(bucket) >= value);
+            if (bucket > 0) {
+                assertTrue("bucket too high for " + value, LatencyHistogram.highestInBucket(bucket - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean());
+        long p50 = histogram.getPercentile(50);
+        assertTrue("p50 was " + p50, p50 >= 500000 && p50 <= 500000 * 1.125);
+        long p99 = histogram.getPercentile(99);
+        assertTrue("p99 was " + p99, p99 >= 990000 && p99 <= 1000000);
+        assertEquals(1000000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5);
+        histogram.record(-1);
+        assertEquals(2, histogram.getCount());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.javascript;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import org.auraframework.util.IOUtil;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class MinificationCacheTest extends UnitTestCase {
+
+    private static String compress(MinificationCache cache, JavascriptWriter writer, String code) throws Exception {
+        StringWriter sw = new StringWriter();
+        List<JavascriptProcessingError> errors = cache.compress(writer, code, sw, "test.js");
+        assertTrue("Unexpected errors " + errors, errors.isEmpty());
+        return sw.toString();
+    }
+
+    @Test
+    public void testMemoryHit() throws Exception {
+        MinificationCache cache = new MinificationCache(null, 1024 * 1024);
+        String code = "function f() { return 1; }";
+        assertEquals(code, compress(cache, JavascriptWriter.WITHOUT_CLOSURE, code));
+        assertEquals(code, compress(cache, JavascriptWriter.WITHOUT_CLOSURE, code));
+        assertEquals(1L, cache.getMisses());
+        assertEquals(1L, cache.getMemoryHits());
+        assertEquals(0L, cache.getDiskHits());
+    }
+
+    @Test
+    public void testDiskHitAcrossInstances() throws Exception {
+        File dir = new File(IOUtil.newTempDir("minify"));
+        try {
+            String code = "function g() { return 2; }";
+            MinificationCache first = new MinificationCache(dir, 1024 * 1024);
+            assertEquals(code, compress(first, JavascriptWriter.WITHOUT_CLOSURE, code));
+
+            MinificationCache second = new MinificationCache(dir, 1024 * 1024);
+            assertEquals(code, compress(second, JavascriptWriter.WITHOUT_CLOSURE, code));
+            assertEquals(0L, second.getMisses());
+            assertEquals(1L, second.getDiskHits());
+
+            second.invalidateMemory();
+            assertEquals(code, compress(second, JavascriptWriter.WITHOUT_CLOSURE, code));
+            assertEquals(2L, second.getDiskHits());
+        } finally {
+            IOUtil.delete(dir);
+        }
+    }
+
+    /**
+     * A file that does not match its digest, e.g. one that was cut short or damaged on disk, is not used.
+     */
+    @Test
+    public void testCorruptFileIsIgnored() throws Exception {
+        File dir = new File(IOUtil.newTempDir("minify"));
+        try {
+            String code = "function h() { return 3; }";
+            MinificationCache first = new MinificationCache(dir, 1024 * 1024);
+            assertEquals(code, compress(first, JavascriptWriter.WITHOUT_CLOSURE, code));
+
+            String key = MinificationCache.key(JavascriptWriter.WITHOUT_CLOSURE, code);
+            File file = new File(new File(dir, key.substring(0, 2)), key + ".js");
+            String contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            Files.write(file.toPath(), contents.substring(0, contents.length() - 3).getBytes(StandardCharsets.UTF_8));
+
+            MinificationCache second = new MinificationCache(dir, 1024 * 1024);
+            assertEquals(code, compress(second, JavascriptWriter.WITHOUT_CLOSURE, code));
+            assertEquals(0L, second.getDiskHits());
+            assertEquals(1L, second.getMisses());
+        } finally {
+            IOUtil.delete(dir);
+        }
+    }
+
+    /**
+     * A directory that others can write to is not used, and one that is created is private.
+     */
+    @Test
+    public void testDirectoryMustBePrivate() throws Exception {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return;
+        }
+        File dir = new File(IOUtil.newTempDir("minify"));
+        try {
+            File created = new File(dir, "created");
+            MinificationCache cache = new MinificationCache(created, 1024 * 1024);
+            assertEquals(PosixFilePermissions.fromString("rwx------"),
+                    Files.getPosixFilePermissions(created.toPath()));
+            String code = "function i() { return 4; }";
+            compress(cache, JavascriptWriter.WITHOUT_CLOSURE, code);
+
+            File shared = new File(dir, "shared");
+            assertTrue(shared.mkdir());
+            Files.setPosixFilePermissions(shared.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+            cache = new MinificationCache(shared, 1024 * 1024);
+            compress(cache, JavascriptWriter.WITHOUT_CLOSURE, code);
+            assertEquals(0, shared.list().length);
+        } finally {
+            IOUtil.delete(dir);
+        }
+    }
+
+    @Test
+    public void testKeyDependsOnWriterAndSource() {
+        String code = "var a = 1;";
+        assertEquals(MinificationCache.key(JavascriptWriter.CLOSURE_SIMPLE, code),
+                MinificationCache.key(JavascriptWriter.CLOSURE_SIMPLE, code));
+        assertFalse(MinificationCache.key(JavascriptWriter.CLOSURE_SIMPLE, code).equals(
+                MinificationCache.key(JavascriptWriter.WITHOUT_CLOSURE, code)));
+        assertFalse(MinificationCache.key(JavascriptWriter.CLOSURE_SIMPLE, code).equals(
+                MinificationCache.key(JavascriptWriter.CLOSURE_SIMPLE, code + " ")));
+    }
+
+    @Test
+    public void testErrorsAreNotCached() throws Exception {
+        MinificationCache cache = new MinificationCache(null, 1024 * 1024);
+        String code = "var a = ;";
+        for (int i = 0; i < 2; i++) {
+            List<JavascriptProcessingError> errors = cache.compress(JavascriptWriter.CLOSURE_SIMPLE, code,
+                    new StringWriter(), "broken.js");
+            assertFalse(errors.isEmpty());
+        }
+        assertEquals(2L, cache.getMisses());
+        assertEquals(0L, cache.getMemoryHits());
+    }
+}
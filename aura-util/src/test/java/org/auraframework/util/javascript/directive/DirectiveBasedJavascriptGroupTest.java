@@ -21,8 +21,12 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.EnumSet;
 
+import org.auraframework.util.IOUtil;
 import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -148,6 +152,41 @@ public class DirectiveBasedJavascriptGroupTest extends UnitTestCase {
                 unExpectedGenFile.exists());
     }
 
+    /**
+     * Generating again with unchanged output only marks the files as up to date, instead of writing them again, and
+     * each mode gets a timing.
+     */
+    @Test
+    public void testUnchangedOutputIsNotRewritten() throws Exception {
+        File file = getResourceFile("/testdata/javascript/testAllKindsOfDirectiveGenerate.js");
+        DirectiveBasedJavascriptGroup jg = new DirectiveBasedJavascriptGroup("testUnchanged", file.getParentFile(),
+                file.getName(), ImmutableList.<DirectiveType<?>> of(DirectiveFactory.getMultiLineMockDirectiveType(),
+                        DirectiveFactory.getMockDirective(), DirectiveFactory.getDummyDirectiveType()), EnumSet.of(
+                        JavascriptGeneratorMode.MOCK1, JavascriptGeneratorMode.MOCK2));
+        File dir = new File(IOUtil.newTempDir("jsgen"));
+        try {
+            jg.parse();
+            jg.generate(dir, false);
+            assertEquals(EnumSet.of(JavascriptGeneratorMode.MOCK1, JavascriptGeneratorMode.MOCK2),
+                    jg.getGenerationTimes().keySet());
+
+            File genFile = new File(dir, "testUnchanged_mock1.js");
+            Object fileKey = Files.readAttributes(genFile.toPath(), BasicFileAttributes.class).fileKey();
+            String contents = new String(Files.readAllBytes(genFile.toPath()), Charset.defaultCharset());
+            assertTrue(genFile.setLastModified(0));
+
+            jg.generate(dir, false);
+            assertTrue("Generated file should be up to date", genFile.lastModified() >= jg.getLastMod());
+            assertEquals(contents, new String(Files.readAllBytes(genFile.toPath()), Charset.defaultCharset()));
+            if (fileKey != null) {
+                assertEquals("Unchanged file should not be replaced", fileKey,
+                        Files.readAttributes(genFile.toPath(), BasicFileAttributes.class).fileKey());
+            }
+        } finally {
+            IOUtil.delete(dir);
+        }
+    }
+
     /**
      * Make sure the processor regeneration stops when there are errors in the source file
      */
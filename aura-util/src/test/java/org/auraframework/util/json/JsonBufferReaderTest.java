@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.auraframework.util.json.JsonStreamReader.JsonParseException;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+/**
+ * Test that {@link JsonBufferReader} reads just as {@link JsonReader} does.
+ */
+public class JsonBufferReaderTest extends UnitTestCase {
+
+    private void assertSameAsJsonReader(String json) {
+        Object expected = new JsonReader().read(json);
+        assertEquals(expected, new JsonBufferReader().read(json));
+        assertEquals(expected, new JsonBufferReader().read(new StringReader(json)));
+    }
+
+    private void assertSameErrorAsJsonReader(String json) {
+        String expected;
+        try {
+            new JsonReader().read(json);
+            fail("JsonReader should have failed on " + json);
+            return;
+        } catch (JsonParseException e) {
+            expected = e.getMessage();
+        }
+        try {
+            new JsonBufferReader().read(json);
+            fail("JsonBufferReader should have failed on " + json);
+        } catch (JsonParseException e) {
+            assertEquals(expected, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReadMessage() {
+        String json = "{\"actions\":[{\"id\":\"1;a\",\"descriptor\":\"java://test.Controller/ACTION$do\","
+                + "\"callingDescriptor\":\"UNKNOWN\",\"params\":{\"count\":42,\"ratio\":-2.5e3,"
+                + "\"flags\":[true, false, null],\"name\":\"x\\\"y\\u0041\\n\\/\"}}]}";
+        assertSameAsJsonReader(json);
+
+        Map<?, ?> message = (Map<?, ?>) new JsonBufferReader().read(json);
+        Map<?, ?> action = (Map<?, ?>) ((List<?>) message.get("actions")).get(0);
+        Map<?, ?> params = (Map<?, ?>) action.get("params");
+        assertEquals(new BigDecimal("42"), params.get("count"));
+        assertEquals(new BigDecimal("-2.5e3"), params.get("ratio"));
+        assertEquals("x\"yA\n/", params.get("name"));
+    }
+
+    @Test
+    public void testReadNumbers() {
+        for (String number : new String[] { "0", "-0", "007", "+1", "0.10", "1E+3", "123456789012345678",
+                "1234567890123456789012", "-9223372036854775808" }) {
+            assertSameAsJsonReader("[" + number + "]");
+            assertSameAsJsonReader(number);
+        }
+        // JsonStreamReader reads through whitespace in a number.
+        assertSameAsJsonReader("[1 2, 3 ]");
+    }
+
+    @Test
+    public void testReadExtensions() {
+        assertSameAsJsonReader("{'single':'quoted'}");
+        assertSameAsJsonReader("{unquoted:1}");
+        assertSameAsJsonReader("[1,]");
+        assertSameAsJsonReader("/* comment */ {\"a\":1}");
+        assertSameAsJsonReader("[NaN, Infinity]");
+        assertSameAsJsonReader("{\"a\":1} ignored");
+        assertSameAsJsonReader("");
+    }
+
+    @Test
+    public void testReadLongString() {
+        assertSameAsJsonReader("[\"" + Strings.repeat("abc\\t", 5000) + "\"]");
+    }
+
+    @Test
+    public void testErrorsMatchJsonReader() {
+        assertSameErrorAsJsonReader("[\"a\nb\"]");
+        assertSameErrorAsJsonReader("[\"\\q\"]");
+        assertSameErrorAsJsonReader("{\"a\" 1}");
+        assertSameErrorAsJsonReader("[1-2]");
+        assertSameErrorAsJsonReader("[\"unterminated");
+        assertSameErrorAsJsonReader("{\n\"a\":\n nul}");
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.util.List;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Test the identity map used for serialization refs in {@link RefIdMap}.
+ */
+public class RefIdMapTest extends UnitTestCase {
+
+    @Test
+    public void testIdentityNotEquality() {
+        RefIdMap map = new RefIdMap();
+        String a = new String("same");
+        String b = new String("same");
+        map.put(a, 1);
+        assertEquals(1, map.get(a));
+        assertEquals(RefIdMap.MISSING, map.get(b));
+        map.put(b, 2);
+        assertEquals(1, map.get(a));
+        assertEquals(2, map.get(b));
+        map.put(a, 3);
+        assertEquals(3, map.get(a));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testGrowAndClear() {
+        RefIdMap map = new RefIdMap();
+        List<Object> keys = Lists.newArrayList();
+        for (int i = 1; i <= 5000; i++) {
+            Object key = new Object();
+            keys.add(key);
+            map.put(key, i);
+        }
+        assertEquals(5000, map.size());
+        for (int i = 1; i <= 5000; i++) {
+            assertEquals(i, map.get(keys.get(i - 1)));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        for (Object key : keys) {
+            assertEquals(RefIdMap.MISSING, map.get(key));
+        }
+        map.put(keys.get(0), 7);
+        assertEquals(7, map.get(keys.get(0)));
+    }
+
+    @Test
+    public void testReleasedMapIsReusedEmpty() {
+        RefIdMap map = RefIdMap.acquire();
+        Object key = new Object();
+        map.put(key, 1);
+        map.release();
+        RefIdMap reused = RefIdMap.acquire();
+        assertSame(map, reused);
+        assertEquals(RefIdMap.MISSING, reused.get(key));
+        assertEquals(0, reused.size());
+        reused.release();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.auraframework.util.AuraTextUtil;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+
+/**
+ * Test the byte level writer in {@link Utf8JsonWriter}.
+ */
+public class Utf8JsonWriterTest extends UnitTestCase {
+    private static final String[] STRINGS = {
+        "",
+        "plain",
+        "back\\slash \"quoted\"\n\r\t",
+        "<!-- comment --> <! - !-",
+        "/* comment */ **/ *",
+        "line\u2028para\u2029nul\u0000end",
+        "caf\u00e9 \u20ac \ud83d\ude00",
+        "!",
+        "*"
+    };
+
+    private String writeJsonString(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8JsonWriter writer = new Utf8JsonWriter(bytes);
+        writer.writeJsonString(value);
+        writer.close();
+        return new String(bytes.toByteArray(), Charsets.UTF_8);
+    }
+
+    @Test
+    public void testWriteJsonStringMatchesEscape() throws IOException {
+        for (String value : STRINGS) {
+            assertEquals("\"" + AuraTextUtil.escapeForJSONString(value) + "\"", writeJsonString(value));
+        }
+    }
+
+    @Test
+    public void testAppendEscapedMatchesEscape() throws IOException {
+        for (String value : STRINGS) {
+            StringBuilder sb = new StringBuilder();
+            Utf8JsonWriter.appendEscaped(sb, value);
+            assertEquals(AuraTextUtil.escapeForJSONString(value), sb.toString());
+
+            StringWriter sw = new StringWriter();
+            Utf8JsonWriter.appendEscaped(sw, value);
+            assertEquals(AuraTextUtil.escapeForJSONString(value), sw.toString());
+        }
+    }
+
+    @Test
+    public void testWriteEncodesUtf8() throws IOException {
+        String value = "a\u00e9\u20ac\ud83d\ude00";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8JsonWriter writer = new Utf8JsonWriter(bytes);
+        // split the surrogate pair across writes.
+        writer.write(value, 0, 4);
+        writer.write(value.charAt(4));
+        writer.close();
+        assertEquals(value, new String(bytes.toByteArray(), Charsets.UTF_8));
+    }
+
+    @Test
+    public void testUnpairedSurrogate() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8JsonWriter writer = new Utf8JsonWriter(bytes);
+        writer.append("x\ud83dy\ude00");
+        writer.append('\ud83d');
+        writer.close();
+        assertEquals("x?y??", new String(bytes.toByteArray(), Charsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteLongerThanBuffer() throws IOException {
+        String value = Strings.repeat("\u20ac<x>", 10000);
+        assertEquals("\"" + AuraTextUtil.escapeForJSONString(value) + "\"", writeJsonString(value));
+    }
+
+    @Test
+    public void testEncoderStreamsThroughWriter() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonEncoder json = JsonEncoder.createJsonStream(bytes, false, false, false);
+        json.writeMapBegin();
+        json.writeMapEntry("k\u20ac", "<v>");
+        json.writeMapEnd();
+        json.close();
+        assertEquals("{\"k\u20ac\":\"\\u003Cv\\u003E\"}", new String(bytes.toByteArray(), Charsets.UTF_8));
+    }
+}
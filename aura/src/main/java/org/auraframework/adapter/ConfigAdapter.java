@@ -50,6 +50,14 @@ public interface ConfigAdapter extends AuraAdapter {
 
     void regenerateAuraJS();
 
+    /**
+     * Get the number of framework javascript regenerations started and finished.
+     *
+     * This is odd while a regeneration is in progress, during which the framework files may not match the framework
+     * uid, and must not be kept.
+     */
+    long getAuraJSGeneration();
+
     boolean isClientAppcacheEnabled();
 
     long getAuraJSLastMod();
@@ -74,6 +74,28 @@ public interface ContextAdapter extends AuraAdapter {
             DefDescriptor<? extends BaseComponentDef> appDesc,
             boolean isDebugToolEnabled);
 
+    /**
+     * Establish an existing context on this thread.
+     *
+     * This is used to run work for a context on another thread, with a context from
+     * {@link #buildForkedContext()}. It must be released with {@link #release()} when done.
+     *
+     * @param context the context to make current.
+     */
+    void establish(AuraContext context);
+
+    /**
+     * Build a copy of the current context for use on another thread.
+     *
+     * The copy has the same settings and request state (locales, client, loaded definitions) as the current context,
+     * but has its own definition registry layered over the current one, as registries are not thread safe. As with
+     * system contexts, access checks must have been done before it is used, and the current registry must not change
+     * while it is in use.
+     *
+     * @return the new context, not established on any thread.
+     */
+    AuraContext buildForkedContext();
+
     /**
      * is a context established in this thread?.
      *
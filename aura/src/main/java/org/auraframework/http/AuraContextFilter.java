@@ -48,11 +48,13 @@ import org.auraframework.http.RequestParam.InvalidParamException;
 import org.auraframework.http.RequestParam.StringParam;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.LoggingService;
+import org.auraframework.service.MetricsService;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
 import org.auraframework.system.Client;
+import org.auraframework.system.LoadedSetCache;
 import org.auraframework.util.AuraTextUtil;
 import org.auraframework.util.json.JsonReader;
 import org.springframework.web.context.support.SpringBeanAutowiringSupport;
@@ -105,7 +107,9 @@ public class AuraContextFilter implements Filter {
         }
 
         LoggingService loggingService = Aura.getLoggingService();
+        MetricsService metricsService = Aura.getMetricsService();
         try {
+            metricsService.startRequest();
             startContext(req, res, chain);
             HttpServletRequest request = (HttpServletRequest) req;
             loggingService.setValue(LoggingService.REQUEST_METHOD, request.getMethod());
@@ -131,6 +135,7 @@ public class AuraContextFilter implements Filter {
                 }
             } finally {
                 endContext();
+                metricsService.endRequest();
             }
         }
     }
@@ -171,9 +176,9 @@ public class AuraContextFilter implements Filter {
         context.setContextPath(contextPath);
         context.setNum(num.get(request));
         context.setRequestedLocales(Collections.list(request.getLocales()));
-        context.setClient(new Client(request.getHeader(HttpHeaders.USER_AGENT)));
+        context.setClient(Client.get(request.getHeader(HttpHeaders.USER_AGENT)));
         if (configMap != null) {
-            getLoaded(context, configMap.get("loaded"));
+            getLoaded(context, configMap.get("loaded"), configMap.get("loadedHash"));
             @SuppressWarnings("unchecked")
             List<Object> dns = (List<Object>) configMap.get("dn");
             if (dns != null) {
@@ -203,18 +208,32 @@ public class AuraContextFilter implements Filter {
 
     /**
      * Pull in the map of loaded defDescriptors and uids from the context.
+     *
+     * A client that has a loaded set known by token sends the token, and only the entries that changed since, with
+     * removed entries marked as deleted. If the token is no longer known, the changes are all we have, and the client
+     * will be sent the whole set. The set built here comes from the client, so it is not cached, the client gets a new
+     * token for the set that is sent back to it.
      */
-    private void getLoaded(AuraContext context, Object loadedEntry) {
+    private void getLoaded(AuraContext context, Object loadedEntry, Object hashEntry) {
+        Map<DefDescriptor<?>, String> base = null;
+        if (hashEntry instanceof String && !((String) hashEntry).isEmpty() && LoadedSetCache.isEnabled()) {
+            base = LoadedSetCache.getInstance().get((String) hashEntry);
+        }
         if (loadedEntry == null || !(loadedEntry instanceof Map)) {
             //
             // If someone gives us bogus input, just ignore it.
             //
+            if (base != null) {
+                context.setClientLoaded(base);
+                context.setClientLoadedHash((String) hashEntry);
+            }
             return;
         }
         @SuppressWarnings("unchecked")
         Map<String, String> loaded = (Map<String, String>) loadedEntry;
         DefinitionService definitionService = Aura.getDefinitionService();
-        Map<DefDescriptor<?>, String> clientLoaded = Maps.newHashMap();
+        Map<DefDescriptor<?>, String> clientLoaded = base != null ? Maps.newHashMap(base) : Maps
+                .<DefDescriptor<?>, String> newHashMap();
 
         for (Map.Entry<String, String> entry : loaded.entrySet()) {
             String uid = entry.getValue();
@@ -236,12 +255,20 @@ public class AuraContextFilter implements Filter {
                         DefDescriptor<?> ld = null;
 
                         ld = definitionService.getDefDescriptor(defStr, type.getPrimaryInterface());
-                        clientLoaded.put(ld, uid);
+                        if (base != null && uid.equals(LoadedSetCache.DELETED)) {
+                            clientLoaded.remove(ld);
+                        } else {
+                            clientLoaded.put(ld, uid);
+                        }
                     }
                 }
             }
         }
         context.setClientLoaded(clientLoaded);
+        if (base != null) {
+            // The token is only still good if the client changed nothing.
+            context.setClientLoadedHash(loaded.isEmpty() ? (String) hashEntry : "");
+        }
     }
 
     @SuppressWarnings("unchecked")
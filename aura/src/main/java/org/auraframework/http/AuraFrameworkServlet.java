@@ -28,16 +28,19 @@ import org.apache.http.HttpHeaders;
 import org.auraframework.Aura;
 import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.system.CompressedResource;
 import org.auraframework.util.IOUtil;
 import org.auraframework.util.resource.ResourceLoader;
 
 public class AuraFrameworkServlet extends AuraBaseServlet {
 
     private static final long serialVersionUID = 6034969764380397480L;
-    private static final String MINIFIED_FILE_SUFFIX = ".min";
+    /** The most bytes of framework files to keep in memory, before compression */
+    private static final long STORE_MAX_BYTES = Long.getLong("aura.framework.storeBytes", 64L * 1024 * 1024);
     private ServletUtilAdapter servletUtilAdapter = Aura.getServletUtilAdapter();
     private ConfigAdapter configAdapter = Aura.getConfigAdapter();
     private ResourceLoader resourceLoader = configAdapter.getResourceLoader();
+    private volatile FrameworkResourceStore store;
 
     // RESOURCES_PATTERN format:
     // /required_root/optional_nonce/required_rest_of_path
@@ -64,13 +67,12 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
         InputStream in = null;
         try {
 
-            //
-            // Careful with race conditions here, we should only call regenerateAuraJS
-            // _before_ we get the nonce.
-            //
-            Aura.getConfigAdapter().regenerateAuraJS();
-            // framework uid is combination of aura js and resources uid
-            String currentUid = Aura.getConfigAdapter().getAuraFrameworkNonce();
+            // framework uid is combination of aura js and resources uid. Getting it also checks
+            // whether the aura js needs regenerating, without blocking. The generation is read first, so
+            // that if it has not changed by the time the file is read, the file is the one for the uid.
+            ConfigAdapter config = Aura.getConfigAdapter();
+            long generation = config.getAuraJSGeneration();
+            String currentUid = config.getAuraFrameworkNonce();
             // match entire path once, looking for root, optional nonce, and
             // rest-of-path
             Matcher matcher = RESOURCES_PATTERN.matcher(path);
@@ -89,16 +91,16 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
 
             // process path (not in a function because can't use non-synced
             // member vars in servlet)
-            String format = null;
+            String prefix = null;
 
             String root = matcher.group(1);
 
             if (root.equals("resources")) {
-                format = "/aura/resources%s";
+                prefix = "/aura/resources";
             } else if (root.equals("javascript")) {
-                format = "/aura/javascript%s";
+                prefix = "/aura/javascript";
             }
-            if (format == null) {
+            if (prefix == null) {
                 response.sendError(HttpServletResponse.SC_NOT_FOUND);
                 return;
             }
@@ -129,7 +131,10 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                 matchedUid = false;
             }
 
-            String resStr = String.format(format, file);
+            String resStr = prefix + file;
+            // The store uses the minified version of a resource file if in production mode.
+            FrameworkResourceStore store = getStore(String.valueOf(currentUid), generation);
+            FrameworkResourceStore.Entry entry;
 
             //
             // Check whether path has wrong nonce or the path contains no nonce
@@ -137,10 +142,12 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
             if (nonceUid != null && !matchedUid) {
 
                 // has "nonce" like path but uids don't match
-                if (resourceLoader.getResource(resStr) == null) {
+                entry = store.get(resStr, resourceLoader);
+                if (entry == null) {
                     // Check if resource exists with nonced path
-                    resStr = String.format(format, "/" + nonceUid + file);
-                    if (resourceLoader.getResource(resStr) != null) {
+                    resStr = prefix + "/" + nonceUid + file;
+                    entry = store.get(resStr, resourceLoader);
+                    if (entry != null) {
                         // file exists so doesn't have a nonce
                         haveUid = false;
                     } else {
@@ -152,28 +159,16 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                     // nonce exists but not matching
                     haveUid = true;
                 }
+            } else {
+                entry = store.get(resStr, resourceLoader);
             }
 
-            // Checks for a minified version of the external resource file
-            // Uses the minified version if in production mode.
-            if (resStr.startsWith("/aura/resources/") && Aura.getConfigAdapter().isProduction()) {
-                int extIndex = resStr.lastIndexOf(".");
-                if (extIndex > 0) {
-                    String minFile = resStr.substring(0, extIndex) + MINIFIED_FILE_SUFFIX + resStr.substring(extIndex);
-                    if (resourceLoader.getResource(minFile) != null) {
-                        resStr = minFile;
-                    }
-                }
-            }
-
-            in = resourceLoader.getResourceAsStream(resStr);
-
             //
             // Check if it exists. DANGER: if there is a nonce, this is really an
             // 'out-of-date' problem, and we may break the browser by telling it a
             // lie here.
             //
-            if (in == null) {
+            if (entry == null) {
                 response.sendError(HttpServletResponse.SC_NOT_FOUND);
                 return;
             }
@@ -193,13 +188,13 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                 response.setCharacterEncoding(AuraBaseServlet.UTF_ENCODING);
             }
 
-            response.setBufferSize(10240);// 10kb
-
             boolean js = JAVASCRIPT_CONTENT_TYPE.equals(mimeType);
-            if ((haveUid && !matchedUid) || (!haveUid && js)) {
+            boolean regenerated = !store.isKeeping() || config.getAuraJSGeneration() != generation;
+            if (regenerated || (haveUid && !matchedUid) || (!haveUid && js)) {
                 //
                 // If we had a mismatched UID or we had none, and are requesting js (legacy) we set a short
-                // cache response.
+                // cache response. The same goes if the javascript was regenerated under us, as what we read
+                // may not belong to the uid.
                 //
                 servletUtilAdapter.setNoCache(response);
             } else if (matchedUid || js) {
@@ -218,6 +213,19 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                 servletUtilAdapter.setShortCache(response);
             }
 
+            CompressedResource resource = entry.getResource();
+            if (resource != null) {
+                send(resource, request, response);
+                return;
+            }
+
+            // too large to keep in memory, so stream it.
+            in = resourceLoader.getResourceAsStream(entry.getPath());
+            if (in == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            response.setBufferSize(10240);// 10kb
             IOUtil.copyStream(in, response.getOutputStream());
         } finally {
             if (in != null) {
@@ -229,4 +237,36 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
             }
         }
     }
+
+    /**
+     * Get the store for the current framework uid and javascript generation, starting a new one if either has changed.
+     */
+    private FrameworkResourceStore getStore(String uid, long generation) {
+        boolean production = Aura.getConfigAdapter().isProduction();
+        FrameworkResourceStore current = store;
+        if (current == null || !current.getUid().equals(uid) || current.getGeneration() != generation
+                || current.isProduction() != production) {
+            current = new FrameworkResourceStore(uid, generation, production, STORE_MAX_BYTES);
+            store = current;
+        }
+        return current;
+    }
+
+    private void send(CompressedResource resource, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String encoding = resource.selectEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.ETAG, resource.getETag(encoding));
+        if (resource.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (encoding != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        byte[] content = resource.getContent(encoding);
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
+    }
 }
@@ -24,6 +24,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.auraframework.Aura;
 import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.cache.Cache;
 import org.auraframework.http.resource.AppCss;
 import org.auraframework.http.resource.AppJs;
 import org.auraframework.http.resource.EncryptionKey;
@@ -33,8 +34,11 @@ import org.auraframework.http.resource.ResourceSvg;
 import org.auraframework.http.resource.TemplateHtml;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraResource;
+import org.auraframework.system.CacheableAuraResource;
+import org.auraframework.system.CompressedResource;
 
 import com.google.common.collect.Maps;
+import com.google.common.net.HttpHeaders;
 
 /**
  * The aura resource servlet.
@@ -117,6 +121,69 @@ public class AuraResourceServlet extends AuraBaseServlet {
         resource.setContentType(response);
         servletUtil.setCSPHeaders(context.getApplicationDescriptor(), request, response);
         
-        resource.write(request, response, context);
+        if (resource instanceof CacheableAuraResource) {
+            writeCompressed((CacheableAuraResource) resource, servletUtil, request, response, context);
+        } else {
+            resource.write(request, response, context);
+        }
+    }
+
+    /**
+     * Serve a resource from the response cache, generating and compressing it if needed.
+     *
+     * A response cached by key is served without calling the resource at all, or answered with a 304 if the client
+     * already has it. Otherwise the resource writes to a buffer, and only a good (200, cacheable) response is kept,
+     * anything else is passed through untouched. A resource without a key is streamed as any other resource, and left
+     * to the container to compress.
+     */
+    void writeCompressed(CacheableAuraResource resource, ServletUtilAdapter servletUtil,
+            HttpServletRequest request, HttpServletResponse response, AuraContext context) throws IOException {
+        String key = resource.getResponseCacheKey(request, context);
+        if (key == null) {
+            resource.write(request, response, context);
+            return;
+        }
+
+        Cache<String, CompressedResource> cache = Aura.getCachingService().getResourceResponseCache();
+        CompressedResource cached = cache.getIfPresent(key);
+        if (cached != null) {
+            servletUtil.setLongCache(response);
+            send(cached, request, response);
+            return;
+        }
+
+        BufferedResponseWrapper buffered = new BufferedResponseWrapper(response);
+        resource.write(request, buffered, context);
+        if (buffered.isErrorSent()) {
+            return;
+        }
+        byte[] content = buffered.getBufferedBytes();
+        if (!buffered.isCacheable()) {
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
+            return;
+        }
+
+        CompressedResource compressed = CompressedResource.create(content);
+        cache.put(key, compressed);
+        send(compressed, request, response);
+    }
+
+    private void send(CompressedResource compressed, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String encoding = compressed.selectEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.ETAG, compressed.getETag(encoding));
+        if (compressed.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (encoding != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        byte[] content = compressed.getContent(encoding);
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
     }
 }
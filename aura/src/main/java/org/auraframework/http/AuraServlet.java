@@ -41,6 +41,7 @@ import org.auraframework.instance.Action;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.LoggingService;
+import org.auraframework.service.MetricsService;
 import org.auraframework.service.SerializationService;
 import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
@@ -441,11 +442,17 @@ public class AuraServlet extends AuraBaseServlet {
 
             Message message;
 
+            MetricsService metricsService = Aura.getMetricsService();
+            boolean sampled = metricsService.isSampled();
+            long start = sampled ? System.nanoTime() : 0L;
             loggingService.startTimer(LoggingService.TIMER_DESERIALIZATION);
             try {
                 message = serializationService.read(new StringReader(msg), Message.class);
             } finally {
                 loggingService.stopTimer(LoggingService.TIMER_DESERIALIZATION);
+                if (sampled) {
+                    metricsService.recordPhase(MetricsService.PHASE_DESERIALIZATION, System.nanoTime() - start);
+                }
             }
 
             // The bootstrap action cannot not have a CSRF token so we let it through
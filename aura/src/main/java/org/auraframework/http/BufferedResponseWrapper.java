@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.google.common.net.HttpHeaders;
+
+/**
+ * A response wrapper that holds back the body, so that it can be cached and compressed before it is sent.
+ *
+ * Headers and errors go straight through to the wrapped response, but we keep track of the status, and of whether the
+ * writer of the body asked for it not to be cached.
+ */
+class BufferedResponseWrapper extends HttpServletResponseWrapper {
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private int status = SC_OK;
+    private boolean errorSent = false;
+    private boolean noCache = false;
+
+    BufferedResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Get the body written so far.
+     */
+    byte[] getBufferedBytes() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Check whether the body is a normal response that may be kept.
+     *
+     * @return false if an error or non-200 status was set, or if the response was marked as not cacheable.
+     */
+    boolean isCacheable() {
+        return status == SC_OK && !errorSent && !noCache;
+    }
+
+    /**
+     * Check whether an error or redirect was sent, in which case there is no body to send.
+     */
+    boolean isErrorSent() {
+        return errorSent;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    buffer.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    buffer.write(b, off, len);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), StandardCharsets.UTF_8));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() {
+        // nothing is sent until the body is complete.
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        buffer.reset();
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        // the length is set when the (possibly compressed) body is sent.
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        status = sc;
+        super.setStatus(sc);
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int sc, String sm) {
+        status = sc;
+        super.setStatus(sc, sm);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        status = sc;
+        errorSent = true;
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        status = sc;
+        errorSent = true;
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        status = SC_FOUND;
+        errorSent = true;
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        checkNoCache(name, value);
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        checkNoCache(name, value);
+        super.addHeader(name, value);
+    }
+
+    private void checkNoCache(String name, String value) {
+        if (value != null && value.contains("no-cache")
+                && (HttpHeaders.CACHE_CONTROL.equalsIgnoreCase(name) || HttpHeaders.PRAGMA.equalsIgnoreCase(name))) {
+            noCache = true;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.auraframework.system.CompressedResource;
+import org.auraframework.util.IOUtil;
+import org.auraframework.util.resource.ResourceLoader;
+
+/**
+ * The framework javascript and resources served by {@link AuraFrameworkServlet}, held in memory with their compressed
+ * forms, for one framework uid.
+ *
+ * Framework files do not change while the framework uid stays the same, so each is read, and compressed, the first
+ * time it is asked for, and from then on is served from a single map lookup. When the uid, or the framework javascript
+ * generation, changes the servlet starts a new store. Nothing is kept while the javascript is being regenerated. Files that would take the store over its size limit are not kept, and are streamed from the resource
+ * loader as before. Missing files are not remembered, so that a client can't fill the store.
+ */
+final class FrameworkResourceStore {
+    private static final String MINIFIED_FILE_SUFFIX = ".min";
+
+    /**
+     * A framework file, found at a resource path.
+     */
+    static final class Entry {
+        private final String path;
+        private final CompressedResource resource;
+
+        private Entry(String path, CompressedResource resource) {
+            this.path = path;
+            this.resource = resource;
+        }
+
+        /**
+         * @return the resource path the file was found at, which may be the minified variant.
+         */
+        String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the content and its encodings, or null if the file is too large to keep and should be streamed.
+         */
+        CompressedResource getResource() {
+            return resource;
+        }
+    }
+
+    private final String uid;
+    private final long generation;
+    private final boolean production;
+    private final long maxBytes;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+
+    FrameworkResourceStore(String uid, long generation, boolean production, long maxBytes) {
+        this.uid = uid;
+        this.generation = generation;
+        this.production = production;
+        this.maxBytes = maxBytes;
+    }
+
+    String getUid() {
+        return uid;
+    }
+
+    /**
+     * @return the framework javascript generation the store was started in.
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return true if files may be kept, i.e. the javascript was not being regenerated when the store was started.
+     */
+    boolean isKeeping() {
+        return generation % 2 == 0;
+    }
+
+    boolean isProduction() {
+        return production;
+    }
+
+    /**
+     * Get a framework file.
+     *
+     * In production, a minified variant of a resource (name.min.ext) is used in place of the file if there is one.
+     *
+     * @param resStr the resource path, as /aura/resources/... or /aura/javascript/...
+     * @param resourceLoader where to read files that are not yet in the store.
+     * @return the entry, or null if there is no such file. The entry is not kept if the store is not keeping files.
+     */
+    Entry get(String resStr, ResourceLoader resourceLoader) throws IOException {
+        Entry entry = entries.get(resStr);
+        if (entry != null) {
+            return entry;
+        }
+        String path = resStr;
+        if (production && resStr.startsWith("/aura/resources/")) {
+            int extIndex = resStr.lastIndexOf(".");
+            if (extIndex > 0) {
+                String minFile = resStr.substring(0, extIndex) + MINIFIED_FILE_SUFFIX + resStr.substring(extIndex);
+                if (resourceLoader.getResource(minFile) != null) {
+                    path = minFile;
+                }
+            }
+        }
+        InputStream in = resourceLoader.getResourceAsStream(path);
+        if (in == null) {
+            return null;
+        }
+        byte[] content;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtil.copyStream(in, out);
+            content = out.toByteArray();
+        } finally {
+            in.close();
+        }
+        if (!isKeeping()) {
+            return new Entry(path, content.length <= maxBytes ? CompressedResource.create(content) : null);
+        }
+        CompressedResource resource = null;
+        if (bytes.addAndGet(content.length) <= maxBytes) {
+            resource = CompressedResource.create(content);
+        } else {
+            bytes.addAndGet(-content.length);
+        }
+        entry = new Entry(path, resource);
+        Entry existing = entries.putIfAbsent(resStr, entry);
+        if (existing != null) {
+            if (resource != null) {
+                bytes.addAndGet(-content.length);
+            }
+            return existing;
+        }
+        return entry;
+    }
+}
@@ -26,9 +26,11 @@ import org.auraframework.Aura;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
+import org.auraframework.system.AuraContext.EncodingStyle;
 import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.CacheableAuraResource;
 
-public class AppCss extends AuraResourceImpl {
+public class AppCss extends AuraResourceImpl implements CacheableAuraResource {
     private ServerService serverService = Aura.getServerService();
 
     public AppCss() {
@@ -41,11 +43,24 @@ public class AppCss extends AuraResourceImpl {
         if (dependencies == null) {
             return;
         }
+        byte[] content;
         try {
-            serverService.writeAppCss(dependencies, response.getWriter());
+            content = serverService.getAppCssBytes(dependencies);
         } catch (Throwable t) {
             servletUtilAdapter.handleServletException(t, false, context, request, response, false);
+            return;
+        }
+        // the content is cached already encoded, so skip the writer and its charset encoder.
+        response.getOutputStream().write(content);
+    }
+
+    @Override
+    public String getResponseCacheKey(HttpServletRequest request, AuraContext context) {
+        if (context.getStyleContext().getTokens().hasDynamicTokens()) {
+            // the css is evaluated per request, and skips the server side caches too.
+            return null;
         }
+        return getAppResponseCacheKey(context, EncodingStyle.Css);
     }
 
     /**
@@ -26,9 +26,11 @@ import org.auraframework.Aura;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
+import org.auraframework.system.AuraContext.EncodingStyle;
 import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.CacheableAuraResource;
 
-public class AppJs extends AuraResourceImpl {
+public class AppJs extends AuraResourceImpl implements CacheableAuraResource {
     private ServerService serverService = Aura.getServerService();
 
     public AppJs() {
@@ -42,11 +44,20 @@ public class AppJs extends AuraResourceImpl {
         if (dependencies == null) {
             return;
         }
+        byte[] content;
         try {
-            serverService.writeDefinitions(dependencies, response.getWriter());
+            content = serverService.getDefinitionsBytes(dependencies);
         } catch (Throwable t) {
             servletUtilAdapter.handleServletException(t, false, context, request, response, false);
+            return;
         }
+        // the content is cached already encoded, so skip the writer and its charset encoder.
+        response.getOutputStream().write(content);
+    }
+
+    @Override
+    public String getResponseCacheKey(HttpServletRequest request, AuraContext context) {
+        return getAppResponseCacheKey(context, EncodingStyle.Normal);
     }
 
     /**
@@ -25,6 +25,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.auraframework.Aura;
 import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.def.DefDescriptor;
 import org.auraframework.http.RequestParam.StringParam;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.system.AuraContext;
@@ -76,6 +77,22 @@ public abstract class AuraResourceImpl implements AuraResource {
         return false;
     }
 
+    /**
+     * Get a response cache key for output that depends only on the application and the context in the URL.
+     *
+     * @param context the context of the request.
+     * @param style the encoding used for the context in the URL of this resource.
+     * @return uid@name@context, or null if there is no application uid.
+     */
+    protected String getAppResponseCacheKey(AuraContext context, AuraContext.EncodingStyle style) {
+        DefDescriptor<?> appDesc = context.getApplicationDescriptor();
+        String uid = appDesc != null ? context.getUid(appDesc) : null;
+        if (uid == null) {
+            return null;
+        }
+        return uid + "@" + name + "@" + context.serialize(style);
+    }
+
     /**
      * Injection override.
      *
@@ -24,6 +24,9 @@ import org.auraframework.builder.CacheBuilder;
 import org.auraframework.cache.Cache;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.Definition;
+import org.auraframework.system.CachedActionResult;
+import org.auraframework.system.CompressedResource;
+import org.auraframework.system.DefinitionSnapshot;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.SourceListener;
 import org.auraframework.system.SourceListener.SourceMonitorEvent;
@@ -57,16 +60,73 @@ public interface CachingService extends AuraService {
 
     Cache<String, String> getStringsCache();
 
-    Cache<String, String> getAltStringsCache();
+    /**
+     * Get the cache of UTF-8 encoded app.js and app.css payloads, keyed like {@link #getStringsCache()}.
+     */
+    Cache<String, byte[]> getAltBytesCache();
+
+    /**
+     * Get the cache of compressed resource servlet responses.
+     *
+     * Entries are keyed either by uid@... (see {@link org.auraframework.system.CacheableAuraResource}), or by the hash
+     * of their content.
+     */
+    Cache<String, CompressedResource> getResourceResponseCache();
 
     Cache<String, Set<DefDescriptor<?>>> getDescriptorFilterCache();
 
+    /**
+     * Get the cache of serialized results of cacheable server actions.
+     *
+     * Entries are keyed by the action descriptor and its normalized parameters, and carry their own expiry time.
+     */
+    Cache<String, CachedActionResult> getActionResultCache();
+
     Cache<String, DependencyEntry> getDepsCache();
 
     Cache<String, String> getClientLibraryOutputCache();
 
     Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> getDefDescriptorByNameCache();
 
+    /**
+     * Record a dependency entry that was put in the dependency cache.
+     *
+     * This allows a source change to invalidate only the dependency entries (and the strings cached for them) that
+     * include the changed source.
+     *
+     * @param key the key under which the entry was put in {@link #getDepsCache()}
+     * @param de the entry
+     */
+    void registerDependencyEntry(String key, DependencyEntry de);
+
+    /**
+     * Get what is left of the snapshot of the definition and dependency caches that was taken at the last shutdown.
+     *
+     * Snapshots are only kept if the aura.cache.snapshotFile system property names a file. The file is read on the
+     * first call, and the caches are written back to it when the JVM shuts down.
+     *
+     * @return the snapshot, or null if snapshots are not enabled.
+     */
+    DefinitionSnapshot getDefinitionSnapshot();
+
+    /**
+     * Get the current cache generation.
+     *
+     * Reads from the caches do not lock. Instead, the generation is odd while source related caches are being
+     * invalidated, and changes again once they have been. A reader that computes a value to put in one of the global
+     * caches must note the generation before it starts reading, and must not put the value if the noted generation is
+     * odd, or invalidate the value it put if the generation has changed since, as the value may have been computed
+     * from stale sources.
+     *
+     * @return the generation, which only ever increases, and is odd while an invalidation is in progress.
+     */
+    long getGeneration();
+
+    /**
+     * Get the read side of the lock that serializes source change notifications.
+     *
+     * Holding it blocks cache invalidation, it is not needed (and not taken) to read the caches.
+     */
     Lock getReadLock();
 
     Lock getWriteLock();
@@ -100,6 +100,26 @@ public interface ContextService extends AuraService {
      */
     void popSystemContext();
 
+    /**
+     * Fork the current context, to do work on its behalf on other threads.
+     *
+     * The fork shares the settings of the current context, but has its own definition registry, layered over the
+     * current one. It is meant for work that is joined before the current context goes on, as the current registry
+     * must not change while the fork is in use. A fork must only be used by one thread at a time.
+     *
+     * @return the forked context, to be passed to {@link #startForkedContext(AuraContext)}.
+     */
+    AuraContext forkContext();
+
+    /**
+     * Start a context forked by {@link #forkContext()} on this thread.
+     *
+     * This must be closed with {@link #endContext()} (i.e. with a try {} finally {}).
+     *
+     * @param fork the forked context.
+     */
+    void startForkedContext(AuraContext fork);
+
     /**
      * Get the current context if there is one. Throws a runtime exception if
      * one is not established.
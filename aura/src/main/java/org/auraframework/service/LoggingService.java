@@ -73,6 +73,18 @@ public interface LoggingService extends AuraService {
      */
     void stopAction(String actionName);
 
+    /**
+     * Stop all timers for an action, and record its time against its descriptor.
+     *
+     * By default this only stops the timers, as {@link #stopAction(String)} does.
+     *
+     * @param actionName the name the action was started with.
+     * @param descriptorName the qualified name of the action's descriptor.
+     */
+    default void stopAction(String actionName, String descriptorName) {
+        stopAction(actionName);
+    }
+
     /**
      * Start a timer.
      *
@@ -15,6 +15,8 @@
  */
 package org.auraframework.service;
 
+import java.io.IOException;
+
 import org.auraframework.util.json.Json;
 
 
@@ -27,6 +29,66 @@ import org.auraframework.util.json.Json;
  * </p>
  */
 public interface MetricsService extends AuraService {
+    /** Reading the request body and its actions */
+    String PHASE_DESERIALIZATION = "deserialization";
+    /** Running one action, on any thread but not from the cache, the qualified name of the action follows */
+    String PHASE_ACTION = "action:";
+    /** Serializing the context into a response */
+    String PHASE_CONTEXT_SERIALIZATION = "contextSerialization";
+    /** Compiling a definition that was not cached */
+    String PHASE_DEFINITION_COMPILE = "definitionCompile";
+    /** Generating the CSS for an application */
+    String PHASE_CSS_GENERATION = "cssGeneration";
+    /** Generating the JS definitions for an application */
+    String PHASE_JS_GENERATION = "jsGeneration";
+
 	void serializeMetrics (Json json);
+
+    /**
+     * Clear the phases recorded so far for the current request, after they have been serialized.
+     *
+     * The process wide histograms are not touched.
+     */
 	void clearMetrics();
+
+    /**
+     * Start a request on this thread, deciding whether it is sampled.
+     *
+     * The phase methods do nothing by default, so that no request is sampled.
+     */
+    default void startRequest() {
+    }
+
+    /**
+     * @return true if the request on this thread is being sampled.
+     */
+    default boolean isSampled() {
+        return false;
+    }
+
+    /**
+     * Record the time taken by a phase of the current request.
+     *
+     * This does nothing unless the request is sampled, so the caller only needs to take the time if
+     * {@link #isSampled()} is true.
+     *
+     * @param phase the name of the phase, one of the PHASE constants.
+     * @param nanos the time taken.
+     */
+    default void recordPhase(String phase, long nanos) {
+    }
+
+    /**
+     * End the request on this thread.
+     */
+    default void endRequest() {
+    }
+
+    /**
+     * Write a snapshot of the process wide phase histograms, with times in milliseconds.
+     */
+    default void serializeSnapshot(Json json) throws IOException {
+        json.writeMapBegin();
+        json.writeMapEnd();
+    }
 }
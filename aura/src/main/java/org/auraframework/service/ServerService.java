@@ -68,6 +68,19 @@ public interface ServerService extends AuraService {
      */
     void writeAppCss(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
 
+    /**
+     * get the CSS for the preloads + app as UTF-8 bytes.
+     * 
+     * This is the same content as {@link #writeAppCss(Set, Writer)}, but served from the cache without decoding, so
+     * that it can be written directly to an output stream.
+     * 
+     * @param dependencies the dependencies of the app.
+     * @return the encoded CSS, never null.
+     * @throws IOException if unable to generate the CSS
+     * @throws QuickFixException if the definitions could not be compiled.
+     */
+    byte[] getAppCssBytes(Set<DefDescriptor<?>> dependencies) throws IOException, QuickFixException;
+
     /**
      * write out SVG.
      * 
@@ -87,6 +100,14 @@ public interface ServerService extends AuraService {
      */
     void writeDefinitions(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
 
+    /**
+     * get the complete set of definitions in JS as UTF-8 bytes.
+     * 
+     * This is the same content as {@link #writeDefinitions(Set, Writer)}, but served from the cache without decoding,
+     * so that it can be written directly to an output stream.
+     */
+    byte[] getDefinitionsBytes(Set<DefDescriptor<?>> dependencies) throws IOException, QuickFixException;
+
     /**
      * Write out a set of components in JSON.
      * 
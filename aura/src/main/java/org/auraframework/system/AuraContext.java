@@ -345,6 +345,24 @@ public interface AuraContext {
      */
     Map<DefDescriptor<?>, String> getClientLoaded();
 
+    /**
+     * Set the token of the loaded set the client started from.
+     *
+     * This is only set when the client sent a token known to the {@link LoadedSetCache}, in which case the client will
+     * only be sent the changes to its loaded set.
+     *
+     * @param hash the token of the client set, empty if the client has changed its set since the token was issued, or
+     *            null if the client sent the whole set.
+     */
+    void setClientLoadedHash(String hash);
+
+    /**
+     * Get the token of the loaded set the client started from.
+     *
+     * @return the token, empty if the client set has changed since, or null if there is none.
+     */
+    String getClientLoadedHash();
+
     /**
      * Add a loaded descriptor+UID pair.
      *
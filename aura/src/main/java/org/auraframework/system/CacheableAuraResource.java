@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A resource whose output is kept pre-compressed by the resource servlet.
+ *
+ * The servlet captures what {@link #write} produces, and keeps it along with its compressed forms in the resource
+ * response cache (see {@link CompressedResource}).
+ */
+public interface CacheableAuraResource extends AuraResource {
+    /**
+     * Get the key under which the output of a request is cached.
+     *
+     * If a key is returned, a cached response for it is served, or answered with a 304 on a matching If-None-Match,
+     * without calling {@link #write} at all. The key must start with the uid of the application followed by '@', so
+     * that it is invalidated along with everything else for that uid when a source changes, and it must capture
+     * everything else the output depends on.
+     *
+     * If null is returned, the output is generated and streamed on every request, as for any other resource.
+     *
+     * This must not need the definition registry.
+     *
+     * @param request the request being served.
+     * @param context the context of the request.
+     * @return the key, or null if the output cannot be cached.
+     */
+    String getResponseCacheKey(HttpServletRequest request, AuraContext context);
+}
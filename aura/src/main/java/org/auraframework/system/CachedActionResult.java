@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import org.auraframework.util.javascript.Literal;
+
+/**
+ * The serialized return value of a cacheable server action, along with the time at which it expires.
+ *
+ * all values are final.
+ */
+public final class CachedActionResult {
+    private final Literal returnValue;
+    private final long expires;
+
+    /**
+     * @param json the return value, serialized to JSON.
+     * @param expires the time (in ms since the epoch) after which the result must not be used.
+     */
+    public CachedActionResult(String json, long expires) {
+        this.returnValue = new Literal(json);
+        this.expires = expires;
+    }
+
+    /**
+     * Get the return value, which serializes as the JSON it was built from.
+     */
+    public Literal getReturnValue() {
+        return returnValue;
+    }
+
+    /**
+     * @param now the current time, in ms since the epoch.
+     * @return true if the result must no longer be used.
+     */
+    public boolean isExpired(long now) {
+        return now >= expires;
+    }
+}
@@ -66,6 +66,16 @@ public class Client {
         }
     }
 
+    /**
+     * Get the client for a user agent, as kept in the {@link UserAgentCache}.
+     *
+     * @param ua the user agent, may be null.
+     * @return the client, shared by every caller with the same user agent.
+     */
+    public static Client get(String ua) {
+        return UserAgentCache.getInstance().get(ua).getClient();
+    }
+
     public Type getType() {
         return type;
     }
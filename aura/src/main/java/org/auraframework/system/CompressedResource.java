@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.auraframework.throwable.AuraRuntimeException;
+import org.auraframework.util.text.Hash;
+
+/**
+ * The generated output of a resource, held along with its gzip and deflate encodings.
+ *
+ * The encodings are computed once, at the best compression level, when the entry is created, so that the resource
+ * servlet can serve the same output over and over without compressing it again. Each encoding gets its own strong
+ * ETag, derived from an MD5 of the uncompressed content.
+ *
+ * all values are final, and the arrays must not be modified.
+ */
+public final class CompressedResource {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private final String hash;
+    private final byte[] content;
+    private final byte[] gzip;
+    private final byte[] deflate;
+
+    private CompressedResource(String hash, byte[] content, byte[] gzip, byte[] deflate) {
+        this.hash = hash;
+        this.content = content;
+        this.gzip = gzip;
+        this.deflate = deflate;
+    }
+
+    /**
+     * Compress some content.
+     *
+     * An encoding that does not make the content smaller is dropped, and the content will be sent as is to clients
+     * asking for it.
+     *
+     * @param content the uncompressed content.
+     * @return the new entry.
+     */
+    public static CompressedResource create(byte[] content) {
+        return new CompressedResource(hash(content), content, compress(content, true), compress(content, false));
+    }
+
+    /**
+     * Get the hash of some content, as used for the ETags.
+     *
+     * @param content the uncompressed content.
+     * @return an url safe hash of the content.
+     */
+    public static String hash(byte[] content) {
+        try {
+            return new Hash(MessageDigest.getInstance("MD5").digest(content)).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AuraRuntimeException("MD5 is a required MessageDigest algorithm, but is not registered here.");
+        }
+    }
+
+    /**
+     * Pick the best encoding that we have for an Accept-Encoding header.
+     *
+     * @param acceptEncoding the header sent by the client, may be null.
+     * @return {@link #GZIP}, {@link #DEFLATE}, or null if the content should be sent as is.
+     */
+    public String selectEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean acceptsGzip = false;
+        boolean acceptsDeflate = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            if (parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?")) {
+                continue;
+            }
+            if (name.equals(GZIP) || name.equals("x-gzip")) {
+                acceptsGzip = true;
+            } else if (name.equals(DEFLATE)) {
+                acceptsDeflate = true;
+            }
+        }
+        if (acceptsGzip && gzip != null) {
+            return GZIP;
+        }
+        if (acceptsDeflate && deflate != null) {
+            return DEFLATE;
+        }
+        return null;
+    }
+
+    /**
+     * Get the bytes to send for an encoding.
+     *
+     * @param encoding an encoding returned by {@link #selectEncoding(String)}.
+     */
+    public byte[] getContent(String encoding) {
+        if (GZIP.equals(encoding)) {
+            return gzip;
+        }
+        if (DEFLATE.equals(encoding)) {
+            return deflate;
+        }
+        return content;
+    }
+
+    /**
+     * Get the strong ETag for an encoding, including the quotes.
+     *
+     * @param encoding an encoding returned by {@link #selectEncoding(String)}.
+     */
+    public String getETag(String encoding) {
+        if (encoding == null) {
+            return "\"" + hash + "\"";
+        }
+        return "\"" + hash + "-" + encoding + "\"";
+    }
+
+    /**
+     * Check an If-None-Match header against the ETags of this entry.
+     *
+     * Any of the encodings match, as they all represent the same content.
+     *
+     * @param ifNoneMatch the header sent by the client, may be null.
+     * @return true if the client already has this content.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(getETag(null)) || tag.equals(getETag(GZIP)) || tag.equals(getETag(DEFLATE))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] compress(byte[] content, boolean gzip) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 4 + 64);
+        try {
+            DeflaterOutputStream out;
+            if (gzip) {
+                out = new GZIPOutputStream(bytes) {
+                    {
+                        def.setLevel(Deflater.BEST_COMPRESSION);
+                    }
+                };
+            } else {
+                out = new DeflaterOutputStream(bytes) {
+                    {
+                        def.setLevel(Deflater.BEST_COMPRESSION);
+                    }
+                };
+            }
+            out.write(content);
+            out.close();
+        } catch (IOException e) {
+            // can't happen with a byte array.
+            throw new AuraRuntimeException(e);
+        }
+        byte[] compressed = bytes.toByteArray();
+        return compressed.length < content.length ? compressed : null;
+    }
+}
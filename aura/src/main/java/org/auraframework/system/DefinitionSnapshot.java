@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.def.ClientLibraryDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A copy of the definition and dependency caches, kept on disk so that a restarted server does not start cold.
+ *
+ * Nothing in a snapshot is trusted. The registry must check each definition against the hash of its current source
+ * before it uses it, and may only use a dependency entry if every dependency is still current (see
+ * {@link #getHash(DefDescriptor)}). Each definition and entry is handed out once, after which it lives (or not) in
+ * the normal caches.
+ *
+ * A snapshot is stamped with the version of the framework that wrote it, and is ignored by any other version, as
+ * the serialized form of the definitions may have changed. Each definition and entry is serialized as a record of its
+ * own, so that one that cannot be written or read is left out without losing the rest.
+ */
+public class DefinitionSnapshot {
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * The serialized form of a dependency entry, the dependencies are kept in level order.
+     */
+    private static class Entry implements Serializable {
+        private static final long serialVersionUID = 4406151370581231386L;
+
+        private final String uid;
+        private final List<DefDescriptor<?>> dependencies;
+        private final List<ClientLibraryDef> clientLibraries;
+
+        private Entry(DependencyEntry de) {
+            this.uid = de.uid;
+            this.dependencies = Lists.newArrayList(de.dependencies);
+            this.clientLibraries = Lists.newArrayList(de.clientLibraries);
+        }
+
+        private DependencyEntry toDependencyEntry() {
+            Set<DefDescriptor<? extends Definition>> deps = Sets.newLinkedHashSet(dependencies);
+            return new DependencyEntry(uid, Collections.unmodifiableSet(deps), clientLibraries);
+        }
+    }
+
+    private final ConcurrentMap<DefDescriptor<?>, Definition> defs;
+    private final Map<DefDescriptor<?>, String> hashes;
+    private final ConcurrentMap<String, Entry> entries;
+
+    private DefinitionSnapshot(Map<DefDescriptor<?>, Definition> defs, Map<String, Entry> entries) {
+        this.defs = new ConcurrentHashMap<>(defs);
+        this.entries = new ConcurrentHashMap<>(entries);
+        Map<DefDescriptor<?>, String> hashes = Maps.newHashMapWithExpectedSize(defs.size());
+        for (Map.Entry<DefDescriptor<?>, Definition> entry : defs.entrySet()) {
+            String hash = entry.getValue().getOwnHash();
+            if (hash != null) {
+                hashes.put(entry.getKey(), hash);
+            }
+        }
+        this.hashes = Collections.unmodifiableMap(hashes);
+    }
+
+    /**
+     * Create an empty snapshot.
+     */
+    public DefinitionSnapshot() {
+        this(Collections.<DefDescriptor<?>, Definition> emptyMap(), Collections.<String, Entry> emptyMap());
+    }
+
+    /**
+     * Read a snapshot from a file.
+     *
+     * @param file the file to read.
+     * @param stamp the version of the framework that is running.
+     * @return the snapshot, or null if the file does not exist or was written by another version.
+     * @throws IOException if the file could not be read.
+     */
+    @CheckForNull
+    public static DefinitionSnapshot read(@Nonnull File file, @Nonnull String stamp) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION || !stamp.equals(in.readUTF())) {
+                return null;
+            }
+            Map<DefDescriptor<?>, Definition> defs = Maps.newHashMap();
+            while (in.readBoolean()) {
+                Object[] record = readRecord(in);
+                if (record != null && record[0] instanceof DefDescriptor && record[1] instanceof Definition) {
+                    defs.put((DefDescriptor<?>) record[0], (Definition) record[1]);
+                }
+            }
+            Map<String, Entry> entries = Maps.newHashMap();
+            while (in.readBoolean()) {
+                Object[] record = readRecord(in);
+                if (record != null && record[0] instanceof String && record[1] instanceof Entry) {
+                    entries.put((String) record[0], (Entry) record[1]);
+                }
+            }
+            return new DefinitionSnapshot(defs, entries);
+        }
+    }
+
+    /**
+     * Read a key and value written by {@link #writeRecord(DataOutputStream, Object, Object)}.
+     *
+     * @return the key and value, or null if they could not be deserialized (e.g. a class no longer exists).
+     * @throws IOException if the file could not be read.
+     */
+    @CheckForNull
+    private static Object[] readRecord(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream record = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return new Object[] { record.readObject(), record.readObject() };
+        } catch (IOException | ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write the current content of the caches to a file.
+     *
+     * The file is written next to the target and then renamed over it, so that a crash while writing never leaves a
+     * partial snapshot behind. Dependency entries holding a quick fix are not written, nor is anything that cannot
+     * be serialized.
+     *
+     * @param file the file to write.
+     * @param stamp the version of the framework that is running.
+     * @param defsCache the definition cache.
+     * @param depsCache the dependency cache.
+     * @return the number of definitions and entries left out because they could not be serialized.
+     * @throws IOException if the file could not be written.
+     */
+    public static int write(@Nonnull File file, @Nonnull String stamp,
+            @Nonnull Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache,
+            @Nonnull Cache<String, DependencyEntry> depsCache) throws IOException {
+        int skipped = 0;
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(stamp);
+            for (DefDescriptor<?> descriptor : defsCache.getKeySet()) {
+                Optional<? extends Definition> opt = defsCache.getIfPresent(descriptor);
+                if (opt != null && opt.isPresent() && !writeRecord(out, descriptor, opt.get())) {
+                    skipped++;
+                }
+            }
+            out.writeBoolean(false);
+            for (String key : depsCache.getKeySet()) {
+                DependencyEntry de = depsCache.getIfPresent(key);
+                if (de != null && de.uid != null && de.qfe == null && !writeRecord(out, key, new Entry(de))) {
+                    skipped++;
+                }
+            }
+            out.writeBoolean(false);
+        }
+        if (!temp.renameTo(file)) {
+            // some platforms will not rename over an existing file.
+            if (!file.delete() || !temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Unable to replace " + file);
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Write a key and value as a record of their own.
+     *
+     * They are serialized to a buffer first, so nothing is written if they cannot be serialized.
+     *
+     * @return false if they could not be serialized.
+     * @throws IOException if the file could not be written.
+     */
+    private static boolean writeRecord(DataOutputStream out, Object key, Object value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream record = new ObjectOutputStream(buffer)) {
+            record.writeObject(key);
+            record.writeObject(value);
+        } catch (IOException ioe) {
+            return false;
+        }
+        out.writeBoolean(true);
+        out.writeInt(buffer.size());
+        buffer.writeTo(out);
+        return true;
+    }
+
+    /**
+     * Take the definition for a descriptor out of the snapshot.
+     *
+     * @param descriptor the descriptor.
+     * @return the definition, unchecked, or null if there is none (or it was already taken).
+     */
+    @CheckForNull
+    public <D extends Definition> D takeDef(@Nonnull DefDescriptor<D> descriptor) {
+        @SuppressWarnings("unchecked")
+        D def = (D) defs.remove(descriptor);
+        return def;
+    }
+
+    /**
+     * Get the source hash that a definition had when the snapshot was taken.
+     *
+     * This is still available after the definition has been taken, so that dependency entries can be checked.
+     *
+     * @param descriptor the descriptor.
+     * @return the hash, or null if the definition was not in the snapshot.
+     */
+    @CheckForNull
+    public String getHash(@Nonnull DefDescriptor<?> descriptor) {
+        return hashes.get(descriptor);
+    }
+
+    /**
+     * Take a dependency entry out of the snapshot.
+     *
+     * @param key the key of the entry in the dependency cache.
+     * @return the entry, unchecked, or null if there is none (or it was already taken).
+     */
+    @CheckForNull
+    public DependencyEntry takeDependencyEntry(@Nonnull String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        return entry.toDependencyEntry();
+    }
+
+    /**
+     * Check whether anything is left to take.
+     */
+    public boolean isEmpty() {
+        return defs.isEmpty() && entries.isEmpty();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Hex;
+import org.auraframework.def.DefDescriptor;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A bounded cache of the 'loaded' sets sent to clients, by a token for the set.
+ *
+ * When this is enabled (aura.context.loadedHash), the server sends a token for the loaded set along with the context.
+ * A client that has exactly that set sends back the token, plus any entries changed since, instead of the whole set,
+ * and the server gets the set back with a single lookup. A client whose token is no longer known here simply gets the
+ * whole set again.
+ *
+ * Tokens are only issued by the server, for sets it sends. A token starts with the {@link #hash(Map)} of the set, which
+ * the client (AuraContext.js) computes to check that its set is still the one the token was issued for, followed by a
+ * SHA-256 digest of the set. The digest is what keys the cache, so that a client cannot make up a token for a set
+ * other than its own, and it is checked again when a set is looked up.
+ */
+public final class LoadedSetCache {
+    private static final boolean ENABLED = Boolean.getBoolean("aura.context.loadedHash");
+
+    /** The uid of a loaded entry the client has dropped, as in the serialized context */
+    public static final String DELETED = "deleted";
+
+    /** The most sets that are kept */
+    private static final int MAX_SETS = Integer.getInteger("aura.context.loadedSets", 10000);
+
+    private static final LoadedSetCache INSTANCE = new LoadedSetCache();
+
+    private final Cache<String, Map<DefDescriptor<?>, String>> sets = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SETS).build();
+
+    private LoadedSetCache() {
+    }
+
+    public static LoadedSetCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true if loaded sets are sent to the client with a token.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Get a loaded set by token.
+     *
+     * @param token the token sent back by the client.
+     * @return the set, unmodifiable, or null if the token is not known.
+     */
+    public Map<DefDescriptor<?>, String> get(String token) {
+        Map<DefDescriptor<?>, String> loaded = sets.getIfPresent(token);
+        if (loaded != null && !token.equals(token(loaded))) {
+            sets.invalidate(token);
+            return null;
+        }
+        return loaded;
+    }
+
+    /**
+     * Remember a loaded set that is sent to a client.
+     *
+     * @param loaded the map of descriptors to uids, uids may be null.
+     * @return the token for the set.
+     */
+    public String put(Map<DefDescriptor<?>, String> loaded) {
+        Map<DefDescriptor<?>, String> copy = Collections.unmodifiableMap(new HashMap<>(loaded));
+        String token = token(copy);
+        sets.put(token, copy);
+        return token;
+    }
+
+    /**
+     * Forget all sets.
+     */
+    public void clear() {
+        sets.invalidateAll();
+    }
+
+    /**
+     * @return the key for a descriptor in the serialized loaded set.
+     */
+    public static String getKey(DefDescriptor<?> descriptor) {
+        return descriptor.getDefType().toString() + "@" + descriptor.getQualifiedName();
+    }
+
+    /**
+     * Get the token for a loaded set, the {@link #hash(Map)} of the set followed by its SHA-256 digest.
+     */
+    private static String token(Map<DefDescriptor<?>, String> loaded) {
+        Map<String, String> loadedStrings = new HashMap<>(loaded.size() * 2);
+        for (Map.Entry<DefDescriptor<?>, String> entry : loaded.entrySet()) {
+            loadedStrings.put(getKey(entry.getKey()), entry.getValue());
+        }
+        String[] keys = loadedStrings.keySet().toArray(new String[loadedStrings.size()]);
+        Arrays.sort(keys);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String key : keys) {
+                update(digest, key);
+                update(digest, loadedStrings.get(key));
+            }
+            return hash(loadedStrings) + Hex.encodeHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is a required MessageDigest algorithm, but is not registered here.");
+        }
+    }
+
+    /**
+     * Hash a serialized loaded set, as done by the client to check a token.
+     *
+     * This is a pair of 32 bit string hashes (FNV-1a and the java String hash), over each key and uid in key order,
+     * each followed by a newline. Missing uids hash as "null".
+     *
+     * @param loadedStrings the map of keys to uids.
+     * @return the hash, as 16 hex digits.
+     */
+    public static String hash(Map<String, String> loadedStrings) {
+        String[] keys = loadedStrings.keySet().toArray(new String[loadedStrings.size()]);
+        Arrays.sort(keys);
+        int[] hashes = { 0x811c9dc5, 0 };
+        for (String key : keys) {
+            update(hashes, key);
+            update(hashes, String.valueOf(loadedStrings.get(key)));
+        }
+        return String.format("%08x%08x", hashes[0], hashes[1]);
+    }
+
+    /**
+     * Add a string to a digest, after its length, so that no two sets give the same bytes.
+     */
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int length = value == null ? -1 : bytes.length;
+        digest.update(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8),
+                (byte) length });
+        digest.update(bytes);
+    }
+
+    private static void update(int[] hashes, String value) {
+        int fnv = hashes[0];
+        int java = hashes[1];
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            fnv = (fnv ^ c) * 16777619;
+            java = 31 * java + c;
+        }
+        fnv = (fnv ^ '\n') * 16777619;
+        java = 31 * java + '\n';
+        hashes[0] = fnv;
+        hashes[1] = java;
+    }
+}
@@ -30,6 +30,13 @@ public interface LoggingContext {
     
     void stopAction(String actionName);
 
+    /**
+     * Stop an action, and record its time against its descriptor. By default this only stops the action.
+     */
+    default void stopAction(String actionName, String descriptorName) {
+        stopAction(actionName);
+    }
+
     void startTimer(String name);
 
     void stopTimer(String name);
@@ -161,11 +161,21 @@ public interface MasterDefRegistry {
      */
     String getCachedString(String uid, DefDescriptor<?> descriptor, String key);
 
-	String getAltCachedString(String uid, DefDescriptor<?> descriptor, String key);
+    /**
+     * Get a named, UTF-8 encoded payload from the cache for a def.
+     *
+     * @param uid the UID for the definition (must have called {@link #getUid(String, DefDescriptor<?>)}).
+     * @param descriptor the descriptor.
+     * @param key the key.
+     */
+    byte[] getAltCachedBytes(String uid, DefDescriptor<?> descriptor, String key);
 
     /**
      * Get a named string from the cache for a cacheable definition.
      *
+     * Concurrent callers for the same key wait for a single call of the loader, rather than each generating the
+     * string.
+     *
      * @param definition the definition.
      * @throws QuickFixException
      * @throws IOException 
@@ -173,8 +183,18 @@ public interface MasterDefRegistry {
     String getCachedString(String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader) 
     		throws QuickFixException, IOException;
 
-	String getAltCachedString(String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader)
-			throws QuickFixException, IOException;
+    /**
+     * Get a named, UTF-8 encoded payload from the cache for a cacheable definition, loading it if needed.
+     *
+     * The returned array is shared with the cache, and must not be modified. As with
+     * {@link #getCachedString(String, DefDescriptor, String, Callable)}, concurrent callers for the same key share a
+     * single call of the loader.
+     *
+     * @throws QuickFixException
+     * @throws IOException
+     */
+    byte[] getAltCachedBytes(String uid, DefDescriptor<?> descriptor, String key, Callable<byte[]> loader)
+            throws QuickFixException, IOException;
 
     /**
      * Put a named string in the cache for a def.
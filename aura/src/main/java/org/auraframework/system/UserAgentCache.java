@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A bounded cache of what has been parsed from each user agent string.
+ *
+ * Every request needs its user agent classified, and some need it fully parsed, but real traffic only has a few
+ * thousand distinct user agents. Each entry holds the {@link Client}, and the full parse made by the implementation
+ * (BrowserInfo), which is only made the first time it is asked for. Both are immutable, and shared by every request
+ * with the same user agent.
+ */
+public final class UserAgentCache {
+    /** The most user agents that are kept */
+    private static final int MAX_AGENTS = Integer.getInteger("aura.userAgent.cacheSize", 4096);
+
+    /** User agents longer than this are parsed every time, rather than being kept */
+    private static final int MAX_LENGTH = 1024;
+
+    private static final UserAgentCache INSTANCE = new UserAgentCache();
+
+    private static final Entry NO_AGENT = new Entry(Client.OTHER);
+
+    /**
+     * What has been parsed from one user agent.
+     */
+    public static final class Entry {
+        private final Client client;
+        private volatile Object details;
+
+        private Entry(Client client) {
+            this.client = client;
+        }
+
+        public Client getClient() {
+            return client;
+        }
+
+        /**
+         * @return the full parse of the user agent, or null if none has been made yet.
+         */
+        public Object getDetails() {
+            return details;
+        }
+
+        /**
+         * Set the full parse of the user agent.
+         *
+         * @param details an immutable parse of the user agent.
+         */
+        public void setDetails(Object details) {
+            this.details = details;
+        }
+    }
+
+    private final Cache<String, Entry> agents = CacheBuilder.newBuilder().maximumSize(MAX_AGENTS).build();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private UserAgentCache() {
+    }
+
+    public static UserAgentCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the entry for a user agent.
+     *
+     * @param userAgent the raw user agent string, may be null.
+     * @return the entry, never null.
+     */
+    public Entry get(String userAgent) {
+        if (userAgent == null) {
+            return NO_AGENT;
+        }
+        Entry entry = agents.getIfPresent(userAgent);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        misses.incrementAndGet();
+        entry = new Entry(new Client(userAgent));
+        if (userAgent.length() > MAX_LENGTH) {
+            return entry;
+        }
+        Entry existing = agents.asMap().putIfAbsent(userAgent, entry);
+        return existing != null ? existing : entry;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of user agents kept.
+     */
+    public long size() {
+        return agents.size();
+    }
+
+    /**
+     * Forget all user agents, and reset the counts.
+     */
+    public void clear() {
+        agents.invalidateAll();
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.auraframework.util.resource.ResourceLoader;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class FrameworkResourceStoreTest extends UnitTestCase {
+    private static final byte[] CONTENT = "body { color: red; }".getBytes(StandardCharsets.UTF_8);
+
+    private static ResourceLoader mockLoader(String... paths) throws Exception {
+        ResourceLoader loader = Mockito.mock(ResourceLoader.class);
+        for (String path : paths) {
+            Mockito.when(loader.getResource(path)).thenReturn(new URL("file:" + path));
+            Mockito.when(loader.getResourceAsStream(path)).thenAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) {
+                    return new ByteArrayInputStream(CONTENT);
+                }
+            });
+        }
+        return loader;
+    }
+
+    @Test
+    public void testFileIsReadOnce() throws Exception {
+        ResourceLoader loader = mockLoader("/aura/javascript/aura_prod.js");
+        FrameworkResourceStore store = new FrameworkResourceStore("uid", 0, false, 1024);
+
+        FrameworkResourceStore.Entry entry = store.get("/aura/javascript/aura_prod.js", loader);
+        assertNotNull(entry.getResource());
+        assertEquals(new String(CONTENT, StandardCharsets.UTF_8),
+                new String(entry.getResource().getContent(null), StandardCharsets.UTF_8));
+        assertSame(entry, store.get("/aura/javascript/aura_prod.js", loader));
+        Mockito.verify(loader, Mockito.times(1)).getResourceAsStream("/aura/javascript/aura_prod.js");
+    }
+
+    @Test
+    public void testMissingFileIsNotKept() throws Exception {
+        ResourceLoader loader = mockLoader();
+        FrameworkResourceStore store = new FrameworkResourceStore("uid", 0, false, 1024);
+
+        assertNull(store.get("/aura/resources/missing.css", loader));
+        assertNull(store.get("/aura/resources/missing.css", loader));
+        Mockito.verify(loader, Mockito.times(2)).getResourceAsStream("/aura/resources/missing.css");
+    }
+
+    @Test
+    public void testMinifiedResourceOnlyInProduction() throws Exception {
+        ResourceLoader loader = mockLoader("/aura/resources/lib/lib.js", "/aura/resources/lib/lib.min.js");
+
+        FrameworkResourceStore dev = new FrameworkResourceStore("uid", 0, false, 1024);
+        assertEquals("/aura/resources/lib/lib.js", dev.get("/aura/resources/lib/lib.js", loader).getPath());
+
+        FrameworkResourceStore prod = new FrameworkResourceStore("uid", 0, true, 1024);
+        assertEquals("/aura/resources/lib/lib.min.js", prod.get("/aura/resources/lib/lib.js", loader).getPath());
+    }
+
+    @Test
+    public void testLargeFileIsStreamed() throws Exception {
+        ResourceLoader loader = mockLoader("/aura/javascript/aura_dev.js");
+        FrameworkResourceStore store = new FrameworkResourceStore("uid", 0, false, CONTENT.length - 1);
+
+        FrameworkResourceStore.Entry entry = store.get("/aura/javascript/aura_dev.js", loader);
+        assertEquals("/aura/javascript/aura_dev.js", entry.getPath());
+        assertNull(entry.getResource());
+    }
+
+    @Test
+    public void testNothingKeptWhileRegenerating() throws Exception {
+        ResourceLoader loader = mockLoader("/aura/javascript/aura_dev.js");
+        FrameworkResourceStore store = new FrameworkResourceStore("uid", 1, false, 1024);
+        assertFalse(store.isKeeping());
+
+        FrameworkResourceStore.Entry entry = store.get("/aura/javascript/aura_dev.js", loader);
+        assertNotNull(entry.getResource());
+        assertNotSame(entry, store.get("/aura/javascript/aura_dev.js", loader));
+        Mockito.verify(loader, Mockito.times(2)).getResourceAsStream("/aura/javascript/aura_dev.js");
+    }
+}
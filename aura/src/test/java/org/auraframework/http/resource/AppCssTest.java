@@ -21,7 +21,6 @@ import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
 import org.mockito.Mockito;
 
-import java.io.Writer;
 import java.util.HashSet;
 
 import javax.servlet.http.HttpServletRequest;
@@ -76,7 +75,7 @@ public class AppCssTest extends UnitTestCase {
         Mockito.when(servletUtilAdapter.verifyTopLevel(Mockito.any(HttpServletRequest.class),
                     Mockito.any(HttpServletResponse.class), Mockito.any(AuraContext.class)))
             .thenReturn(new HashSet<DefDescriptor<?>>());
-        Mockito.doThrow(t).when(serverService).writeAppCss(Mockito.anySet(), Mockito.any(Writer.class));
+        Mockito.doThrow(t).when(serverService).getAppCssBytes(Mockito.anySet());
 
         appCss.write(null, response, null);
 
@@ -85,8 +84,7 @@ public class AppCssTest extends UnitTestCase {
         //
         Mockito.verify(servletUtilAdapter, Mockito.times(1)).verifyTopLevel(Mockito.any(HttpServletRequest.class),
                 Mockito.any(HttpServletResponse.class), Mockito.any(AuraContext.class));
-        Mockito.verify(response, Mockito.times(1)).getWriter();
-        Mockito.verify(serverService, Mockito.times(1)).writeAppCss(Mockito.anySet(), Mockito.any(Writer.class));
+        Mockito.verify(serverService, Mockito.times(1)).getAppCssBytes(Mockito.anySet());
 
         //
         // And this is the expected call. This must stay.
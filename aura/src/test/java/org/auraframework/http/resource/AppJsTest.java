@@ -21,7 +21,6 @@ import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
 import org.mockito.Mockito;
 
-import java.io.Writer;
 import java.util.HashSet;
 
 import javax.servlet.http.HttpServletRequest;
@@ -75,7 +74,7 @@ public class AppJsTest extends UnitTestCase {
         Mockito.when(servletUtilAdapter.verifyTopLevel(Mockito.any(HttpServletRequest.class),
                     Mockito.any(HttpServletResponse.class), Mockito.any(AuraContext.class)))
             .thenReturn(new HashSet<DefDescriptor<?>>());
-        Mockito.doThrow(t).when(serverService).writeDefinitions(Mockito.anySet(), Mockito.any(Writer.class));
+        Mockito.doThrow(t).when(serverService).getDefinitionsBytes(Mockito.anySet());
 
         appJs.write(null, response, null);
 
@@ -84,8 +83,7 @@ public class AppJsTest extends UnitTestCase {
         //
         Mockito.verify(servletUtilAdapter, Mockito.times(1)).verifyTopLevel(Mockito.any(HttpServletRequest.class),
                 Mockito.any(HttpServletResponse.class), Mockito.any(AuraContext.class));
-        Mockito.verify(response, Mockito.times(1)).getWriter();
-        Mockito.verify(serverService, Mockito.times(1)).writeDefinitions(Mockito.anySet(), Mockito.any(Writer.class));
+        Mockito.verify(serverService, Mockito.times(1)).getDefinitionsBytes(Mockito.anySet());
 
         //
         // And this is the expected call. This must stay.
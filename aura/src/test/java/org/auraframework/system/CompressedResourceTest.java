@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class CompressedResourceTest extends UnitTestCase {
+    private static final byte[] CONTENT;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("$A.componentService.addComponentClass(\"markup://some:cmp").append(i).append("\");\n");
+        }
+        CONTENT = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testEncodingsRoundTrip() throws Exception {
+        CompressedResource resource = CompressedResource.create(CONTENT);
+
+        byte[] gzip = resource.getContent(CompressedResource.GZIP);
+        byte[] deflate = resource.getContent(CompressedResource.DEFLATE);
+        assertTrue(gzip.length < CONTENT.length);
+        assertTrue(deflate.length < CONTENT.length);
+        assertArrayEquals(CONTENT, readAll(new GZIPInputStream(new ByteArrayInputStream(gzip))));
+        assertArrayEquals(CONTENT, readAll(new InflaterInputStream(new ByteArrayInputStream(deflate))));
+        assertSame(CONTENT, resource.getContent(null));
+    }
+
+    @Test
+    public void testSelectEncoding() {
+        CompressedResource resource = CompressedResource.create(CONTENT);
+
+        assertNull(resource.selectEncoding(null));
+        assertNull(resource.selectEncoding("identity"));
+        assertEquals(CompressedResource.GZIP, resource.selectEncoding("deflate, gzip;q=1.0, *;q=0.5"));
+        assertEquals(CompressedResource.DEFLATE, resource.selectEncoding("gzip;q=0, deflate"));
+        assertNull(resource.selectEncoding("gzip; q=0.0"));
+    }
+
+    @Test
+    public void testSelectEncodingSkipsIncompressibleContent() {
+        CompressedResource resource = CompressedResource.create("x".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(resource.selectEncoding("gzip, deflate"));
+    }
+
+    @Test
+    public void testETagsDifferByEncodingAndAllMatch() {
+        CompressedResource resource = CompressedResource.create(CONTENT);
+        String plain = resource.getETag(null);
+        String gzip = resource.getETag(CompressedResource.GZIP);
+
+        assertTrue(plain.startsWith("\"") && plain.endsWith("\""));
+        assertFalse(plain.equals(gzip));
+        assertTrue(resource.matches(plain));
+        assertTrue(resource.matches("\"other\", " + gzip));
+        assertTrue(resource.matches("W/" + plain));
+        assertTrue(resource.matches("*"));
+        assertFalse(resource.matches("\"other\""));
+        assertFalse(resource.matches(null));
+    }
+
+    @Test
+    public void testETagDependsOnContent() {
+        CompressedResource resource = CompressedResource.create(CONTENT);
+        CompressedResource other = CompressedResource.create("other".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(resource.getETag(null), CompressedResource.create(CONTENT.clone()).getETag(null));
+        assertFalse(resource.getETag(null).equals(other.getETag(null)));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+
+public class LoadedSetCacheTest extends UnitTestCase {
+    private DefDescriptor<?> mockDescriptor(DefType type, String qualifiedName) {
+        DefDescriptor<?> descriptor = Mockito.mock(DefDescriptor.class);
+        Mockito.doReturn(type).when(descriptor).getDefType();
+        Mockito.doReturn(qualifiedName).when(descriptor).getQualifiedName();
+        return descriptor;
+    }
+
+    /**
+     * The hash is shared with the client (AuraContext.js), this pins the value the client computes for the same set.
+     */
+    @Test
+    public void testHashMatchesClient() {
+        Map<String, String> loaded = new HashMap<>();
+        loaded.put("COMPONENT@markup://ui:button", "Abc_12-x");
+        loaded.put("APPLICATION@markup://a:b", "zKeYfSKoRXBpmic1IVMhXA");
+        loaded.put("EVENT@markup://é:x", null);
+        assertEquals("864a048f76e09296", LoadedSetCache.hash(loaded));
+        assertEquals("811c9dc500000000", LoadedSetCache.hash(new HashMap<String, String>()));
+    }
+
+    @Test
+    public void testHashDoesNotDependOnOrder() {
+        Map<String, String> first = new LinkedHashMap<>();
+        first.put("COMPONENT@markup://a:one", "1");
+        first.put("COMPONENT@markup://a:two", "2");
+        Map<String, String> second = new LinkedHashMap<>();
+        second.put("COMPONENT@markup://a:two", "2");
+        second.put("COMPONENT@markup://a:one", "1");
+        assertEquals(LoadedSetCache.hash(first), LoadedSetCache.hash(second));
+
+        second.put("COMPONENT@markup://a:two", "3");
+        assertFalse(LoadedSetCache.hash(first).equals(LoadedSetCache.hash(second)));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        DefDescriptor<?> cmp = mockDescriptor(DefType.COMPONENT, "markup://a:one");
+        DefDescriptor<?> app = mockDescriptor(DefType.APPLICATION, "markup://a:app");
+        Map<DefDescriptor<?>, String> loaded = new HashMap<>();
+        loaded.put(cmp, "uid1");
+        loaded.put(app, null);
+
+        Map<String, String> loadedStrings = new HashMap<>();
+        loadedStrings.put("COMPONENT@markup://a:one", "uid1");
+        loadedStrings.put("APPLICATION@markup://a:app", null);
+
+        LoadedSetCache cache = LoadedSetCache.getInstance();
+        String token = cache.put(loaded);
+        assertTrue("the token must start with the hash the client checks",
+                token.startsWith(LoadedSetCache.hash(loadedStrings)));
+        assertEquals(16 + 64, token.length());
+        assertEquals(loaded, cache.get(token));
+
+        // Later changes to the map are not seen.
+        loaded.remove(cmp);
+        assertEquals(2, cache.get(token).size());
+
+        cache.clear();
+        assertNull(cache.get(token));
+    }
+
+    /**
+     * A client can compute the hash of any set, but only gets a set back with a token the server issued for it.
+     */
+    @Test
+    public void testGetWithMadeUpToken() {
+        Map<DefDescriptor<?>, String> loaded = new HashMap<>();
+        loaded.put(mockDescriptor(DefType.COMPONENT, "markup://a:one"), "uid1");
+        LoadedSetCache cache = LoadedSetCache.getInstance();
+        String token = cache.put(loaded);
+
+        String hash = LoadedSetCache.hash(ImmutableMap.of("COMPONENT@markup://a:one", "uid1"));
+        assertNull(cache.get(hash));
+        assertNull(cache.get(hash + Strings.repeat("0", 64)));
+        assertNotNull(cache.get(token));
+    }
+
+    @Test
+    public void testTokenTellsSetsApart() {
+        // The same client hash, as keys and uids run together there.
+        Map<DefDescriptor<?>, String> first = new HashMap<>();
+        first.put(mockDescriptor(DefType.COMPONENT, "markup://a:one\nx"), "1");
+        Map<DefDescriptor<?>, String> second = new HashMap<>();
+        second.put(mockDescriptor(DefType.COMPONENT, "markup://a:one"), "x\n1");
+        LoadedSetCache cache = LoadedSetCache.getInstance();
+        String firstToken = cache.put(first);
+        String secondToken = cache.put(second);
+
+        assertEquals(firstToken.substring(0, 16), secondToken.substring(0, 16));
+        assertFalse(firstToken.equals(secondToken));
+        assertEquals(first, cache.get(firstToken));
+        assertEquals(second, cache.get(secondToken));
+    }
+}